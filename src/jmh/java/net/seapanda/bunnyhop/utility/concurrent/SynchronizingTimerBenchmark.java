@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 競合状態における {@link SynchronizingTimer} のカウントダウンと待ち合わせの性能を計測する.
+ *
+ * <p>計測終了時に待ち状態のスレッドが残らないように, 待ち合わせにはタイムアウトを設定する.
+ *
+ * @author K.Koike
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SynchronizingTimerBenchmark {
+
+  /** 待ち合わせを行うスレッドの数. */
+  private static final int NUM_PARTIES = 4;
+  private static final long TIMEOUT_MS = 10;
+
+  /** カウントダウンのみを行うタイマー. */
+  @State(Scope.Benchmark)
+  public static class CountdownState {
+    final SynchronizingTimer timer = new SynchronizingTimer(SynchronizingTimer.MAX_COUNT, true);
+  }
+
+  /** 複数スレッドで待ち合わせを行うタイマー. */
+  @State(Scope.Group)
+  public static class BarrierState {
+    final SynchronizingTimer timer = new SynchronizingTimer(NUM_PARTIES, true);
+  }
+
+  /** 待ち合わせを行うスレッドとカウントダウンのみを行うスレッドで共有するタイマー. */
+  @State(Scope.Group)
+  public static class AwaitState {
+    final SynchronizingTimer timer = new SynchronizingTimer(1, true);
+  }
+
+  @Benchmark
+  @Threads(NUM_PARTIES)
+  public void countdown(CountdownState state) {
+    state.timer.countdown();
+  }
+
+  @Benchmark
+  @Group("barrier")
+  @GroupThreads(NUM_PARTIES)
+  public boolean countdownAndAwait(BarrierState state) {
+    return state.timer.countdownAndAwait(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @Benchmark
+  @Group("await")
+  @GroupThreads(NUM_PARTIES - 1)
+  public boolean await(AwaitState state) {
+    return state.timer.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+  }
+
+  @Benchmark
+  @Group("await")
+  @GroupThreads(1)
+  public void awaitCountdown(AwaitState state) {
+    state.timer.countdown();
+  }
+}
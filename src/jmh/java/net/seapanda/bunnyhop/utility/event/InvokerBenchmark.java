@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import net.seapanda.bunnyhop.utility.concurrent.event.AsyncConsumerInvoker;
+import net.seapanda.bunnyhop.utility.concurrent.event.ConcurrentConsumerInvoker;
+import net.seapanda.bunnyhop.utility.concurrent.event.DispatchMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link SimpleConsumerInvoker}, {@link ConcurrentConsumerInvoker}, {@link AsyncConsumerInvoker} の
+ * 呼び出し性能を計測する.
+ *
+ * @author K.Koike
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvokerBenchmark {
+
+  /** 登録するコールバック関数の数. */
+  @Param({"1", "10", "1000"})
+  public int numListeners;
+
+  private final SimpleConsumerInvoker<Object> simpleInvoker = new SimpleConsumerInvoker<>();
+  private final ConcurrentConsumerInvoker<Object> concurrentInvoker =
+      new ConcurrentConsumerInvoker<>();
+  /** 登録されたコールバック関数を {@link java.util.concurrent.ForkJoinPool} で並列に呼び出す. */
+  private final ConcurrentConsumerInvoker<Object> forkJoinInvoker =
+      new ConcurrentConsumerInvoker<>();
+  /** コールバック関数の呼び出しに関する統計情報を記録する. */
+  private final SimpleConsumerInvoker<Object> meteredInvoker = new SimpleConsumerInvoker<>();
+  private final AsyncConsumerInvoker<Object> orderedInvoker =
+      new AsyncConsumerInvoker<>(DispatchMode.ORDERED);
+  private final AsyncConsumerInvoker<Object> parallelInvoker =
+      new AsyncConsumerInvoker<>(DispatchMode.PARALLEL);
+  private final Object arg = new Object();
+  /** 登録と削除を繰り返すコールバック関数. */
+  private final Consumer<Object> transientListener = obj -> {};
+
+  /** コールバック関数を登録する. */
+  @Setup
+  public void setup(Blackhole bh) {
+    forkJoinInvoker.setParallelThreshold(1);
+    meteredInvoker.enableMetrics(1, TimeUnit.MILLISECONDS);
+    for (int i = 0; i < numListeners; ++i) {
+      simpleInvoker.getRegistry().add(bh::consume);
+      concurrentInvoker.getRegistry().add(bh::consume);
+      forkJoinInvoker.getRegistry().add(bh::consume);
+      meteredInvoker.getRegistry().add(bh::consume);
+      orderedInvoker.getRegistry().add(bh::consume);
+      parallelInvoker.getRegistry().add(bh::consume);
+    }
+  }
+
+  @Benchmark
+  public void simpleInvoke() {
+    simpleInvoker.invoke(arg);
+  }
+
+  @Benchmark
+  public void concurrentInvoke() {
+    concurrentInvoker.invoke(arg);
+  }
+
+  @Benchmark
+  public void forkJoinInvoke() {
+    forkJoinInvoker.invoke(arg);
+  }
+
+  @Benchmark
+  public void meteredInvoke() {
+    meteredInvoker.invoke(arg);
+  }
+
+  /** 全てのコールバック関数の呼び出しが終わるまで待つ. */
+  @Benchmark
+  public void orderedAsyncInvoke() {
+    orderedInvoker.invokeAsync(arg).join();
+  }
+
+  /** 全てのコールバック関数の呼び出しが終わるまで待つ. */
+  @Benchmark
+  public void parallelAsyncInvoke() {
+    parallelInvoker.invokeAsync(arg).join();
+  }
+
+  /** {@link Registration#close} でコールバック関数の登録を解除する. */
+  @Benchmark
+  public void addAndClose() {
+    simpleInvoker.getRegistry().add(transientListener).close();
+  }
+
+  /** {@link SimpleConsumerInvoker.Registry#remove} でコールバック関数の登録を解除する. */
+  @Benchmark
+  public void addAndRemove() {
+    simpleInvoker.getRegistry().add(transientListener);
+    simpleInvoker.getRegistry().remove(transientListener);
+  }
+
+  /** {@link Registration#close} でコールバック関数の登録を解除する. */
+  @Benchmark
+  public void concurrentAddAndClose() {
+    concurrentInvoker.getRegistry().add(transientListener).close();
+  }
+}
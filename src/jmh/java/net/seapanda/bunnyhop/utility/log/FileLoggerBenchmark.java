@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link FileLogger} と {@link AsyncFileLogger} のログ出力性能を計測する.
+ *
+ * <p>標準出力への書き込みは計測対象から外すため, 計測中は破棄する.
+ *
+ * @author K.Koike
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileLoggerBenchmark {
+
+  /** ログの出力先ディレクトリ. */
+  @State(Scope.Benchmark)
+  public static class OutputDir {
+    Path dirPath;
+    private PrintStream stdout;
+    private PrintStream stderr;
+
+    /** ログの出力先を作成する. */
+    @Setup
+    public void setup() throws IOException {
+      stdout = System.out;
+      stderr = System.err;
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+      System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+      dirPath = Files.createTempDirectory("bhutility-jmh");
+    }
+
+    /** ログの出力先を削除する. */
+    @TearDown
+    public void tearDown() throws IOException {
+      System.setOut(stdout);
+      System.setErr(stderr);
+      try (Stream<Path> paths = Files.walk(dirPath)) {
+        paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+      }
+    }
+  }
+
+  /** 計測対象のロガー. */
+  @State(Scope.Benchmark)
+  public static class Loggers {
+    /** 呼び出し元のメソッド名の取得方法. */
+    @Param({"RESOLVE", "CACHED", "NONE"})
+    public CallerInfoMode callerInfoMode;
+    /** 出力先ファイルに書き込むログの形式. */
+    @Param({"TEXT", "BINARY"})
+    public RecordFormat format;
+
+    FileLogger logger;
+    AsyncFileLogger asyncLogger;
+
+    /** ロガーを作成する. */
+    @Setup
+    public void setup(OutputDir dir) throws IOException {
+      logger = new FileLogger(
+          dir.dirPath,
+          "bench-" + format,
+          1024 * 1024,
+          4,
+          OutputMode.STREAM,
+          FlushPolicy.everyRecord(),
+          RetentionPolicy.uncompressed(),
+          format);
+      logger.setCallerInfoMode(callerInfoMode);
+      asyncLogger = new AsyncFileLogger(
+          dir.dirPath,
+          "async-" + format,
+          1024 * 1024,
+          4,
+          8192,
+          AsyncFileLogger.OverflowPolicy.BLOCK,
+          OutputMode.STREAM,
+          FlushPolicy.everyRecord(),
+          RetentionPolicy.uncompressed(),
+          format);
+      asyncLogger.setCallerInfoMode(callerInfoMode);
+    }
+
+    /** ロガーの終了処理をする. */
+    @TearDown
+    public void tearDown() {
+      logger.close();
+      asyncLogger.close();
+    }
+  }
+
+  /** 同じログを抑制する {@link FileLogger}. */
+  @State(Scope.Benchmark)
+  public static class SuppressingLogger {
+    FileLogger logger;
+
+    /**
+     * ロガーを作成する.
+     *
+     * <p>最初の 1 件以外のログを抑制する.  判定のコストだけを計測するため, 呼び出し元のメソッド名は取得しない.
+     */
+    @Setup
+    public void setup(OutputDir dir) throws IOException {
+      logger = new FileLogger(dir.dirPath, "suppressed", 1024 * 1024, 4);
+      logger.setSuppressionPolicy(SuppressionPolicy.firstPerWindow(1, 60 * 60 * 1000));
+      logger.setCallerInfoMode(CallerInfoMode.NONE);
+    }
+
+    /** ロガーの終了処理をする. */
+    @TearDown
+    public void tearDown() {
+      logger.close();
+    }
+  }
+
+  /** ファイルに出力しないログを {@link FlightRecorder} に保持する {@link FileLogger}. */
+  @State(Scope.Benchmark)
+  public static class RecordingLogger {
+    FileLogger logger;
+
+    /** ロガーを作成する.  呼び出し元のメソッド名は取得しない. */
+    @Setup
+    public void setup(OutputDir dir) throws IOException {
+      logger = new FileLogger(dir.dirPath, "recording", 1024 * 1024, 4);
+      logger.setFlightRecorder(new FlightRecorder(1024 * 1024, LogLevel.DEBUG));
+      logger.setCallerInfoMode(CallerInfoMode.NONE);
+    }
+
+    /** ロガーの終了処理をする. */
+    @TearDown
+    public void tearDown() {
+      logger.close();
+    }
+  }
+
+  /** 計測対象の {@link TextRecorder}. */
+  @State(Scope.Benchmark)
+  public static class Recorder {
+    TextRecorder recorder;
+
+    /** {@link TextRecorder} を作成する. */
+    @Setup
+    public void setup(OutputDir dir) throws IOException {
+      recorder = new TextRecorder(dir.dirPath, "record", 1024 * 1024, 4);
+    }
+
+    /** {@link TextRecorder} の終了処理をする. */
+    @TearDown
+    public void tearDown() {
+      recorder.close();
+    }
+  }
+
+  @Benchmark
+  public void info(Loggers loggers) {
+    loggers.logger.info("benchmark message");
+  }
+
+  @Benchmark
+  public void infoFormatted(Loggers loggers) {
+    loggers.logger.info("benchmark message %s, %s", 1234, "arg");
+  }
+
+  @Benchmark
+  public void asyncInfo(Loggers loggers) {
+    loggers.asyncLogger.info("benchmark message");
+  }
+
+  /** 抑制されるログの出力.  抑制するかどうかの判定だけが行われる. */
+  @Benchmark
+  public void errorSuppressed(SuppressingLogger logger) {
+    logger.logger.error("benchmark message");
+  }
+
+  /** {@link FlightRecorder} にだけ保持されるログの出力. */
+  @Benchmark
+  public void debugRecorded(RecordingLogger logger) {
+    logger.logger.debug("benchmark message");
+  }
+
+  /** 呼び出し元のメソッド名の取得を除いた, ログの作成からファイルへの書き込みまでの処理. */
+  @Benchmark
+  public void encodeAndWrite(Recorder recorder) {
+    ByteBuffer record = RecordEncoder.get().encode(
+        "INFO",
+        "FileLoggerBenchmark.encodeAndWrite",
+        System.currentTimeMillis(),
+        "benchmark message");
+    recorder.recorder.write(record);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 出力されない重要度のログを出力しようとしたときのコストを計測する.
+ *
+ * <p>{@link #eagerConcat} は呼び出し側でメッセージを作成する場合のコストで, 他のメソッドと比較するためのもの.
+ *
+ * @author K.Koike
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogLevelBenchmark {
+
+  private Path dirPath;
+  private FileLogger logger;
+  /** メッセージに埋め込む値. */
+  private Object value = 1234;
+
+  /** {@link LogLevel#INFO} 以上のログを出力するロガーを作成する. */
+  @Setup
+  public void setup() throws IOException {
+    dirPath = Files.createTempDirectory("bhutility-jmh");
+    logger = new FileLogger(dirPath, "bench", 1024 * 1024, 4);
+    logger.setLevel(LogLevel.INFO);
+  }
+
+  /** ロガーの終了処理をして, ログの出力先を削除する. */
+  @TearDown
+  public void tearDown() throws IOException {
+    logger.close();
+    try (Stream<Path> paths = Files.walk(dirPath)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void disabled() {
+    logger.debug("benchmark message");
+  }
+
+  @Benchmark
+  public void disabledSupplier() {
+    logger.debug(() -> "value = " + value);
+  }
+
+  @Benchmark
+  public void disabledFormat() {
+    logger.debug("value = %s", value);
+  }
+
+  @Benchmark
+  public void disabledFormatVarArgs() {
+    logger.debug("values = %s, %s, %s, %s", value, value, value, value);
+  }
+
+  @Benchmark
+  public void eagerConcat() {
+    logger.debug("value = " + value);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import net.seapanda.bunnyhop.utility.log.AsyncFileLogger.OverflowPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 複数のスレッドから同時にログを出力したときの各ロガーのスループットを計測する.
+ *
+ * <p>デフォルトでは利用可能な全てのプロセッサ数のスレッドで計測する.  スレッド数は -t オプションで変更できる.
+ * 書き込み用のスレッドを持つロガーはバッファが一杯になると出力を待つので, 書き込みが追いつく速度が計測される.
+ *
+ * @author K.Koike
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class LoggerScalingBenchmark {
+
+  private Path dirPath;
+  private PrintStream stdout;
+  private FileLogger fileLogger;
+  private AsyncFileLogger asyncLogger;
+  private ConcurrentFileLogger concurrentLogger;
+
+  /** ロガーを作成する. */
+  @Setup
+  public void setup() throws IOException {
+    stdout = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    dirPath = Files.createTempDirectory("bhutility-jmh");
+    fileLogger = new FileLogger(
+        dirPath,
+        "file",
+        16 * 1024 * 1024,
+        4,
+        OutputMode.CHANNEL,
+        FlushPolicy.groupCommit(),
+        RetentionPolicy.uncompressed());
+    fileLogger.setCallerInfoMode(CallerInfoMode.NONE);
+    asyncLogger = new AsyncFileLogger(
+        dirPath,
+        "async",
+        16 * 1024 * 1024,
+        4,
+        8192,
+        OverflowPolicy.BLOCK,
+        OutputMode.CHANNEL,
+        FlushPolicy.groupCommit());
+    asyncLogger.setCallerInfoMode(CallerInfoMode.NONE);
+    concurrentLogger = new ConcurrentFileLogger(
+        dirPath,
+        "concurrent",
+        16 * 1024 * 1024,
+        4,
+        256,
+        OverflowPolicy.BLOCK,
+        OutputMode.CHANNEL,
+        FlushPolicy.groupCommit(),
+        RetentionPolicy.uncompressed());
+    concurrentLogger.setCallerInfoMode(CallerInfoMode.NONE);
+  }
+
+  /** ロガーの終了処理をして, ログの出力先を削除する. */
+  @TearDown
+  public void tearDown() throws IOException {
+    fileLogger.close();
+    asyncLogger.close();
+    concurrentLogger.close();
+    System.setOut(stdout);
+    try (Stream<Path> paths = Files.walk(dirPath)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void fileLogger() {
+    fileLogger.info("benchmark message");
+  }
+
+  @Benchmark
+  public void asyncFileLogger() {
+    asyncLogger.info("benchmark message");
+  }
+
+  @Benchmark
+  public void concurrentFileLogger() {
+    concurrentLogger.info("benchmark message");
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link TextRecorder} の書き込み方法とフラッシュのタイミングごとの書き込み性能を計測する.
+ *
+ * @author K.Koike
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TextRecorderBenchmark {
+
+  /** 出力先ファイルにデータを書き込む方法. */
+  @Param({"STREAM", "CHANNEL", "MAPPED"})
+  public OutputMode mode;
+
+  /** 書き込んだデータをフラッシュするタイミング. */
+  @Param({"RECORD", "BYTES", "MILLIS", "GROUP_COMMIT"})
+  public String flushPolicy;
+
+  private final ByteBuffer record = ByteBuffer.wrap(
+      "[INFO] : TextRecorderBenchmark.write @ 2024/01/01 00:00:00\nbenchmark message\n----\n"
+      .getBytes(StandardCharsets.UTF_8));
+  private Path dirPath;
+  private TextRecorder recorder;
+
+  /** {@link TextRecorder} を作成する. */
+  @Setup
+  public void setup() throws IOException {
+    FlushPolicy policy = switch (flushPolicy) {
+      case "RECORD" -> FlushPolicy.everyRecord();
+      case "BYTES" -> FlushPolicy.everyBytes(32 * 1024);
+      case "MILLIS" -> FlushPolicy.everyMillis(100);
+      default -> FlushPolicy.groupCommit();
+    };
+    dirPath = Files.createTempDirectory("bhutility-jmh");
+    recorder = new TextRecorder(dirPath, "record", 16 * 1024 * 1024, 4, mode, policy);
+  }
+
+  /** 出力先ファイルを削除する. */
+  @TearDown
+  public void tearDown() throws IOException {
+    recorder.close();
+    try (Stream<Path> paths = Files.walk(dirPath)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark
+  public void write() {
+    recorder.write(record.rewind());
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.serialization;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link JsonImporter#imports} の性能を計測する.
+ *
+ * @author K.Koike
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonImporterBenchmark {
+
+  private static final String JSON = """
+      {
+        "intVal": 10,
+        "doubleVal": 1.5,
+        "boolVal": true,
+        "strVal": "settings",
+        "Inner": {
+          "longVal": 1234567890123,
+          "strVal": "inner settings"
+        }
+      }
+      """;
+
+  private Path filePath;
+
+  /** 読み込み先のクラス. */
+  @SuppressWarnings("unused")
+  static class Settings {
+    static int intVal = 0;
+    static double doubleVal = 0;
+    static boolean boolVal = false;
+    static String strVal = "";
+
+    static class Inner {
+      static long longVal = 0;
+      static String strVal = "";
+    }
+  }
+
+  /** 読み込む JSON ファイルを作成する. */
+  @Setup
+  public void setup() throws IOException {
+    filePath = Files.createTempFile("bhutility-jmh", ".json");
+    Files.writeString(filePath, JSON);
+  }
+
+  /** 読み込んだ JSON ファイルを削除する. */
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(filePath);
+  }
+
+  @Benchmark
+  public void imports() throws IOException {
+    JsonImporter.imports(Settings.class, filePath);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.textdb;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link JsonTextDatabase} のテキスト取得性能を計測する.
+ *
+ * @author K.Koike
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonTextDatabaseBenchmark {
+
+  private static final String JSON = """
+      {
+        "gui": {
+          "menu": {
+            "save": "Save",
+            "saved": "Saved %s (%s bytes)"
+          }
+        }
+      }
+      """;
+
+  private JsonTextDatabase database;
+  private final TextId plainId = TextId.of("gui", "menu", "save");
+  private final TextId formatId = TextId.of("gui", "menu", "saved");
+
+  /** テキストデータベースを作成する. */
+  @Setup
+  public void setup() {
+    database = new JsonTextDatabase(JSON);
+  }
+
+  @Benchmark
+  public String get() {
+    return database.get(plainId);
+  }
+
+  @Benchmark
+  public String getWithArgs() {
+    return database.get(formatId, "project.bhm", 4096);
+  }
+}
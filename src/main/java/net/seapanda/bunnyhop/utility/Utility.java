@@ -17,10 +17,13 @@
 package net.seapanda.bunnyhop.utility;
 
 import java.io.File;
+import java.lang.StackWalker.StackFrame;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * アプリケーション全体で使用する様々な処理をまとめたクラス.
@@ -35,6 +38,15 @@ public class Utility {
   public static final String ps = File.pathSeparator;
   public static final String fs = FileSystems.getDefault().getSeparator();
   private static final String osName = System.getProperty("os.name").toLowerCase();
+  private static final StackWalker stackWalker =
+      StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+  /** クラスごとのメソッド名 (クラス名.メソッド名) のキャッシュ.  key はメソッド名. */
+  private static final ClassValue<Map<String, String>> methodNames = new ClassValue<>() {
+    @Override
+    protected Map<String, String> computeValue(Class<?> type) {
+      return new ConcurrentHashMap<>();
+    }
+  };
 
   static {
     boolean isModulePath = true;
@@ -62,7 +74,7 @@ public class Utility {
 
   /** このメソッドを呼び出したメソッド名を (クラス名.メソッド名) として返す. */
   public static String getCurrentMethodName() {
-    return getMethodName(2);
+    return findMethodName(1, false);
   }
 
   /**
@@ -77,11 +89,71 @@ public class Utility {
    * @return {@code callee} で指定したメソッド名.  コールスタックから情報を取得できなかった場合は空の文字列.
    */
   public static String getMethodName(int callee) {
-    StackTraceElement[] elems = Thread.currentThread().getStackTrace();
-    if (elems.length >= 2 + callee) {
-      return elems[1 + callee].getClassName() + "." + elems[1 + callee].getMethodName();
+    return findMethodName(callee, false);
+  }
+
+  /**
+   * コールスタックからメソッド名を (クラス名.メソッド名) として返す.
+   *
+   * <p>{@code useCache} が true の場合, 同じメソッドに対しては 2 回目以降の呼び出しで同じ文字列オブジェクトを返す.
+   *
+   * @param callee <pre>コールスタックの要素の指定に使用する.
+   *               0 : このメソッド
+   *               1 : このメソッドを呼び出したメソッド
+   *                    ....
+   *               n : n - 1 で取得できるメソッドを呼び出したメソッド.
+   *               </pre>
+   * @param useCache メソッド名の文字列をキャッシュする場合 true
+   * @return {@code callee} で指定したメソッド名.  コールスタックから情報を取得できなかった場合は空の文字列.
+   */
+  public static String getMethodName(int callee, boolean useCache) {
+    return findMethodName(callee, useCache);
+  }
+
+  /**
+   * {@code api} を実装したクラスのメソッドを呼び出したメソッドの名前を (クラス名.メソッド名) として返す.
+   *
+   * <p>コールスタックを辿り, {@code api} を実装したクラスのメソッドが続く部分の直前の要素を返す.
+   * {@code api} を実装したクラスの中でメソッドの呼び出しの深さが変わる場合でも, その外側の呼び出し元を取得できる.
+   *
+   * @param api このインタフェースを実装したクラスのメソッドの呼び出し元を取得する
+   * @param useCache メソッド名の文字列をキャッシュする場合 true
+   * @return {@code api} を実装したクラスのメソッドを呼び出したメソッド名.
+   *         コールスタックから情報を取得できなかった場合は空の文字列.
+   */
+  public static String getCallerName(Class<?> api, boolean useCache) {
+    StackFrame frame = stackWalker.walk(frames -> frames
+        .dropWhile(elem -> !api.isAssignableFrom(elem.getDeclaringClass()))
+        .dropWhile(elem -> api.isAssignableFrom(elem.getDeclaringClass()))
+        .findFirst()
+        .orElse(null));
+    return toMethodName(frame, useCache);
+  }
+
+  /**
+   * コールスタックからメソッド名を (クラス名.メソッド名) として返す.
+   *
+   * <p>コールスタックは {@code callee} で指定した要素までしか辿らない.
+   *
+   * @param callee このメソッドを呼び出した public メソッドを 0 としたときのコールスタックの要素の位置
+   * @param useCache メソッド名の文字列をキャッシュする場合 true
+   */
+  private static String findMethodName(int callee, boolean useCache) {
+    // 0 : このメソッド, 1 : このメソッドを呼び出した public メソッド
+    StackFrame frame = stackWalker.walk(frames -> frames.skip(callee + 1).findFirst().orElse(null));
+    return toMethodName(frame, useCache);
+  }
+
+  /** {@code frame} のメソッド名を (クラス名.メソッド名) として返す.  {@code frame} が null の場合は空の文字列. */
+  private static String toMethodName(StackFrame frame, boolean useCache) {
+    if (frame == null) {
+      return "";
+    }
+    if (useCache) {
+      return methodNames.get(frame.getDeclaringClass())
+          .computeIfAbsent(frame.getMethodName(), name -> frame.getClassName() + "." + name);
     }
-    return "";
+    return frame.getClassName() + "." + frame.getMethodName();
   }
 
   /** OS を識別するためのクラス. */
@@ -19,6 +19,7 @@ package net.seapanda.bunnyhop.utility.concurrent;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import net.seapanda.bunnyhop.utility.jfr.TimerAwaitEvent;
 
 /**
  * 同期タイマー.
@@ -143,7 +144,7 @@ public final class SynchronizingTimer {
     }
     // ここで reset(0) によって登録済みパーティ数が 0 になっても, フェーズが変わるので,
     // 登録済みパーティ数 0 のフェーズで待ち続けることはない.
-    phaser.awaitAdvanceInterruptibly(status.phase);
+    awaitAdvance(status);
   }
 
   /**
@@ -158,12 +159,7 @@ public final class SynchronizingTimer {
     if (status.numParties() == 0) {
       return true;
     }
-    try {
-      phaser.awaitAdvanceInterruptibly(status.phase, timeout, unit);
-    } catch (TimeoutException e) {
-      return false;
-    }
-    return true;
+    return awaitAdvance(status, timeout, unit);
   }
 
   /**
@@ -198,7 +194,7 @@ public final class SynchronizingTimer {
     if (status.numParties() == 0) {
       return;
     }
-    phaser.awaitAdvanceInterruptibly(status.phase());
+    awaitAdvance(status);
   }
 
   /**
@@ -214,12 +210,7 @@ public final class SynchronizingTimer {
     if (status.numParties() == 0) {
       return false;
     }
-    try {
-      phaser.awaitAdvanceInterruptibly(status.phase(), timeout, unit);
-    } catch (TimeoutException e) {
-      return false;
-    }
-    return true;
+    return awaitAdvance(status, timeout, unit);
   }
 
   /**
@@ -254,6 +245,40 @@ public final class SynchronizingTimer {
     return getPhaserStatus().numParties();
   }
 
+  /** {@code status} のフェーズが終わるまで待つ. */
+  private void awaitAdvance(PhaserStatus status) throws InterruptedException {
+    var event = new TimerAwaitEvent();
+    event.begin();
+    boolean completed = false;
+    try {
+      phaser.awaitAdvanceInterruptibly(status.phase());
+      completed = true;
+    } finally {
+      event.commit(status.phase(), status.numParties(), completed);
+    }
+  }
+
+  /**
+   * {@code status} のフェーズが終わるまで {@code timeout} で指定した時間待つ.
+   *
+   * @return {@code status} のフェーズが終わった場合 true を返す
+   */
+  private boolean awaitAdvance(PhaserStatus status, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    var event = new TimerAwaitEvent();
+    event.begin();
+    boolean completed = false;
+    try {
+      phaser.awaitAdvanceInterruptibly(status.phase(), timeout, unit);
+      completed = true;
+    } catch (TimeoutException e) {
+      /* Do nothing. */
+    } finally {
+      event.commit(status.phase(), status.numParties(), completed);
+    }
+    return completed;
+  }
+
   /**
    * {@link Phaser} フェーズと登録済みパーティ数を取得する.
    * <pre>
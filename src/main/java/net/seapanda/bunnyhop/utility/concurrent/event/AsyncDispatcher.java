@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.concurrent.event;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import net.seapanda.bunnyhop.utility.concurrent.event.CallbackRegistry.Node;
+import net.seapanda.bunnyhop.utility.event.InvocationException;
+
+/**
+ * {@link CallbackRegistry} に登録されたコールバック関数を {@link Executor} 上で呼び出すクラス.
+ *
+ * @author K.Koike
+ */
+final class AsyncDispatcher {
+
+  /** コールバック関数ごとに仮想スレッドを作成して呼び出す {@link Executor}. */
+  static final Executor VIRTUAL_THREADS = task -> Thread.ofVirtual().start(task);
+
+  private final Executor executor;
+  private final DispatchMode mode;
+  /** {@link #post} で呼び出したときに発生した例外を処理する関数. */
+  private volatile Consumer<? super Throwable> errorHandler = AsyncDispatcher::reportError;
+
+  AsyncDispatcher(Executor executor, DispatchMode mode) {
+    this.executor = Objects.requireNonNull(executor);
+    this.mode = Objects.requireNonNull(mode);
+  }
+
+  /**
+   * {@code callbacks} に登録されたコールバック関数を呼び出す.
+   *
+   * <p>{@link Callbacks#first} を呼んだ後で, {@code callbacks} から残りの関数を取得する.
+   * そのため, {@link Callbacks#first} の中で登録した関数も呼び出される.
+   *
+   * @param callbacks 呼び出すコールバック関数
+   * @param call コールバック関数に引数を与えて呼び出す処理
+   * @return 全てのコールバック関数の呼び出しが終わったときに完了する {@link CompletableFuture}.
+   *         コールバック関数が例外を投げた場合, {@link InvocationException} を原因として例外で完了する.
+   *         {@link Error} が発生した場合は, それを原因として例外で完了する.
+   */
+  <F> CompletableFuture<Void> dispatch(
+      CallbackRegistry<F> callbacks, Consumer<? super F> call) {
+    Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+    CompletableFuture<Void> future = switch (mode) {
+      case ORDERED -> CompletableFuture.runAsync(() -> {
+        callSafely(callbacks.get().first(), call, errors);
+        for (Node<F> node : callbacks.get().funcs()) {
+          callSafely(node.fn, call, errors);
+        }
+        callSafely(callbacks.get().last(), call, errors);
+      }, executor);
+
+      case PARALLEL -> CompletableFuture
+          .runAsync(() -> callSafely(callbacks.get().first(), call, errors), executor)
+          .thenCompose(ignored -> {
+            Node<F>[] funcs = callbacks.get().funcs();
+            var futures = new CompletableFuture<?>[funcs.length];
+            for (int i = 0; i < funcs.length; ++i) {
+              Node<F> node = funcs[i];
+              futures[i] = CompletableFuture.runAsync(
+                  () -> callSafely(node.fn, call, errors), executor);
+            }
+            return CompletableFuture.allOf(futures);
+          })
+          .thenRunAsync(() -> callSafely(callbacks.get().last(), call, errors), executor);
+    };
+    return future.thenRun(() -> {
+      if (!errors.isEmpty()) {
+        throw new InvocationException(List.copyOf(errors));
+      }
+    });
+  }
+
+  /**
+   * {@code callbacks} に登録されたコールバック関数の呼び出しを開始し, 完了を待たずに制御を返す.
+   *
+   * <p>呼び出しが例外で終わった場合や {@link Executor} が呼び出しを受け付けなかった場合は,
+   * その例外を {@link #setErrorHandler} で設定した関数に渡す.
+   *
+   * @param callbacks 呼び出すコールバック関数
+   * @param call コールバック関数に引数を与えて呼び出す処理
+   */
+  <F> void post(CallbackRegistry<F> callbacks, Consumer<? super F> call) {
+    CompletableFuture<Void> future;
+    try {
+      future = dispatch(callbacks, call);
+    } catch (RuntimeException e) {
+      errorHandler.accept(e);
+      return;
+    }
+    future.whenComplete((ignored, e) -> {
+      if (e != null) {
+        errorHandler.accept(
+            (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e);
+      }
+    });
+  }
+
+  /**
+   * {@link #post} で呼び出したときに発生した例外を処理する関数を設定する.
+   *
+   * @param handler 発生した例外を受け取る関数
+   */
+  void setErrorHandler(Consumer<? super Throwable> handler) {
+    errorHandler = Objects.requireNonNull(handler);
+  }
+
+  /** {@code e} を現在のスレッドの {@link Thread.UncaughtExceptionHandler} に渡す. */
+  private static void reportError(Throwable e) {
+    Thread thread = Thread.currentThread();
+    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+  }
+
+  /**
+   * {@code fn} を呼び出し, 例外が発生した場合は {@code errors} に追加する.
+   * {@code fn} が null の場合は何もしない.  {@link Error} は追加せずにそのまま投げる.
+   */
+  private static <F> void callSafely(F fn, Consumer<? super F> call, Queue<Throwable> errors) {
+    if (fn == null) {
+      return;
+    }
+    try {
+      call.accept(fn);
+    } catch (RuntimeException e) {
+      errors.add(e);
+    }
+  }
+}
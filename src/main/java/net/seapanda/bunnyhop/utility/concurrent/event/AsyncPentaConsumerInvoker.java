@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.concurrent.event;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import net.seapanda.bunnyhop.utility.event.InvocationException;
+import net.seapanda.bunnyhop.utility.event.PentaConsumerInvoker;
+import net.seapanda.bunnyhop.utility.function.PentaConsumer;
+
+/**
+ * {@link PentaConsumer} 型のコールバック関数を {@link Executor} 上で呼び出すクラス.
+ *
+ * <p>{@link #invoke} はコールバック関数の呼び出しの完了を待たずに制御を返す.
+ * 呼び出しの完了を待つ場合や, コールバック関数が投げた例外を確認する場合は {@link #invokeAsync} を使う.
+ * コールバック関数の登録, 削除はスレッドセーフである.
+ *
+ * @author K.Koike
+ */
+public class AsyncPentaConsumerInvoker<S, T, U, V, W> extends PentaConsumerInvoker<S, T, U, V, W> {
+
+  private final ConcurrentPentaConsumerInvoker<S, T, U, V, W> invoker =
+      new ConcurrentPentaConsumerInvoker<>();
+  private final AsyncDispatcher dispatcher;
+
+  /** 登録された順にコールバック関数を呼び出すオブジェクトを作成する.  呼び出しごとに仮想スレッドを 1 つ作成する. */
+  public AsyncPentaConsumerInvoker() {
+    this(DispatchMode.ORDERED);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * <p>{@link DispatchMode#ORDERED} の場合は呼び出しごとに, {@link DispatchMode#PARALLEL} の場合はコールバック関数ごとに
+   * 仮想スレッドを 1 つ作成して呼び出す.
+   *
+   * @param mode コールバック関数を呼び出す順序
+   */
+  public AsyncPentaConsumerInvoker(DispatchMode mode) {
+    this(AsyncDispatcher.VIRTUAL_THREADS, mode);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param executor コールバック関数を呼び出す {@link Executor}
+   * @param mode コールバック関数を呼び出す順序
+   */
+  public AsyncPentaConsumerInvoker(Executor executor, DispatchMode mode) {
+    dispatcher = new AsyncDispatcher(executor, mode);
+  }
+
+  /**
+   * このオブジェクトに登録されたコールバック関数の呼び出しを開始する.
+   *
+   * <p>呼び出しの完了を待たずに制御を返す.
+   * コールバック関数が投げた例外は {@link #setErrorHandler} で設定した関数に渡される.
+   */
+  @Override
+  public void invoke(S s, T t, U u, V v, W w) {
+    dispatcher.post(invoker.getRegistry().callbacks, fn -> fn.accept(s, t, u, v, w));
+  }
+
+  /**
+   * このオブジェクトに登録されたコールバック関数の呼び出しを開始する.
+   *
+   * <p>あるコールバック関数が例外を投げても, 残りのコールバック関数は呼び出される.
+   *
+   * @param s コールバック関数に与える第 1 引数
+   * @param t コールバック関数に与える第 2 引数
+   * @param u コールバック関数に与える第 3 引数
+   * @param v コールバック関数に与える第 4 引数
+   * @param w コールバック関数に与える第 5 引数
+   * @return 全てのコールバック関数の呼び出しが終わったときに完了する {@link CompletableFuture}.
+   *         コールバック関数が例外を投げた場合, 投げられた例外を全て格納した {@link InvocationException} を
+   *         原因として例外で完了する.  {@link Error} が発生した場合は, それを原因として例外で完了する.
+   */
+  public CompletableFuture<Void> invokeAsync(S s, T t, U u, V v, W w) {
+    return dispatcher.dispatch(invoker.getRegistry().callbacks, fn -> fn.accept(s, t, u, v, w));
+  }
+
+  /**
+   * {@link #invoke} で呼び出したコールバック関数が投げた例外を処理する関数を設定する.
+   *
+   * <p>デフォルトでは, 呼び出しを終えたスレッドの {@link Thread.UncaughtExceptionHandler} に例外を渡す.
+   * {@link #invokeAsync} で呼び出した場合の例外は, 戻り値の {@link CompletableFuture} で確認する.
+   *
+   * @param handler コールバック関数の呼び出し中に発生した例外を受け取る関数
+   */
+  public void setErrorHandler(Consumer<? super Throwable> handler) {
+    dispatcher.setErrorHandler(handler);
+  }
+
+  /**
+   * コールバック関数を {@link Executor} 上で呼び出すので, 統計情報は記録できない.
+   *
+   * @return false
+   */
+  @Override
+  protected boolean supportsMetrics() {
+    return false;
+  }
+
+  @Override
+  public ConcurrentPentaConsumerInvoker<S, T, U, V, W>.Registry getRegistry() {
+    return invoker.getRegistry();
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.concurrent.event;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import net.seapanda.bunnyhop.utility.event.Registration;
+
+/**
+ * コールバック関数の登録内容を {@link Callbacks} として公開するクラス.  スレッドセーフである.
+ *
+ * <p>登録内容は, 変更後の内容を持つ {@link Callbacks} を CAS で置き換えることで変更し, ロックを取得しない.
+ * {@link Registration#close} による登録の解除は {@link Node#fn} を null にするだけで, 一定時間で終わる.
+ * 解除済みの要素が半分を超えたときに, それらをまとめて取り除いた {@link Callbacks} に置き換える.
+ *
+ * <p>弱参照で保持したコールバック関数が回収された場合, その要素は要素の追加時と {@link Callbacks} の再作成時に
+ * {@link ReferenceQueue} からまとめて取り出して登録を解除する.  呼び出しのたびには確認しない.
+ *
+ * @param <F> コールバック関数の型
+ * @author K.Koike
+ */
+final class CallbackRegistry<F> {
+
+  /** 何もしないコールバック関数. */
+  private final F noop;
+  private final AtomicReference<Callbacks<F>> callbacks;
+  /** 登録を解除したが, まだ {@link Callbacks#funcs} から取り除いていない要素のおおよその数. */
+  private final AtomicInteger numRemoved = new AtomicInteger();
+  /** 回収されたコールバック関数の弱参照が追加されるキュー. */
+  private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+  /**
+   * コンストラクタ.
+   *
+   * @param noop 何もしないコールバック関数
+   */
+  CallbackRegistry(F noop) {
+    this.noop = noop;
+    this.callbacks = new AtomicReference<>(Callbacks.empty(noop));
+  }
+
+  /** 現在の登録内容を返す. */
+  Callbacks<F> get() {
+    return callbacks.get();
+  }
+
+  /**
+   * {@code fn} を末尾に追加する.
+   *
+   * @param fn 追加するコールバック関数
+   * @return {@code fn} の登録を解除するためのオブジェクト
+   */
+  Registration add(F fn) {
+    return addNode(new Node<>(fn, this));
+  }
+
+  /**
+   * {@code fn} を弱参照で保持して末尾に追加する.
+   *
+   * @param fn 追加するコールバック関数
+   * @param wrap {@code fn} の弱参照を受け取って, 参照先が回収されていなければ呼び出すコールバック関数を作成する関数.
+   *             作成したコールバック関数は {@code fn} を強参照してはならない.
+   * @return {@code fn} の登録を解除するためのオブジェクト
+   */
+  <T> Registration addWeak(T fn, Function<? super WeakReference<T>, ? extends F> wrap) {
+    var ref = new WeakTarget<>(fn, collected);
+    var node = new Node<F>(wrap.apply(ref), this);
+    node.weakTarget = ref;
+    ref.node = node;
+    addNode(node);
+    Reference.reachabilityFence(fn);
+    return node;
+  }
+
+  private Node<F> addNode(Node<F> node) {
+    purge();
+    callbacks.updateAndGet(cbs -> cbs.with(node));
+    return node;
+  }
+
+  /**
+   * {@code fn} の登録を解除する.
+   *
+   * <p>最初と最後に呼び出すコールバック関数は {@code fn} と同一である場合に解除する.
+   * それ以外のコールバック関数は {@code fn} と等しいものを全て解除する.
+   */
+  void remove(Object fn) {
+    callbacks.updateAndGet(cbs -> cbs.withoutEnds(fn, noop));
+    for (Node<F> node : callbacks.get().funcs()) {
+      if (node.matches(fn)) {
+        node.close();
+      }
+    }
+  }
+
+  /** 最初に呼び出すコールバック関数を {@code fn} にする. */
+  void setFirst(F fn) {
+    callbacks.updateAndGet(cbs -> cbs.withFirst(fn));
+  }
+
+  /** 最後に呼び出すコールバック関数を {@code fn} にする. */
+  void setLast(F fn) {
+    callbacks.updateAndGet(cbs -> cbs.withLast(fn));
+  }
+
+  /** 登録が解除されたときに呼ばれる. */
+  private void onRemoved() {
+    compactIfNeeded(numRemoved.incrementAndGet());
+  }
+
+  /** 参照先が回収された要素の登録を解除する. */
+  private void purge() {
+    int numPurged = 0;
+    WeakTarget<?> ref;
+    while ((ref = (WeakTarget<?>) collected.poll()) != null) {
+      if (ref.node.fn != null) {
+        ref.node.fn = null;
+        ++numPurged;
+      }
+    }
+    if (numPurged > 0) {
+      compactIfNeeded(numRemoved.addAndGet(numPurged));
+    }
+  }
+
+  /** 登録を解除した要素の数が {@link Callbacks#funcs} の半分を超えている場合, それらを取り除く. */
+  private void compactIfNeeded(int numRemoved) {
+    if (numRemoved * 2 > callbacks.get().funcs().length) {
+      this.numRemoved.set(0);
+      callbacks.updateAndGet(Callbacks::compacted);
+    }
+  }
+
+  /** {@link Callbacks#funcs} の要素. */
+  static final class Node<F> implements Registration {
+
+    /** 登録されたコールバック関数.  登録を解除した場合は null. */
+    volatile F fn;
+    /** 弱参照で保持したコールバック関数.  強参照で保持した場合は null. */
+    private WeakTarget<?> weakTarget;
+    private final CallbackRegistry<F> owner;
+
+    private Node(F fn, CallbackRegistry<F> owner) {
+      this.fn = fn;
+      this.owner = owner;
+    }
+
+    /** {@code fn} が弱参照で登録したコールバック関数を呼び出すものである場合は, その参照先を返す.  そうでない場合は {@code fn} を返す. */
+    Object listener(F fn) {
+      return (weakTarget == null) ? fn : weakTarget.get();
+    }
+
+    /** この要素の登録が解除されておらず, 登録したコールバック関数が {@code fn} と等しい場合 true を返す. */
+    private boolean matches(Object fn) {
+      if (this.fn == null) {
+        return false;
+      }
+      return fn.equals((weakTarget == null) ? this.fn : weakTarget.get());
+    }
+
+    @Override
+    public void close() {
+      if (fn != null) {
+        fn = null;
+        owner.onRemoved();
+      }
+    }
+  }
+  /** 弱参照で保持したコールバック関数の参照. */
+  private static final class WeakTarget<T> extends WeakReference<T> {
+
+    /** 参照先を格納した要素.  参照先が回収された後に, 追加したスレッドとは別のスレッドから読む. */
+    private volatile Node<?> node;
+
+    private WeakTarget(T referent, ReferenceQueue<Object> queue) {
+      super(referent, queue);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.concurrent.event;
+
+import java.util.Arrays;
+import net.seapanda.bunnyhop.utility.concurrent.event.CallbackRegistry.Node;
+
+/**
+ * レジストリに登録されたコールバック関数の一覧を格納する不変オブジェクト.
+ *
+ * <p>登録内容を変更する場合は, 変更後の内容を持つ新しいオブジェクトを作成して置き換える.
+ * そのため, 呼び出し側はロックを取得せずにこのオブジェクトから呼び出すべきコールバック関数を取得できる.
+ * ただし, 登録を解除したコールバック関数は {@link Node#fn} を null にするだけで, すぐには {@code funcs} から取り除かない.
+ *
+ * @param first 最初に呼び出すコールバック関数
+ * @param last 最後に呼び出すコールバック関数
+ * @param funcs {@code first} と {@code last} の間に呼び出すコールバック関数.  要素を変更してはならない.
+ * @param <F> コールバック関数の型
+ * @author K.Koike
+ */
+record Callbacks<F>(F first, F last, Node<F>[] funcs) {
+
+  /**
+   * {@code first} と {@code last} 以外のコールバック関数を持たないオブジェクトを作成する.
+   *
+   * @param noop 何もしないコールバック関数.  {@code first} と {@code last} に設定される.
+   */
+  @SuppressWarnings("unchecked")
+  static <F> Callbacks<F> empty(F noop) {
+    return new Callbacks<>(noop, noop, (Node<F>[]) new Node<?>[0]);
+  }
+
+  /** {@code first} を {@code fn} に置き換えたオブジェクトを返す. */
+  Callbacks<F> withFirst(F fn) {
+    return new Callbacks<>(fn, last, funcs);
+  }
+
+  /** {@code last} を {@code fn} に置き換えたオブジェクトを返す. */
+  Callbacks<F> withLast(F fn) {
+    return new Callbacks<>(first, fn, funcs);
+  }
+
+  /** {@code funcs} の末尾に {@code node} を追加したオブジェクトを返す. */
+  Callbacks<F> with(Node<F> node) {
+    Node<F>[] newFuncs = Arrays.copyOf(funcs, funcs.length + 1);
+    newFuncs[funcs.length] = node;
+    return new Callbacks<>(first, last, newFuncs);
+  }
+
+  /**
+   * {@code first} と {@code last} のうち {@code fn} と同一のものを {@code noop} に置き換えたオブジェクトを返す.
+   *
+   * @return {@code fn} を取り除いたオブジェクト.  取り除くものが無かった場合はこのオブジェクト.
+   */
+  Callbacks<F> withoutEnds(Object fn, F noop) {
+    if (fn != first && fn != last) {
+      return this;
+    }
+    return new Callbacks<>((fn == first) ? noop : first, (fn == last) ? noop : last, funcs);
+  }
+
+  /**
+   * 登録を解除したコールバック関数を {@code funcs} から取り除いたオブジェクトを返す.
+   *
+   * @return 登録を解除したコールバック関数を取り除いたオブジェクト.  取り除くものが無かった場合はこのオブジェクト.
+   */
+  Callbacks<F> compacted() {
+    Node<F>[] newFuncs = Arrays.copyOf(funcs, funcs.length);
+    int numFuncs = 0;
+    for (Node<F> node : funcs) {
+      if (node.fn != null) {
+        newFuncs[numFuncs++] = node;
+      }
+    }
+    if (numFuncs == funcs.length) {
+      return this;
+    }
+    return new Callbacks<>(first, last, Arrays.copyOf(newFuncs, numFuncs));
+  }
+}
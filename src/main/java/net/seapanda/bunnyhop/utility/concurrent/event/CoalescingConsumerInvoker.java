@@ -0,0 +1,265 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.concurrent.event;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link #invoke} に渡された値を溜めておき, まとめてコールバック関数に渡すクラス.
+ *
+ * <p>コールバック関数は溜まった値を格納した {@link List} を受け取る.
+ * キーを求める関数を指定した場合, キーが同じ値は最後に渡されたものだけが残る.
+ * 値を渡すタイミングは {@link CoalescingPolicy} で指定する.
+ * 時間で区切る場合, コールバック関数はオブジェクトごとに指定した {@link Executor} から呼ばれる.
+ * 指定しなかった場合は, 呼び出しごとに仮想スレッドを 1 つ作成して呼ぶ.
+ * このときコールバック関数が投げた例外は {@link #setErrorHandler} で設定した関数に渡される.
+ *
+ * <p>スレッドセーフであることを保証する.  コールバック関数には値を溜めた順にリストが渡される.
+ *
+ * @author K.Koike
+ */
+public class CoalescingConsumerInvoker<U> implements Closeable {
+
+  /**
+   * 時間で区切ってコールバック関数を呼び出すタイミングを計るスレッド.
+   * このスレッドはコールバック関数を呼び出す処理を {@link #flushExecutor} に渡すだけで, コールバック関数を呼ばない.
+   */
+  private static final ScheduledExecutorService flushScheduler =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "CoalescingConsumerInvoker-flusher");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final ConcurrentConsumerInvoker<List<U>> invoker = new ConcurrentConsumerInvoker<>();
+  private final CoalescingPolicy policy;
+  /** 値からキーを求める関数.  キーごとに最新の値を残さない場合は null. */
+  private final Function<? super U, ?> keyFn;
+  /** 時間で区切ってコールバック関数を呼び出す {@link Executor}. */
+  private final Executor flushExecutor;
+  /** 時間で区切ってコールバック関数を呼び出したときに発生した例外を処理する関数. */
+  private volatile BiConsumer<? super List<U>, ? super Throwable> errorHandler =
+      CoalescingConsumerInvoker::reportError;
+  /** コールバック関数を呼び出している間に, 他のスレッドが後の値を渡さないようにするためのロック. */
+  private final Object flushLock = new Object();
+  /** 溜めている値.  {@link #keyFn} を指定しなかった場合に使う. */
+  private List<U> pendingValues = new ArrayList<>();
+  /** キーと溜めている値のマップ.  {@link #keyFn} を指定した場合に使う. */
+  private final Map<Object, U> pendingByKey = new LinkedHashMap<>();
+  /** 前回値を渡してから {@link #invoke} が呼ばれた回数. */
+  private int numPending = 0;
+  /** 溜めている値を時間で区切って渡すタスク. */
+  private ScheduledFuture<?> flushTask;
+  private boolean isClosed = false;
+
+  /**
+   * 渡された値を全て溜めるオブジェクトを作成する.
+   *
+   * @param policy 溜めた値をコールバック関数に渡すタイミング
+   */
+  public CoalescingConsumerInvoker(CoalescingPolicy policy) {
+    this(AsyncDispatcher.VIRTUAL_THREADS, policy);
+  }
+
+  /**
+   * 渡された値を全て溜めるオブジェクトを作成する.
+   *
+   * @param executor 時間で区切ってコールバック関数を呼び出す {@link Executor}
+   * @param policy 溜めた値をコールバック関数に渡すタイミング
+   */
+  public CoalescingConsumerInvoker(Executor executor, CoalescingPolicy policy) {
+    this.policy = Objects.requireNonNull(policy);
+    this.keyFn = null;
+    this.flushExecutor = Objects.requireNonNull(executor);
+  }
+
+  /**
+   * キーごとに最後に渡された値だけを溜めるオブジェクトを作成する.
+   *
+   * <p>コールバック関数に渡すリストの値は, キーが最初に現れた順に並ぶ.
+   *
+   * @param policy 溜めた値をコールバック関数に渡すタイミング
+   * @param keyFn 値からキーを求める関数.  キーは {@link Object#equals} で比較する.
+   */
+  public CoalescingConsumerInvoker(CoalescingPolicy policy, Function<? super U, ?> keyFn) {
+    this(AsyncDispatcher.VIRTUAL_THREADS, policy, keyFn);
+  }
+
+  /**
+   * キーごとに最後に渡された値だけを溜めるオブジェクトを作成する.
+   *
+   * <p>コールバック関数に渡すリストの値は, キーが最初に現れた順に並ぶ.
+   *
+   * @param executor 時間で区切ってコールバック関数を呼び出す {@link Executor}
+   * @param policy 溜めた値をコールバック関数に渡すタイミング
+   * @param keyFn 値からキーを求める関数.  キーは {@link Object#equals} で比較する.
+   */
+  public CoalescingConsumerInvoker(
+      Executor executor, CoalescingPolicy policy, Function<? super U, ?> keyFn) {
+    this.policy = Objects.requireNonNull(policy);
+    this.keyFn = Objects.requireNonNull(keyFn);
+    this.flushExecutor = Objects.requireNonNull(executor);
+  }
+
+  /**
+   * {@code u} を溜める.
+   *
+   * <p>{@link CoalescingPolicy} で指定した数に達した場合, このメソッドを呼んだスレッドで溜めた値を渡す.
+   * {@link #close} を呼んだ後は何もしない.
+   *
+   * @param u コールバック関数に渡す値
+   */
+  public void invoke(U u) {
+    boolean needsFlush;
+    synchronized (this) {
+      if (isClosed) {
+        return;
+      }
+      if (keyFn == null) {
+        pendingValues.add(u);
+      } else {
+        pendingByKey.put(keyFn.apply(u), u);
+      }
+      ++numPending;
+      if (numPending == 1 && policy.windowMillis() > 0) {
+        flushTask = flushScheduler.schedule(
+            this::submitWindowFlush, policy.windowMillis(), TimeUnit.MILLISECONDS);
+      }
+      needsFlush = policy.maxCount() > 0 && numPending >= policy.maxCount();
+    }
+    if (needsFlush) {
+      flush();
+    }
+  }
+
+  /** 溜めている値をコールバック関数に渡す.  溜めている値が無い場合は何もしない. */
+  public void flush() {
+    synchronized (flushLock) {
+      List<U> values = takePendingValues();
+      if (!values.isEmpty()) {
+        invoker.invoke(values);
+      }
+    }
+  }
+
+  /** 時間で区切ってコールバック関数を呼び出す処理を {@link #flushExecutor} に渡す. */
+  private void submitWindowFlush() {
+    try {
+      flushExecutor.execute(this::flushWindow);
+    } catch (RuntimeException e) {
+      // 受け付けられなかった値はエラーとして報告する
+      synchronized (flushLock) {
+        List<U> values = takePendingValues();
+        if (!values.isEmpty()) {
+          errorHandler.accept(values, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * 溜めている値をコールバック関数に渡す.  コールバック関数が投げた例外は {@link #errorHandler} に渡す.
+   * {@link Error} はそのまま投げ, {@link #flushExecutor} のスレッドで処理させる.
+   */
+  private void flushWindow() {
+    synchronized (flushLock) {
+      List<U> values = takePendingValues();
+      if (values.isEmpty()) {
+        return;
+      }
+      try {
+        invoker.invoke(values);
+      } catch (RuntimeException e) {
+        errorHandler.accept(values, e);
+      }
+    }
+  }
+
+  /**
+   * 時間で区切ってコールバック関数を呼び出したときに発生した例外を処理する関数を設定する.
+   *
+   * <p>デフォルトでは, 呼び出したスレッドの {@link Thread.UncaughtExceptionHandler} に例外を渡す.
+   * {@link #invoke} や {@link #flush} を呼んだスレッドでコールバック関数が投げた例外は, その呼び出し元に投げられる.
+   *
+   * @param handler 渡せなかった値のリストと発生した例外を受け取る関数
+   */
+  public void setErrorHandler(BiConsumer<? super List<U>, ? super Throwable> handler) {
+    errorHandler = Objects.requireNonNull(handler);
+  }
+
+  /** {@code e} を現在のスレッドの {@link Thread.UncaughtExceptionHandler} に渡す. */
+  private static void reportError(List<?> values, Throwable e) {
+    Thread thread = Thread.currentThread();
+    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+  }
+
+  /** 溜めている値を取り出す. */
+  private synchronized List<U> takePendingValues() {
+    if (numPending == 0) {
+      return List.of();
+    }
+    if (flushTask != null) {
+      flushTask.cancel(false);
+      flushTask = null;
+    }
+    numPending = 0;
+    if (keyFn == null) {
+      List<U> values = pendingValues;
+      pendingValues = new ArrayList<>();
+      return Collections.unmodifiableList(values);
+    }
+    var values = new ArrayList<>(pendingByKey.values());
+    pendingByKey.clear();
+    return Collections.unmodifiableList(values);
+  }
+
+  /**
+   * このオブジェクトに対し, 溜めた値を受け取るコールバック関数を登録および削除するためのオブジェクトを返す.
+   *
+   * @return {@link Consumer} 型のコールバック関数の登録 / 削除用オブジェクト
+   */
+  public ConcurrentConsumerInvoker<List<U>>.Registry getRegistry() {
+    return invoker.getRegistry();
+  }
+
+  /** 溜めている値をコールバック関数に渡して, 以降の {@link #invoke} の呼び出しを無視する. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (isClosed) {
+        return;
+      }
+      isClosed = true;
+    }
+    flush();
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.concurrent.event;
+
+/**
+ * {@link CoalescingConsumerInvoker} が溜めた値をコールバック関数に渡すタイミングを表すクラス.
+ *
+ * <p>どのポリシーでも {@link CoalescingConsumerInvoker#flush} を呼ぶと, その時点で溜まっている値が渡される.
+ *
+ * @author K.Koike
+ */
+public final class CoalescingPolicy {
+
+  /** 値を渡す前に溜める値の最大数.  0 の場合は数で区切らない. */
+  private final int maxCount;
+  /** 最初の値を溜めてから渡すまでの時間 (ms).  0 の場合は時間で区切らない. */
+  private final long windowMillis;
+
+  private CoalescingPolicy(int maxCount, long windowMillis) {
+    this.maxCount = maxCount;
+    this.windowMillis = windowMillis;
+  }
+
+  /** {@link CoalescingConsumerInvoker#flush} を呼んだときだけ値を渡す {@link CoalescingPolicy} を返す. */
+  public static CoalescingPolicy manual() {
+    return new CoalescingPolicy(0, 0);
+  }
+
+  /**
+   * 値が {@code maxCount} 個溜まるたびに値を渡す {@link CoalescingPolicy} を返す.
+   *
+   * @param maxCount 値を渡す前に溜める値の最大数. (1 以上)
+   */
+  public static CoalescingPolicy everyCount(int maxCount) {
+    return manual().withMaxCount(maxCount);
+  }
+
+  /**
+   * 最初の値を溜めてから {@code windowMillis} ミリ秒後に値を渡す {@link CoalescingPolicy} を返す.
+   *
+   * @param windowMillis 最初の値を溜めてから渡すまでの時間 (ms). (1 以上)
+   */
+  public static CoalescingPolicy everyMillis(long windowMillis) {
+    return manual().withWindowMillis(windowMillis);
+  }
+
+  /**
+   * 値を渡す前に溜める値の最大数を変更した {@link CoalescingPolicy} を返す.
+   *
+   * <p>時間の条件と組み合わせた場合, どちらかの条件を満たしたときに値を渡す.
+   *
+   * @param maxCount 値を渡す前に溜める値の最大数. (1 以上)
+   */
+  public CoalescingPolicy withMaxCount(int maxCount) {
+    if (maxCount < 1) {
+      throw new IllegalArgumentException(
+          "'maxCount' must be greater than 0.\n%s was set.".formatted(maxCount));
+    }
+    return new CoalescingPolicy(maxCount, windowMillis);
+  }
+
+  /**
+   * 最初の値を溜めてから渡すまでの時間を変更した {@link CoalescingPolicy} を返す.
+   *
+   * <p>数の条件と組み合わせた場合, どちらかの条件を満たしたときに値を渡す.
+   *
+   * @param windowMillis 最初の値を溜めてから渡すまでの時間 (ms). (1 以上)
+   */
+  public CoalescingPolicy withWindowMillis(long windowMillis) {
+    if (windowMillis < 1) {
+      throw new IllegalArgumentException(
+          "'windowMillis' must be greater than 0.\n%s was set.".formatted(windowMillis));
+    }
+    return new CoalescingPolicy(maxCount, windowMillis);
+  }
+
+  /** 値を渡す前に溜める値の最大数を返す.  数で区切らない場合は 0. */
+  int maxCount() {
+    return maxCount;
+  }
+
+  /** 最初の値を溜めてから渡すまでの時間 (ms) を返す.  時間で区切らない場合は 0. */
+  long windowMillis() {
+    return windowMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "CoalescingPolicy(maxCount = %s, windowMillis = %s)".formatted(maxCount, windowMillis);
+  }
+}
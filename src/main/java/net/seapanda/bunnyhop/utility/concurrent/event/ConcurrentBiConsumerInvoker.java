@@ -16,17 +16,18 @@
 
 package net.seapanda.bunnyhop.utility.concurrent.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.SequencedCollection;
 import java.util.function.BiConsumer;
 import net.seapanda.bunnyhop.utility.event.BiConsumerInvoker;
+import net.seapanda.bunnyhop.utility.event.DispatchTrace;
+import net.seapanda.bunnyhop.utility.event.Registration;
 
 /**
  * {@link BiConsumer} 型のコールバック関数の登録, 削除および呼び出し機能を提供するクラス.
  * スレッドセーフであることを保証する.
  *
+ * <p>{@link #invoke} はロックを取得しないので, 複数のスレッドから同時に呼ばれた場合, コールバック関数も並行して呼ばれる.
+ *
  * @author K.Koike
  */
 public class ConcurrentBiConsumerInvoker<U, V> extends BiConsumerInvoker<U, V> {
@@ -34,10 +35,37 @@ public class ConcurrentBiConsumerInvoker<U, V> extends BiConsumerInvoker<U, V> {
   private final Registry registry = new Registry();
 
   @Override
-  public synchronized void invoke(U u, V v) {
-    registry.getFirst().accept(u, v);
-    registry.getFuncs().forEach(fn -> fn.accept(u, v));
-    registry.getLast().accept(u, v);
+  public void invoke(U u, V v) {
+    var trace = beginDispatch();
+    registry.callbacks.get().first().accept(u, v);
+    var funcs = registry.callbacks.get().funcs();
+    int numCalled = 0;
+    if (isParallel(funcs.length)) {
+      numCalled = invokeInParallel(funcs.length, i -> call(funcs[i], trace, u, v));
+    } else {
+      for (var node : funcs) {
+        if (call(node, trace, u, v)) {
+          ++numCalled;
+        }
+      }
+    }
+    registry.callbacks.get().last().accept(u, v);
+    trace.end(numCalled);
+  }
+
+  /** {@code node} のコールバック関数を呼び出す.  登録が解除されていた場合は呼び出さずに false を返す. */
+  private boolean call(
+      CallbackRegistry.Node<BiConsumer<? super U, ? super V>> node, DispatchTrace trace, U u, V v) {
+    var fn = node.fn;
+    if (fn == null) {
+      return false;
+    }
+    long begin = trace.beginListener();
+    fn.accept(u, v);
+    if (trace.timesListeners()) {
+      trace.endListener(begin, node.listener(fn));
+    }
+    return true;
   }
 
   @Override
@@ -45,56 +73,55 @@ public class ConcurrentBiConsumerInvoker<U, V> extends BiConsumerInvoker<U, V> {
     return registry;
   }
 
+  @Override
+  protected boolean supportsParallelDispatch() {
+    return true;
+  }
+
   /**
    * {@link BiConsumer} 型のコールバック関数を格納するレジストリ.
+   *
+   * <p>登録内容の変更はロックを取得せずに行う.
    */
   public class Registry extends BiConsumerInvoker<U, V>.Registry {
 
-    private BiConsumer<? super U, ? super V> first = (u, v) -> {};
-    private BiConsumer<? super U, ? super V> last = (u, v) -> {};
-    private final SequencedCollection<BiConsumer<? super U, ? super V>> funcs = new ArrayList<>();
+    /** 登録されたコールバック関数.  非同期に呼び出すクラスからも参照する. */
+    final CallbackRegistry<BiConsumer<? super U, ? super V>> callbacks =
+        new CallbackRegistry<>((u, v) -> {});
 
     @Override
-    public synchronized void add(BiConsumer<? super U, ? super V> fn) {
+    public Registration add(BiConsumer<? super U, ? super V> fn) {
       Objects.requireNonNull(fn);
-      funcs.addLast(fn);
+      return callbacks.add(fn);
     }
 
     @Override
-    public synchronized void remove(Object fn) {
+    public Registration addWeak(BiConsumer<? super U, ? super V> fn) {
       Objects.requireNonNull(fn);
-      if (fn == first) {
-        first = (u, v) -> {};
-      }
-      if (fn == last) {
-        last = (u, v) -> {};
-      }
-      funcs.removeAll(List.of(fn));
+      return callbacks.addWeak(fn, ref -> (u, v) -> {
+        var target = ref.get();
+        if (target != null) {
+          target.accept(u, v);
+        }
+      });
     }
 
     @Override
-    public synchronized void setFirst(BiConsumer<? super U, ? super V> fn) {
+    public void remove(Object fn) {
       Objects.requireNonNull(fn);
-      first = fn;
+      callbacks.remove(fn);
     }
 
     @Override
-    public synchronized void setLast(BiConsumer<? super U, ? super V> fn) {
+    public void setFirst(BiConsumer<? super U, ? super V> fn) {
       Objects.requireNonNull(fn);
-      last = fn;
+      callbacks.setFirst(fn);
     }
 
-    private synchronized BiConsumer<? super U, ? super V> getFirst() {
-      return first;
-    }
-
-    private synchronized BiConsumer<? super U, ? super V> getLast() {
-      return last;
-    }
-
-    private synchronized SequencedCollection<BiConsumer<? super U, ? super V>> getFuncs() {
-      return new ArrayList<>(funcs);
+    @Override
+    public void setLast(BiConsumer<? super U, ? super V> fn) {
+      Objects.requireNonNull(fn);
+      callbacks.setLast(fn);
     }
   }
-
 }
@@ -16,17 +16,18 @@
 
 package net.seapanda.bunnyhop.utility.concurrent.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.SequencedCollection;
 import java.util.function.Consumer;
 import net.seapanda.bunnyhop.utility.event.ConsumerInvoker;
+import net.seapanda.bunnyhop.utility.event.DispatchTrace;
+import net.seapanda.bunnyhop.utility.event.Registration;
 
 /**
  * {@link Consumer} 型のコールバック関数の登録, 削除および呼び出し機能を提供するクラス. <br>
  * スレッドセーフであることを保証する.
  *
+ * <p>{@link #invoke} はロックを取得しないので, 複数のスレッドから同時に呼ばれた場合, コールバック関数も並行して呼ばれる.
+ *
  * @author K.Koike
  */
 public class ConcurrentConsumerInvoker<U> extends ConsumerInvoker<U> {
@@ -34,11 +35,37 @@ public class ConcurrentConsumerInvoker<U> extends ConsumerInvoker<U> {
   private final Registry registry = new Registry();
 
   @Override
-  public synchronized void invoke(U u) {
+  public void invoke(U u) {
+    var trace = beginDispatch();
     // コールバック内で登録した後続のコールバックを呼び出せるようにする.
-    registry.getFirst().accept(u);
-    registry.getFuncs().forEach(fn -> fn.accept(u));
-    registry.getLast().accept(u);
+    registry.callbacks.get().first().accept(u);
+    var funcs = registry.callbacks.get().funcs();
+    int numCalled = 0;
+    if (isParallel(funcs.length)) {
+      numCalled = invokeInParallel(funcs.length, i -> call(funcs[i], trace, u));
+    } else {
+      for (var node : funcs) {
+        if (call(node, trace, u)) {
+          ++numCalled;
+        }
+      }
+    }
+    registry.callbacks.get().last().accept(u);
+    trace.end(numCalled);
+  }
+
+  /** {@code node} のコールバック関数を呼び出す.  登録が解除されていた場合は呼び出さずに false を返す. */
+  private boolean call(CallbackRegistry.Node<Consumer<? super U>> node, DispatchTrace trace, U u) {
+    var fn = node.fn;
+    if (fn == null) {
+      return false;
+    }
+    long begin = trace.beginListener();
+    fn.accept(u);
+    if (trace.timesListeners()) {
+      trace.endListener(begin, node.listener(fn));
+    }
+    return true;
   }
 
   @Override
@@ -46,55 +73,55 @@ public class ConcurrentConsumerInvoker<U> extends ConsumerInvoker<U> {
     return registry;
   }
 
+  @Override
+  protected boolean supportsParallelDispatch() {
+    return true;
+  }
+
   /**
    * {@link Consumer} 型のコールバック関数を格納するレジストリ.
+   *
+   * <p>登録内容の変更はロックを取得せずに行う.
    */
   public class Registry extends ConsumerInvoker<U>.Registry {
 
-    private Consumer<? super U> first = u -> {};
-    private Consumer<? super U> last = u -> {};
-    private final SequencedCollection<Consumer<? super U>> funcs = new ArrayList<>();
+    /** 登録されたコールバック関数.  非同期に呼び出すクラスからも参照する. */
+    final CallbackRegistry<Consumer<? super U>> callbacks =
+        new CallbackRegistry<>(u -> {});
 
     @Override
-    public synchronized void add(Consumer<? super U> fn) {
+    public Registration add(Consumer<? super U> fn) {
       Objects.requireNonNull(fn);
-      funcs.addLast(fn);
+      return callbacks.add(fn);
     }
 
     @Override
-    public synchronized void remove(Object fn) {
+    public Registration addWeak(Consumer<? super U> fn) {
       Objects.requireNonNull(fn);
-      if (fn == first) {
-        first = u -> {};
-      }
-      if (fn == last) {
-        last = u -> {};
-      }
-      funcs.removeAll(List.of(fn));
+      return callbacks.addWeak(fn, ref -> u -> {
+        var target = ref.get();
+        if (target != null) {
+          target.accept(u);
+        }
+      });
     }
 
     @Override
-    public synchronized void setFirst(Consumer<? super U> fn) {
+    public void remove(Object fn) {
       Objects.requireNonNull(fn);
-      first = fn;
+      callbacks.remove(fn);
     }
 
     @Override
-    public synchronized void setLast(Consumer<? super U> fn) {
+    public void setFirst(Consumer<? super U> fn) {
       Objects.requireNonNull(fn);
-      last = fn;
-    }
-
-    private synchronized Consumer<? super U> getFirst() {
-      return first;
+      callbacks.setFirst(fn);
     }
 
-    private synchronized Consumer<? super U> getLast() {
-      return last;
-    }
-
-    private synchronized SequencedCollection<Consumer<? super U>> getFuncs() {
-      return new ArrayList<>(funcs);
+    @Override
+    public void setLast(Consumer<? super U> fn) {
+      Objects.requireNonNull(fn);
+      callbacks.setLast(fn);
     }
   }
 }
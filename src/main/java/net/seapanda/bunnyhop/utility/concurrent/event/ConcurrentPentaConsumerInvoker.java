@@ -16,17 +16,18 @@
 
 package net.seapanda.bunnyhop.utility.concurrent.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.SequencedCollection;
+import net.seapanda.bunnyhop.utility.event.DispatchTrace;
 import net.seapanda.bunnyhop.utility.event.PentaConsumerInvoker;
+import net.seapanda.bunnyhop.utility.event.Registration;
 import net.seapanda.bunnyhop.utility.function.PentaConsumer;
 
 /**
  * {@link PentaConsumer} 型のコールバック関数の登録, 削除および呼び出し機能を提供するクラス. <br></>
  * スレッドセーフであることを保証する.
  *
+ * <p>{@link #invoke} はロックを取得しないので, 複数のスレッドから同時に呼ばれた場合, コールバック関数も並行して呼ばれる.
+ *
  * @author K.Koike
  */
 public class ConcurrentPentaConsumerInvoker<S, T, U, V, W>
@@ -35,10 +36,40 @@ public class ConcurrentPentaConsumerInvoker<S, T, U, V, W>
   private final Registry registry = new Registry();
 
   @Override
-  public synchronized void invoke(S s, T t, U u, V v, W w) {
-    registry.getFirst().accept(s, t, u, v, w);
-    registry.getFuncs().forEach(fn -> fn.accept(s, t, u, v, w));
-    registry.getLast().accept(s, t, u, v, w);
+  public void invoke(S s, T t, U u, V v, W w) {
+    var trace = beginDispatch();
+    registry.callbacks.get().first().accept(s, t, u, v, w);
+    var funcs = registry.callbacks.get().funcs();
+    int numCalled = 0;
+    if (isParallel(funcs.length)) {
+      numCalled = invokeInParallel(funcs.length, i -> call(funcs[i], trace, s, t, u, v, w));
+    } else {
+      for (var node : funcs) {
+        if (call(node, trace, s, t, u, v, w)) {
+          ++numCalled;
+        }
+      }
+    }
+    registry.callbacks.get().last().accept(s, t, u, v, w);
+    trace.end(numCalled);
+  }
+
+  /** {@code node} のコールバック関数を呼び出す.  登録が解除されていた場合は呼び出さずに false を返す. */
+  private boolean call(
+      CallbackRegistry.Node<
+          PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W>> node,
+      DispatchTrace trace,
+      S s, T t, U u, V v, W w) {
+    var fn = node.fn;
+    if (fn == null) {
+      return false;
+    }
+    long begin = trace.beginListener();
+    fn.accept(s, t, u, v, w);
+    if (trace.timesListeners()) {
+      trace.endListener(begin, node.listener(fn));
+    }
+    return true;
   }
 
   @Override
@@ -46,66 +77,58 @@ public class ConcurrentPentaConsumerInvoker<S, T, U, V, W>
     return registry;
   }
 
+  @Override
+  protected boolean supportsParallelDispatch() {
+    return true;
+  }
+
   /**
    * {@link PentaConsumer} 型のコールバック関数を格納するレジストリ.
+   *
+   * <p>登録内容の変更はロックを取得せずに行う.
    */
   public class Registry extends PentaConsumerInvoker<S, T, U, V, W>.Registry {
 
-    private PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> first =
-        (s, t, u, v, w) -> {};
-    private PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> last =
-        (s, t, u, v, w) -> {};
-    private final SequencedCollection<PentaConsumer<
-        ? super S, ? super T, ? super U, ? super V, ? super W>> funcs = new ArrayList<>();
-
+    /** 登録されたコールバック関数.  非同期に呼び出すクラスからも参照する. */
+    final CallbackRegistry<
+        PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W>> callbacks =
+            new CallbackRegistry<>((s, t, u, v, w) -> {});
 
     @Override
-    public synchronized void add(
+    public Registration add(
         PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      funcs.addLast(fn);
+      return callbacks.add(fn);
     }
 
     @Override
-    public synchronized void remove(Object fn) {
+    public Registration addWeak(
+        PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      if (fn == first) {
-        first = (s, t, u, v, w) -> {};
-      }
-      if (fn == last) {
-        last = (s, t, u, v, w) -> {};
-      }
-      funcs.removeAll(List.of(fn));
+      return callbacks.addWeak(fn, ref -> (s, t, u, v, w) -> {
+        var target = ref.get();
+        if (target != null) {
+          target.accept(s, t, u, v, w);
+        }
+      });
     }
 
     @Override
-    public synchronized void setFirst(
-        PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn) {
+    public void remove(Object fn) {
       Objects.requireNonNull(fn);
-      first = fn;
+      callbacks.remove(fn);
     }
 
     @Override
-    public synchronized void setLast(
-        PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn) {
+    public void setFirst(PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      last = fn;
+      callbacks.setFirst(fn);
     }
 
-    private synchronized
-        PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> getFirst() {
-      return first;
-    }
-
-    private synchronized
-        PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> getLast() {
-      return last;
-    }
-
-    private synchronized
-        SequencedCollection<PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W>>
-        getFuncs() {
-      return new ArrayList<>(funcs);
+    @Override
+    public void setLast(PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn) {
+      Objects.requireNonNull(fn);
+      callbacks.setLast(fn);
     }
   }
 }
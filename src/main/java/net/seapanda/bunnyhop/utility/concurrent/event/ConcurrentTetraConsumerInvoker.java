@@ -16,10 +16,9 @@
 
 package net.seapanda.bunnyhop.utility.concurrent.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.SequencedCollection;
+import net.seapanda.bunnyhop.utility.event.DispatchTrace;
+import net.seapanda.bunnyhop.utility.event.Registration;
 import net.seapanda.bunnyhop.utility.event.TetraConsumerInvoker;
 import net.seapanda.bunnyhop.utility.function.TetraConsumer;
 
@@ -27,6 +26,8 @@ import net.seapanda.bunnyhop.utility.function.TetraConsumer;
  * {@link TetraConsumer} 型のコールバック関数の登録, 削除および呼び出し機能を提供するクラス. <br>
  * スレッドセーフであることを保証する.
  *
+ * <p>{@link #invoke} はロックを取得しないので, 複数のスレッドから同時に呼ばれた場合, コールバック関数も並行して呼ばれる.
+ *
  * @author K.Koike
  */
 public class ConcurrentTetraConsumerInvoker<T, U, V, W> extends TetraConsumerInvoker<T, U, V, W> {
@@ -34,10 +35,40 @@ public class ConcurrentTetraConsumerInvoker<T, U, V, W> extends TetraConsumerInv
   private final Registry registry = new Registry();
 
   @Override
-  public synchronized void invoke(T t, U u, V v, W w) {
-    registry.getFirst().accept(t, u, v, w);
-    registry.getFuncs().forEach(fn -> fn.accept(t, u, v, w));
-    registry.getLast().accept(t, u, v, w);
+  public void invoke(T t, U u, V v, W w) {
+    var trace = beginDispatch();
+    registry.callbacks.get().first().accept(t, u, v, w);
+    var funcs = registry.callbacks.get().funcs();
+    int numCalled = 0;
+    if (isParallel(funcs.length)) {
+      numCalled = invokeInParallel(funcs.length, i -> call(funcs[i], trace, t, u, v, w));
+    } else {
+      for (var node : funcs) {
+        if (call(node, trace, t, u, v, w)) {
+          ++numCalled;
+        }
+      }
+    }
+    registry.callbacks.get().last().accept(t, u, v, w);
+    trace.end(numCalled);
+  }
+
+  /** {@code node} のコールバック関数を呼び出す.  登録が解除されていた場合は呼び出さずに false を返す. */
+  private boolean call(
+      CallbackRegistry.Node<
+          TetraConsumer<? super T, ? super U, ? super V, ? super W>> node,
+      DispatchTrace trace,
+      T t, U u, V v, W w) {
+    var fn = node.fn;
+    if (fn == null) {
+      return false;
+    }
+    long begin = trace.beginListener();
+    fn.accept(t, u, v, w);
+    if (trace.timesListeners()) {
+      trace.endListener(begin, node.listener(fn));
+    }
+    return true;
   }
 
   @Override
@@ -45,58 +76,55 @@ public class ConcurrentTetraConsumerInvoker<T, U, V, W> extends TetraConsumerInv
     return registry;
   }
 
+  @Override
+  protected boolean supportsParallelDispatch() {
+    return true;
+  }
+
   /**
    * {@link TetraConsumer} 型のコールバック関数を格納するレジストリ.
+   *
+   * <p>登録内容の変更はロックを取得せずに行う.
    */
   public class Registry extends TetraConsumerInvoker<T, U, V, W>.Registry {
 
-    private TetraConsumer<? super T, ? super U, ? super V, ? super W> first = (t, u, v, w) -> {};
-    private TetraConsumer<? super T, ? super U, ? super V, ? super W> last = (t, u, v, w) -> {};
-    private final SequencedCollection<TetraConsumer<? super T, ? super U, ? super V, ? super W>>
-        funcs = new ArrayList<>();
+    /** 登録されたコールバック関数.  非同期に呼び出すクラスからも参照する. */
+    final CallbackRegistry<TetraConsumer<? super T, ? super U, ? super V, ? super W>> callbacks =
+        new CallbackRegistry<>((t, u, v, w) -> {});
 
     @Override
-    public synchronized void add(TetraConsumer<? super T, ? super U, ? super V, ? super W> fn) {
+    public Registration add(TetraConsumer<? super T, ? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      funcs.addLast(fn);
+      return callbacks.add(fn);
     }
 
     @Override
-    public synchronized void remove(Object fn) {
+    public Registration addWeak(TetraConsumer<? super T, ? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      if (fn == first) {
-        first = (t, u, v, w) -> {};
-      }
-      if (fn == last) {
-        last = (t, u, v, w) -> {};
-      }
-      funcs.removeAll(List.of(fn));
+      return callbacks.addWeak(fn, ref -> (t, u, v, w) -> {
+        var target = ref.get();
+        if (target != null) {
+          target.accept(t, u, v, w);
+        }
+      });
     }
 
     @Override
-    public synchronized void setFirst(
-        TetraConsumer<? super T, ? super U, ? super V, ? super W> fn) {
+    public void remove(Object fn) {
       Objects.requireNonNull(fn);
-      first = fn;
+      callbacks.remove(fn);
     }
 
     @Override
-    public synchronized void setLast(TetraConsumer<? super T, ? super U, ? super V, ? super W> fn) {
+    public void setFirst(TetraConsumer<? super T, ? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      last = fn;
-    }
-
-    private synchronized TetraConsumer<? super T, ? super U, ? super V, ? super W> getFirst() {
-      return first;
+      callbacks.setFirst(fn);
     }
 
-    private synchronized TetraConsumer<? super T, ? super U, ? super V, ? super W> getLast() {
-      return last;
-    }
-
-    private synchronized
-        SequencedCollection<TetraConsumer<? super T, ? super U, ? super V, ? super W>> getFuncs() {
-      return new ArrayList<>(funcs);
+    @Override
+    public void setLast(TetraConsumer<? super T, ? super U, ? super V, ? super W> fn) {
+      Objects.requireNonNull(fn);
+      callbacks.setLast(fn);
     }
   }
 }
@@ -16,10 +16,9 @@
 
 package net.seapanda.bunnyhop.utility.concurrent.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.SequencedCollection;
+import net.seapanda.bunnyhop.utility.event.DispatchTrace;
+import net.seapanda.bunnyhop.utility.event.Registration;
 import net.seapanda.bunnyhop.utility.event.TriConsumerInvoker;
 import net.seapanda.bunnyhop.utility.function.TriConsumer;
 
@@ -33,10 +32,40 @@ public class ConcurrentTriConsumerInvoker<U, V, W> extends TriConsumerInvoker<U,
   private final Registry registry = new Registry();
 
   @Override
-  public synchronized void invoke(U u, V v, W w) {
-    registry.getFirst().accept(u, v, w);
-    registry.getFuncs().forEach(fn -> fn.accept(u, v, w));
-    registry.getLast().accept(u, v, w);
+  public void invoke(U u, V v, W w) {
+    var trace = beginDispatch();
+    registry.callbacks.get().first().accept(u, v, w);
+    var funcs = registry.callbacks.get().funcs();
+    int numCalled = 0;
+    if (isParallel(funcs.length)) {
+      numCalled = invokeInParallel(funcs.length, i -> call(funcs[i], trace, u, v, w));
+    } else {
+      for (var node : funcs) {
+        if (call(node, trace, u, v, w)) {
+          ++numCalled;
+        }
+      }
+    }
+    registry.callbacks.get().last().accept(u, v, w);
+    trace.end(numCalled);
+  }
+
+  /** {@code node} のコールバック関数を呼び出す.  登録が解除されていた場合は呼び出さずに false を返す. */
+  private boolean call(
+      CallbackRegistry.Node<
+          TriConsumer<? super U, ? super V, ? super W>> node,
+      DispatchTrace trace,
+      U u, V v, W w) {
+    var fn = node.fn;
+    if (fn == null) {
+      return false;
+    }
+    long begin = trace.beginListener();
+    fn.accept(u, v, w);
+    if (trace.timesListeners()) {
+      trace.endListener(begin, node.listener(fn));
+    }
+    return true;
   }
 
   @Override
@@ -44,57 +73,55 @@ public class ConcurrentTriConsumerInvoker<U, V, W> extends TriConsumerInvoker<U,
     return registry;
   }
 
+  @Override
+  protected boolean supportsParallelDispatch() {
+    return true;
+  }
+
   /**
    * {@link TriConsumer} 型のコールバック関数を格納するレジストリ.
+   *
+   * <p>登録内容の変更はロックを取得せずに行う.
    */
   public class Registry extends TriConsumerInvoker<U, V, W>.Registry {
 
-    private TriConsumer<? super U, ? super V, ? super W> first = (u, v, w) -> {};
-    private TriConsumer<? super U, ? super V, ? super W> last = (u, v, w) -> {};
-    private final SequencedCollection<TriConsumer<? super U, ? super V, ? super W>> funcs =
-        new ArrayList<>();
+    /** 登録されたコールバック関数.  非同期に呼び出すクラスからも参照する. */
+    final CallbackRegistry<TriConsumer<? super U, ? super V, ? super W>> callbacks =
+        new CallbackRegistry<>((u, v, w) -> {});
 
     @Override
-    public synchronized void add(TriConsumer<? super U, ? super V, ? super W> fn) {
+    public Registration add(TriConsumer<? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      funcs.addLast(fn);
+      return callbacks.add(fn);
     }
 
     @Override
-    public synchronized void remove(Object fn) {
+    public Registration addWeak(TriConsumer<? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      if (fn == first) {
-        first = (u, v, w) -> {};
-      }
-      if (fn == last) {
-        last = (u, v, w) -> {};
-      }
-      funcs.removeAll(List.of(fn));
+      return callbacks.addWeak(fn, ref -> (u, v, w) -> {
+        var target = ref.get();
+        if (target != null) {
+          target.accept(u, v, w);
+        }
+      });
     }
 
     @Override
-    public synchronized void setFirst(TriConsumer<? super U, ? super V, ? super W> fn) {
+    public void remove(Object fn) {
       Objects.requireNonNull(fn);
-      first = fn;
+      callbacks.remove(fn);
     }
 
     @Override
-    public synchronized void setLast(TriConsumer<? super U, ? super V, ? super W> fn) {
+    public void setFirst(TriConsumer<? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      last = fn;
-    }
-
-    private synchronized TriConsumer<? super U, ? super V, ? super W> getFirst() {
-      return first;
+      callbacks.setFirst(fn);
     }
 
-    private synchronized TriConsumer<? super U, ? super V, ? super W> getLast() {
-      return last;
-    }
-
-    private synchronized
-        SequencedCollection<TriConsumer<? super U, ? super V, ? super W>> getFuncs() {
-      return new ArrayList<>(funcs);
+    @Override
+    public void setLast(TriConsumer<? super U, ? super V, ? super W> fn) {
+      Objects.requireNonNull(fn);
+      callbacks.setLast(fn);
     }
   }
 }
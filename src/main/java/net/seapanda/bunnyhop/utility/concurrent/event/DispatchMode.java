@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.concurrent.event;
+
+/**
+ * 非同期にコールバック関数を呼び出すときの順序.
+ *
+ * @author K.Koike
+ */
+public enum DispatchMode {
+
+  /** {@code setFirst} で登録した関数, 登録された順の関数, {@code setLast} で登録した関数の順に 1 つずつ呼ぶ. */
+  ORDERED,
+  /**
+   * {@code setFirst} で登録した関数を呼んだ後, 残りの関数を全て並行して呼ぶ.
+   * それらが全て終わってから {@code setLast} で登録した関数を呼ぶ.
+   */
+  PARALLEL,
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.event;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+
+/**
+ * コールバック関数を呼び出すクラスに共通する, 並列呼び出しと統計情報の記録の設定を保持するクラス.
+ *
+ * <p>{@link ConsumerInvoker} などの引数の数ごとのクラスは, このクラスを継承する.
+ *
+ * @author K.Koike
+ */
+abstract class AbstractInvoker {
+
+  /** 並列に呼び出すコールバック関数の数の下限.  0 の場合は並列に呼び出さない. */
+  private volatile int parallelThreshold = 0;
+  /** 統計情報を記録するオブジェクト.  記録しない場合は null. */
+  private volatile DispatchRecorder recorder = null;
+
+  /**
+   * 登録されたコールバック関数の数が {@code threshold} 以上の場合に, それらを並列に呼び出すようにする.
+   *
+   * <p>並列に呼び出す場合, 登録されたコールバック関数は {@link ForkJoinPool#commonPool} で呼び出され,
+   * 呼び出し順は保証されない.  {@code setFirst} で登録した関数はそれらより前に, {@code setLast} で登録した関数は
+   * それらが全て終わった後に, {@code invoke} を呼んだスレッドで呼び出される.
+   * コールバック関数が例外を投げた場合, 残りのコールバック関数を全て呼び出した後で, 投げられた例外をまとめた
+   * {@link InvocationException} を投げる.  この場合 {@code setLast} で登録した関数は呼び出されない.
+   *
+   * <p>並列に呼び出している間は, コールバック関数の中からの登録や登録の解除も複数のスレッドから同時に行われる.
+   * そのため, 並列に呼び出せるのはレジストリがスレッドセーフなサブクラス
+   * ({@link #supportsParallelDispatch} が true を返すもの) だけである.
+   *
+   * @param threshold 並列に呼び出すコールバック関数の数の下限.  0 を指定すると並列に呼び出さない. (0 以上)
+   * @throws UnsupportedOperationException 並列に呼び出せないサブクラスで {@code threshold} に 1 以上を指定した場合
+   */
+  public void setParallelThreshold(int threshold) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException(
+          "'threshold' must be greater than or equal to 0.\n%s was set.".formatted(threshold));
+    }
+    if (threshold > 0 && !supportsParallelDispatch()) {
+      throw new UnsupportedOperationException(
+          "%s does not support parallel dispatch.".formatted(getClass().getSimpleName()));
+    }
+    parallelThreshold = threshold;
+  }
+
+  /**
+   * 登録されたコールバック関数を {@link #setParallelThreshold} の設定に従って並列に呼び出せる場合 true を返す.
+   *
+   * <p>デフォルトでは false を返す.  スレッドセーフなレジストリを持ち, {@code invoke} を呼んだスレッドで
+   * コールバック関数を呼び出すサブクラスは, このメソッドをオーバーライドして true を返す.
+   */
+  protected boolean supportsParallelDispatch() {
+    return false;
+  }
+
+  /** {@code numFuncs} 個のコールバック関数を並列に呼び出す場合 true を返す. */
+  protected boolean isParallel(int numFuncs) {
+    int threshold = parallelThreshold;
+    return threshold > 0 && numFuncs >= threshold;
+  }
+
+  /**
+   * 0 から {@code numFuncs - 1} までの各インデックスを {@code call} に並列に渡し, 全ての呼び出しが終わるまで待つ.
+   *
+   * @param numFuncs 呼び出すコールバック関数の数
+   * @param call インデックスに対応するコールバック関数を呼び出す関数.  呼び出した場合 true を返す.
+   * @return {@code call} が true を返した回数
+   * @throws InvocationException {@code call} が例外を投げた場合.  全ての呼び出しが終わった後で投げる.
+   */
+  protected static int invokeInParallel(int numFuncs, IntPredicate call) {
+    return ParallelDispatch.invoke(numFuncs, call);
+  }
+
+  /**
+   * コールバック関数の呼び出しに関する統計情報の記録を始める.
+   *
+   * <p>呼び出し回数は全て数え, 呼び出しにかかる時間は一定の割合で選んだ呼び出しだけ計測する.
+   * 既に記録している場合, それまでに記録した統計情報は破棄される.
+   *
+   * @throws UnsupportedOperationException 統計情報を記録できないサブクラスで呼んだ場合
+   */
+  public void enableMetrics() {
+    checkMetricsSupported();
+    recorder = new DispatchRecorder(0);
+  }
+
+  /**
+   * コールバック関数の呼び出しに関する統計情報の記録を始める.
+   *
+   * <p>{@link #enableMetrics()} で記録する情報に加えて, 呼び出しに {@code listenerBudget} より長い時間がかかった
+   * コールバック関数のクラスを記録する.
+   *
+   * @param listenerBudget コールバック関数 1 つの呼び出しにかける時間の上限 (0 より大きい値)
+   * @param unit {@code listenerBudget} の単位
+   * @throws UnsupportedOperationException 統計情報を記録できないサブクラスで呼んだ場合
+   */
+  public void enableMetrics(long listenerBudget, TimeUnit unit) {
+    if (listenerBudget <= 0) {
+      throw new IllegalArgumentException(
+          "'listenerBudget' must be greater than 0.\n%s was set.".formatted(listenerBudget));
+    }
+    checkMetricsSupported();
+    recorder = new DispatchRecorder(unit.toNanos(listenerBudget));
+  }
+
+  private void checkMetricsSupported() {
+    if (!supportsMetrics()) {
+      throw new UnsupportedOperationException(
+          "%s does not support metrics.".formatted(getClass().getSimpleName()));
+    }
+  }
+
+  /**
+   * {@link #enableMetrics} で統計情報を記録できる場合 true を返す.
+   *
+   * <p>デフォルトでは true を返す.  {@code invoke} を呼んだスレッドでコールバック関数を呼び出さず,
+   * {@link #beginDispatch} による計測を行わないサブクラスは, このメソッドをオーバーライドして false を返す.
+   */
+  protected boolean supportsMetrics() {
+    return true;
+  }
+
+  /** コールバック関数の呼び出しに関する統計情報の記録を止める.  記録した統計情報は破棄される. */
+  public void disableMetrics() {
+    recorder = null;
+  }
+
+  /**
+   * コールバック関数の呼び出しに関する統計情報のスナップショットを返す.
+   *
+   * <p>各値は個別に読み出すので, {@code invoke} と並行して呼んだ場合, 値の間で整合が取れていないことがある.
+   *
+   * @return 統計情報のスナップショット.  記録していない場合は null.
+   */
+  public InvokerMetrics getMetrics() {
+    DispatchRecorder current = recorder;
+    return (current == null) ? null : current.snapshot();
+  }
+
+  /**
+   * {@code invoke} の開始時に呼び, この呼び出しの計測を行うオブジェクトを返す.
+   *
+   * <p>統計情報を記録せず, JFR のイベントも無効な場合は, 何も計測しない共有のオブジェクトを返す.
+   *
+   * @return この呼び出しの計測を行うオブジェクト
+   */
+  protected DispatchTrace beginDispatch() {
+    return DispatchTrace.begin(getClass(), recorder);
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.event;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.function.Function;
+
+/**
+ * コールバック関数を登録された順に格納するリスト.  スレッドセーフではない.
+ *
+ * <p>登録を解除したコールバック関数は {@link Node#fn} を null にするだけで, 配列からはすぐに取り除かない.
+ * 解除済みの要素が半分を超えたときと, 配列を拡張するときにまとめて取り除く.
+ * そのため, {@link Registration#close} による登録の解除は償却定数時間で終わる.
+ *
+ * <p>呼び出し側は {@link #nodes} と {@link #size} を取得して, 先頭から {@code size} 個の要素のうち
+ * {@link Node#fn} が null でないものを呼び出す.
+ * 要素を取り除くときは新しい配列を作るので, 呼び出し中に登録内容が変わっても, 取得した配列の走査には影響しない.
+ *
+ * <p>弱参照で保持したコールバック関数が回収された場合, その要素は要素の追加時と配列の再作成時に
+ * {@link ReferenceQueue} からまとめて取り出して登録を解除する.  呼び出しのたびには確認しない.
+ *
+ * @param <F> コールバック関数の型
+ * @author K.Koike
+ */
+final class CallbackList<F> {
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private Node<F>[] nodes = newArray(0);
+  /** {@link #nodes} の使用中の要素数. */
+  private int size = 0;
+  /** {@link #nodes} の使用中の要素のうち, 登録を解除したものの数. */
+  private int numRemoved = 0;
+  /** 回収されたコールバック関数の弱参照が追加されるキュー. */
+  private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+  /**
+   * {@code fn} を末尾に追加する.
+   *
+   * @param fn 追加するコールバック関数
+   * @return {@code fn} の登録を解除するためのオブジェクト
+   */
+  Registration add(F fn) {
+    return addNode(new Node<>(fn, this));
+  }
+
+  /**
+   * {@code fn} を弱参照で保持して末尾に追加する.
+   *
+   * @param fn 追加するコールバック関数
+   * @param wrap {@code fn} の弱参照を受け取って, 参照先が回収されていなければ呼び出すコールバック関数を作成する関数.
+   *             作成したコールバック関数は {@code fn} を強参照してはならない.
+   * @return {@code fn} の登録を解除するためのオブジェクト
+   */
+  <T> Registration addWeak(T fn, Function<? super WeakReference<T>, ? extends F> wrap) {
+    var ref = new WeakTarget<>(fn, collected);
+    var node = new Node<F>(wrap.apply(ref), this);
+    // 参照先が回収されて purge で取り出されたときに要素を辿れるように, 追加する前に結び付ける
+    node.weakTarget = ref;
+    ref.node = node;
+    addNode(node);
+    Reference.reachabilityFence(fn);
+    return node;
+  }
+
+  private Node<F> addNode(Node<F> node) {
+    purge();
+    if (size == nodes.length || numRemoved * 2 > size) {
+      compact();
+    }
+    nodes[size++] = node;
+    return node;
+  }
+
+  /** {@code fn} と等しいコールバック関数の登録を全て解除する. */
+  void remove(Object fn) {
+    Node<F>[] current = nodes;
+    int currentSize = size;
+    for (int i = 0; i < currentSize; ++i) {
+      if (current[i].matches(fn)) {
+        current[i].close();
+      }
+    }
+  }
+
+  /** コールバック関数を格納した配列を返す.  返した配列を変更してはならない. */
+  Node<F>[] nodes() {
+    return nodes;
+  }
+
+  /** {@link #nodes} が返す配列の使用中の要素数を返す. */
+  int size() {
+    return size;
+  }
+
+  /** 登録が解除されたときに呼ばれる. */
+  private void onRemoved() {
+    ++numRemoved;
+    if (numRemoved * 2 > size) {
+      compact();
+    }
+  }
+
+  /** 参照先が回収された要素の登録を解除する. */
+  private void purge() {
+    WeakTarget<?> ref;
+    while ((ref = (WeakTarget<?>) collected.poll()) != null) {
+      if (ref.node.fn != null) {
+        ref.node.fn = null;
+        ++numRemoved;
+      }
+    }
+  }
+
+  /** 登録を解除した要素を取り除いた配列を新しく作る. */
+  private void compact() {
+    purge();
+    int numAlive = size - numRemoved;
+    Node<F>[] newNodes = newArray(Math.max(INITIAL_CAPACITY, numAlive * 2));
+    int newSize = 0;
+    for (int i = 0; i < size; ++i) {
+      if (nodes[i].fn != null) {
+        newNodes[newSize++] = nodes[i];
+      }
+    }
+    nodes = newNodes;
+    size = newSize;
+    numRemoved = 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <F> Node<F>[] newArray(int length) {
+    return (Node<F>[]) new Node<?>[length];
+  }
+
+  /** {@link CallbackList} の要素. */
+  static final class Node<F> implements Registration {
+
+    /** 登録されたコールバック関数.  登録を解除した場合は null. */
+    F fn;
+    /** 弱参照で保持したコールバック関数.  強参照で保持した場合は null. */
+    private WeakTarget<?> weakTarget;
+    private final CallbackList<F> owner;
+
+    private Node(F fn, CallbackList<F> owner) {
+      this.fn = fn;
+      this.owner = owner;
+    }
+
+    /** {@code fn} が弱参照で登録したコールバック関数を呼び出すものである場合は, その参照先を返す.  そうでない場合は {@code fn} を返す. */
+    Object listener(F fn) {
+      return (weakTarget == null) ? fn : weakTarget.get();
+    }
+
+    /** この要素の登録が解除されておらず, 登録したコールバック関数が {@code fn} と等しい場合 true を返す. */
+    private boolean matches(Object fn) {
+      if (this.fn == null) {
+        return false;
+      }
+      return fn.equals((weakTarget == null) ? this.fn : weakTarget.get());
+    }
+
+    @Override
+    public void close() {
+      if (fn != null) {
+        fn = null;
+        owner.onRemoved();
+      }
+    }
+  }
+  /** 弱参照で保持したコールバック関数の参照. */
+  private static final class WeakTarget<T> extends WeakReference<T> {
+
+    /** 参照先を格納した要素. */
+    private Node<?> node;
+
+    private WeakTarget(T referent, ReferenceQueue<Object> queue) {
+      super(referent, queue);
+    }
+  }
+}
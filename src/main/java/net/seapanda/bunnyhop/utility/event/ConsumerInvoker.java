@@ -24,7 +24,7 @@ import java.util.function.Consumer;
  *
  * @author K.Koike
  */
-public abstract class ConsumerInvoker<U> {
+public abstract class ConsumerInvoker<U> extends AbstractInvoker {
 
   /**
    * このオブジェクトに登録されたコールバック関数を呼び出す.
@@ -48,9 +48,24 @@ public abstract class ConsumerInvoker<U> {
     /**
      * {@code fn} をこのレジストリに登録する.
      *
+     * <p>戻り値の {@link Registration#close} を呼ぶと, {@link #remove} よりも低いコストで登録を解除できる.
+     *
+     * @param fn レジストリに登録するメソッド
+     * @return {@code fn} の登録を解除するためのオブジェクト
+     */
+    public abstract Registration add(Consumer<? super U> fn);
+
+    /**
+     * {@code fn} を弱参照で保持してこのレジストリに登録する.
+     *
+     * <p>{@code fn} がガベージコレクションにより回収されると, 登録は自動的に解除される.
+     * 回収されるまでの間は {@link #add} で登録したものと同様に呼び出される.
+     * ラムダ式やメソッド参照を登録する場合, 呼び出し側でそのオブジェクトへの参照を保持しておかないと, すぐに回収される.
+     *
      * @param fn レジストリに登録するメソッド
+     * @return {@code fn} の登録を解除するためのオブジェクト
      */
-    public abstract void add(Consumer<? super U> fn);
+    public abstract Registration addWeak(Consumer<? super U> fn);
 
     /**
      * {@code fn} をこのレジストリから削除する.
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.event;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import net.seapanda.bunnyhop.utility.metrics.LatencyHistogram;
+
+/**
+ * コールバック関数の呼び出しに関する統計情報を記録するクラス.
+ *
+ * <p>記録はカウンタの更新だけで行い, ロックを取らない.
+ * 呼び出し回数は全て数えるが, 時間は {@link #SAMPLING_INTERVAL} 回に 1 回の割合で選んだ呼び出しだけ計測する.
+ * コールバック関数 1 つごとの時間は, 上限が設定された場合だけ計測する.
+ * 1 回の呼び出しの計測は {@link DispatchTrace} が行い, 結果をこのクラスに記録する.
+ *
+ * @author K.Koike
+ */
+final class DispatchRecorder {
+
+  /** 時間を計測する呼び出しの割合の逆数. */
+  static final int SAMPLING_INTERVAL = 16;
+
+  /** コールバック関数 1 つの呼び出しにかける時間の上限 (ns).  0 の場合は計測しない. */
+  private final long listenerBudgetNanos;
+  private final LongAdder numInvocations = new LongAdder();
+  private final LongAdder numListenerCalls = new LongAdder();
+  private final AtomicInteger maxListeners = new AtomicInteger();
+  private final AtomicLongArray latencyCounts =
+      new AtomicLongArray(LatencyHistogram.NUM_BUCKETS);
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+  /** 呼び出しに時間がかかったコールバック関数のクラスとその情報のマップ. */
+  private final Map<Class<?>, SlowStats> slowListeners = new ConcurrentHashMap<>();
+
+  DispatchRecorder(long listenerBudgetNanos) {
+    this.listenerBudgetNanos = listenerBudgetNanos;
+  }
+
+  /**
+   * {@code invoke} の開始時に呼び, この呼び出しの時間を計測するかどうかを決める.
+   *
+   * @return この呼び出しの時間を計測する場合 true
+   */
+  boolean sample() {
+    return ThreadLocalRandom.current().nextInt(SAMPLING_INTERVAL) == 0;
+  }
+
+  /** コールバック関数 1 つごとの呼び出し時間を計測する場合 true を返す. */
+  boolean timesListeners() {
+    return listenerBudgetNanos > 0;
+  }
+
+  /**
+   * 時間を計測しなかった {@code invoke} の終了時に呼ぶ.
+   *
+   * @param numCalled 呼び出したコールバック関数の数
+   */
+  void recordDispatch(int numCalled) {
+    numInvocations.increment();
+    numListenerCalls.add(numCalled);
+    if (numCalled > maxListeners.get()) {
+      maxListeners.accumulateAndGet(numCalled, Math::max);
+    }
+  }
+
+  /**
+   * 時間を計測した {@code invoke} の終了時に呼ぶ.
+   *
+   * @param numCalled 呼び出したコールバック関数の数
+   * @param nanos 全てのコールバック関数を呼び出すのにかかった時間 (ns)
+   */
+  void recordDispatch(int numCalled, long nanos) {
+    recordDispatch(numCalled);
+    nanos = Math.max(nanos, 0);
+    latencyCounts.incrementAndGet(LatencyHistogram.bucketOf(nanos));
+    totalNanos.add(nanos);
+    if (nanos > maxNanos.get()) {
+      maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+  }
+
+  /**
+   * コールバック関数 1 つの呼び出し時間を記録する.
+   *
+   * @param listener 呼び出したコールバック関数.  弱参照で登録したものの場合は, その参照先.
+   * @param nanos {@code listener} の呼び出しにかかった時間 (ns)
+   */
+  void recordListener(Object listener, long nanos) {
+    if (nanos > listenerBudgetNanos && listener != null) {
+      slowListeners.computeIfAbsent(listener.getClass(), cls -> new SlowStats()).record(nanos);
+    }
+  }
+
+  /** 記録した統計情報のスナップショットを返す. */
+  InvokerMetrics snapshot() {
+    var counts = new long[LatencyHistogram.NUM_BUCKETS];
+    for (int i = 0; i < counts.length; ++i) {
+      counts[i] = latencyCounts.get(i);
+    }
+    var slow = slowListeners.entrySet().stream()
+        .map(entry -> new InvokerMetrics.SlowListener(
+            entry.getKey(), entry.getValue().count.sum(), entry.getValue().maxNanos.get()))
+        .sorted(Comparator.comparingLong(InvokerMetrics.SlowListener::count).reversed())
+        .toList();
+    return new InvokerMetrics(
+        numInvocations.sum(),
+        numListenerCalls.sum(),
+        maxListeners.get(),
+        LatencyHistogram.of(counts, totalNanos.sum(), maxNanos.get()),
+        listenerBudgetNanos,
+        slow);
+  }
+
+  /** 呼び出しに時間がかかったコールバック関数 1 種類の情報. */
+  private static final class SlowStats {
+
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private void record(long nanos) {
+      count.increment();
+      maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+  }
+}
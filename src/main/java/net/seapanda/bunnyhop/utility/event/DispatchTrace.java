@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.event;
+
+import net.seapanda.bunnyhop.utility.jfr.InvokeEvent;
+
+/**
+ * 1 回の {@code invoke} の計測を行うクラス.
+ *
+ * <p>JFR のイベント ({@link InvokeEvent}) の記録と, 統計情報の記録が有効な場合の計測をまとめて行う.
+ * {@code invoke} を実装するサブクラスは, 呼び出しの開始時に {@code beginDispatch} で取得し,
+ * 各コールバック関数の呼び出しを {@link #beginListener} と {@link #endListener} で挟み,
+ * 最後に {@link #end} を呼ぶ.  {@link #endListener} は {@link #timesListeners} が true の場合だけ呼ぶ.
+ * 統計情報を記録せず, JFR のイベントも無効な場合は, 何も計測しない共有のインスタンスを使うので,
+ * 呼び出しごとのオブジェクトの作成とコールバック関数ごとの計測は行われない.
+ *
+ * <p>{@link #beginListener} と {@link #endListener} は複数のスレッドから同時に呼んでもよい.
+ *
+ * @author K.Koike
+ */
+public final class DispatchTrace {
+
+  /** 何も計測しない呼び出しで共有するインスタンス. */
+  private static final DispatchTrace NONE = new DispatchTrace(null, null, null);
+
+  /** 記録する JFR のイベント.  何も計測しない場合は null. */
+  private final InvokeEvent event;
+  private final Class<?> invokerClass;
+  /** 統計情報を記録するオブジェクト.  記録しない場合は null. */
+  private final DispatchRecorder recorder;
+  /** この呼び出しの時間を計測する場合 true. */
+  private final boolean isSampled;
+  /** コールバック関数 1 つごとの呼び出し時間を計測する場合 true. */
+  private final boolean timesListeners;
+  /** 呼び出しを開始した時刻. ({@link System#nanoTime} の値) */
+  private final long begin;
+
+  private DispatchTrace(Class<?> invokerClass, DispatchRecorder recorder, InvokeEvent event) {
+    this.event = event;
+    this.invokerClass = invokerClass;
+    this.recorder = recorder;
+    isSampled = recorder != null && recorder.sample();
+    timesListeners = isSampled && recorder.timesListeners();
+    begin = isSampled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * 1 回の {@code invoke} の計測を始める.
+   *
+   * @param invokerClass コールバック関数を呼び出すオブジェクトのクラス
+   * @param recorder 統計情報を記録するオブジェクト.  記録しない場合は null.
+   * @return この呼び出しの計測を行うオブジェクト
+   */
+  static DispatchTrace begin(Class<?> invokerClass, DispatchRecorder recorder) {
+    var event = new InvokeEvent();
+    if (recorder == null && !event.isEnabled()) {
+      return NONE;
+    }
+    event.begin();
+    return new DispatchTrace(invokerClass, recorder, event);
+  }
+
+  /** コールバック関数 1 つごとの呼び出し時間を計測する場合 true を返す. */
+  public boolean timesListeners() {
+    return timesListeners;
+  }
+
+  /**
+   * コールバック関数 1 つを呼び出す前に呼ぶ.
+   *
+   * @return {@link #endListener} に渡す値
+   */
+  public long beginListener() {
+    return timesListeners ? System.nanoTime() : 0;
+  }
+
+  /**
+   * コールバック関数 1 つを呼び出した後に呼ぶ.  {@link #timesListeners} が true の場合だけ呼ぶ.
+   *
+   * @param listenerBegin {@link #beginListener} の戻り値
+   * @param listener 呼び出したコールバック関数.  弱参照で登録したものの場合は, その参照先.
+   */
+  public void endListener(long listenerBegin, Object listener) {
+    recorder.recordListener(listener, System.nanoTime() - listenerBegin);
+  }
+
+  /**
+   * 全てのコールバック関数を呼び出した後に呼ぶ.
+   *
+   * @param numCalled 呼び出したコールバック関数の数
+   */
+  public void end(int numCalled) {
+    if (isSampled) {
+      recorder.recordDispatch(numCalled, System.nanoTime() - begin);
+    } else if (recorder != null) {
+      recorder.recordDispatch(numCalled);
+    }
+    if (event != null) {
+      event.commit(invokerClass, numCalled);
+    }
+  }
+}
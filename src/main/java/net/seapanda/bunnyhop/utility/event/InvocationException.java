@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * コールバック関数の呼び出し中に発生した例外をまとめた例外.
+ *
+ * <p>最初に発生した例外を原因 ({@link #getCause}) とし, 残りの例外を抑制された例外 ({@link #getSuppressed}) とする.
+ *
+ * @author K.Koike
+ */
+public final class InvocationException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  /** コールバック関数の呼び出し中に発生した例外.  直列化しないので, 復元したオブジェクトでは null. */
+  private final transient List<Throwable> causes;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param causes コールバック関数の呼び出し中に発生した例外.  (1 つ以上)
+   */
+  public InvocationException(List<? extends Throwable> causes) {
+    super(
+        "%s callback function(s) threw an exception.".formatted(causes.size()),
+        causes.getFirst());
+    this.causes = List.copyOf(causes);
+    for (Throwable cause : this.causes.subList(1, this.causes.size())) {
+      addSuppressed(cause);
+    }
+  }
+
+  /**
+   * コールバック関数の呼び出し中に発生した例外を全て取得する.
+   *
+   * @return コールバック関数の呼び出し中に発生した例外のリスト
+   */
+  public List<Throwable> getCauses() {
+    if (causes != null) {
+      return causes;
+    }
+    var restored = new ArrayList<Throwable>();
+    restored.add(getCause());
+    restored.addAll(Arrays.asList(getSuppressed()));
+    return Collections.unmodifiableList(restored);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.event;
+
+import java.util.List;
+import net.seapanda.bunnyhop.utility.metrics.LatencyHistogram;
+
+/**
+ * コールバック関数の呼び出しに関する統計情報のスナップショット.
+ *
+ * @param numInvocations {@code invoke} が呼ばれた回数
+ * @param numListenerCalls 呼び出したコールバック関数の数の合計.  {@code setFirst}, {@code setLast} で登録したものは含まない.
+ * @param maxListeners 1 回の {@code invoke} で呼び出したコールバック関数の数の最大値
+ * @param dispatchLatency 1 回の {@code invoke} で全てのコールバック関数を呼び出すのにかかった時間の分布.
+ *                        一定の割合で選んだ呼び出しを計測した値.
+ * @param listenerBudgetNanos コールバック関数 1 つの呼び出しにかける時間の上限 (ns).  計測しない場合は 0.
+ * @param slowListeners 呼び出しに {@code listenerBudgetNanos} より長い時間がかかったコールバック関数の情報.
+ *                      {@code dispatchLatency} と同じ呼び出しを計測した値で, 上限を超えた回数の多い順に並ぶ.
+ * @author K.Koike
+ */
+public record InvokerMetrics(
+    long numInvocations,
+    long numListenerCalls,
+    int maxListeners,
+    LatencyHistogram dispatchLatency,
+    long listenerBudgetNanos,
+    List<SlowListener> slowListeners) {
+
+  /**
+   * 呼び出しに時間がかかったコールバック関数の情報.
+   *
+   * @param listenerClass コールバック関数のクラス
+   * @param count 計測した呼び出しのうち, かかった時間が上限を超えた回数
+   * @param maxNanos 呼び出しにかかった時間の最大値 (ns)
+   */
+  public record SlowListener(Class<?> listenerClass, long count, long maxNanos) {}
+}
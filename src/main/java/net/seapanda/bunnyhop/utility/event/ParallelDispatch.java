@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.event;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntPredicate;
+
+/**
+ * 登録されたコールバック関数を {@link ForkJoinPool#commonPool} で並列に呼び出すクラス.
+ *
+ * @author K.Koike
+ */
+final class ParallelDispatch {
+
+  /** 1 つのタスクで呼び出すコールバック関数の数を決めるために, 並列度に掛ける値. */
+  private static final int TASKS_PER_THREAD = 4;
+
+  private ParallelDispatch() {}
+
+  /**
+   * 0 から {@code size - 1} までの各インデックスを {@code call} に並列に渡し, 全ての呼び出しが終わるまで待つ.
+   *
+   * <p>{@code call} が例外を投げても, 残りのインデックスに対する呼び出しは続ける.
+   * {@code call} が {@link Error} を投げた場合は, 呼び出しを続けずにそれをそのまま投げる.
+   *
+   * @param size インデックスの数
+   * @param call インデックスに対応するコールバック関数を呼び出す関数.  呼び出した場合 true を返す.
+   * @return {@code call} が true を返した回数
+   * @throws InvocationException {@code call} が例外を投げた場合.  全ての呼び出しが終わった後で投げる.
+   */
+  static int invoke(int size, IntPredicate call) {
+    Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+    var fatal = new AtomicReference<Error>();
+    int leafSize = Math.max(1, size / (ForkJoinPool.getCommonPoolParallelism() * TASKS_PER_THREAD));
+    int numCalled;
+    try {
+      numCalled = ForkJoinPool.commonPool().invoke(
+          new Task(0, size, leafSize, call, errors, fatal));
+    } catch (Error e) {
+      // 別のスレッドで投げられた例外は ForkJoinPool が作り直すので, 元の例外を投げる
+      Error original = fatal.get();
+      throw (original != null) ? original : e;
+    }
+    if (!errors.isEmpty()) {
+      throw new InvocationException(List.copyOf(errors));
+    }
+    return numCalled;
+  }
+
+  /**
+   * {@code begin} から {@code end} の手前までのインデックスを {@link #call} に渡すタスク.
+   *
+   * <p>{@link RecursiveTask} は {@link java.io.Serializable} を実装しているが, このタスクは直列化しない.
+   */
+  @SuppressWarnings("serial")
+  private static final class Task extends RecursiveTask<Integer> {
+
+    private final int begin;
+    private final int end;
+    private final int leafSize;
+    private final IntPredicate call;
+    private final Queue<Throwable> errors;
+    /** {@link #call} が最初に投げた {@link Error}. */
+    private final AtomicReference<Error> fatal;
+
+    Task(
+        int begin,
+        int end,
+        int leafSize,
+        IntPredicate call,
+        Queue<Throwable> errors,
+        AtomicReference<Error> fatal) {
+      this.begin = begin;
+      this.end = end;
+      this.leafSize = leafSize;
+      this.call = call;
+      this.errors = errors;
+      this.fatal = fatal;
+    }
+
+    @Override
+    protected Integer compute() {
+      if (end - begin <= leafSize) {
+        int numCalled = 0;
+        for (int i = begin; i < end; ++i) {
+          try {
+            if (call.test(i)) {
+              ++numCalled;
+            }
+          } catch (RuntimeException e) {
+            errors.add(e);
+          } catch (Error e) {
+            fatal.compareAndSet(null, e);
+            throw e;
+          }
+        }
+        return numCalled;
+      }
+      int mid = (begin + end) >>> 1;
+      var left = new Task(begin, mid, leafSize, call, errors, fatal);
+      left.fork();
+      int numCalled = new Task(mid, end, leafSize, call, errors, fatal).compute();
+      return numCalled + left.join();
+    }
+  }
+}
@@ -25,7 +25,7 @@ import net.seapanda.bunnyhop.utility.function.PentaConsumer;
  *
  * @author K.Koike
  */
-public abstract class PentaConsumerInvoker<S, T, U, V, W> {
+public abstract class PentaConsumerInvoker<S, T, U, V, W> extends AbstractInvoker {
 
   /**
    * このオブジェクトに登録されたコールバック関数を呼び出す.
@@ -60,9 +60,25 @@ public abstract class PentaConsumerInvoker<S, T, U, V, W> {
     /**
      * {@code fn} をこのレジストリに登録する.
      *
+     * <p>戻り値の {@link Registration#close} を呼ぶと, {@link #remove} よりも低いコストで登録を解除できる.
+     *
+     * @param fn レジストリに登録するメソッド
+     * @return {@code fn} の登録を解除するためのオブジェクト
+     */
+    public abstract Registration add(
+        PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn);
+
+    /**
+     * {@code fn} を弱参照で保持してこのレジストリに登録する.
+     *
+     * <p>{@code fn} がガベージコレクションにより回収されると, 登録は自動的に解除される.
+     * 回収されるまでの間は {@link #add} で登録したものと同様に呼び出される.
+     * ラムダ式やメソッド参照を登録する場合, 呼び出し側でそのオブジェクトへの参照を保持しておかないと, すぐに回収される.
+     *
      * @param fn レジストリに登録するメソッド
+     * @return {@code fn} の登録を解除するためのオブジェクト
      */
-    public abstract void add(
+    public abstract Registration addWeak(
         PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn);
 
     /**
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.event;
+
+/**
+ * レジストリへのコールバック関数の登録を表すインタフェース.
+ *
+ * @author K.Koike
+ */
+public interface Registration extends AutoCloseable {
+
+  /**
+   * コールバック関数の登録を解除する.
+   *
+   * <p>登録されているコールバック関数の数によらず一定の時間で完了する.
+   * 既に登録が解除されている場合は何もしない.
+   */
+  @Override
+  void close();
+}
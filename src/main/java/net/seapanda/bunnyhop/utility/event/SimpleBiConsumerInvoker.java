@@ -16,10 +16,7 @@
 
 package net.seapanda.bunnyhop.utility.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.SequencedCollection;
 import java.util.function.BiConsumer;
 
 /**
@@ -33,9 +30,24 @@ public class SimpleBiConsumerInvoker<U, V> extends BiConsumerInvoker<U, V> {
 
   @Override
   public void invoke(U u, V v) {
+    var trace = beginDispatch();
     registry.first.accept(u, v);
-    List.copyOf(registry.funcs).forEach(fn -> fn.accept(u, v));
+    var nodes = registry.funcs.nodes();
+    int size = registry.funcs.size();
+    int numCalled = 0;
+    for (int i = 0; i < size; ++i) {
+      var fn = nodes[i].fn;
+      if (fn != null) {
+        long begin = trace.beginListener();
+        fn.accept(u, v);
+        if (trace.timesListeners()) {
+          trace.endListener(begin, nodes[i].listener(fn));
+        }
+        ++numCalled;
+      }
+    }
     registry.last.accept(u, v);
+    trace.end(numCalled);
   }
 
   @Override
@@ -50,12 +62,23 @@ public class SimpleBiConsumerInvoker<U, V> extends BiConsumerInvoker<U, V> {
 
     private BiConsumer<? super U, ? super V> first = (u, v) -> {};
     private BiConsumer<? super U, ? super V> last = (u, v) -> {};
-    private final SequencedCollection<BiConsumer<? super U, ? super V>> funcs = new ArrayList<>();
+    private final CallbackList<BiConsumer<? super U, ? super V>> funcs = new CallbackList<>();
+
+    @Override
+    public Registration add(BiConsumer<? super U, ? super V> fn) {
+      Objects.requireNonNull(fn);
+      return funcs.add(fn);
+    }
 
     @Override
-    public void add(BiConsumer<? super U, ? super V> fn) {
+    public Registration addWeak(BiConsumer<? super U, ? super V> fn) {
       Objects.requireNonNull(fn);
-      funcs.addLast(fn);
+      return funcs.addWeak(fn, ref -> (u, v) -> {
+        var target = ref.get();
+        if (target != null) {
+          target.accept(u, v);
+        }
+      });
     }
 
     @Override
@@ -67,7 +90,7 @@ public class SimpleBiConsumerInvoker<U, V> extends BiConsumerInvoker<U, V> {
       if (fn == last) {
         last = (u, v) -> {};
       }
-      funcs.removeAll(List.of(fn));
+      funcs.remove(fn);
     }
 
     @Override
@@ -16,10 +16,7 @@
 
 package net.seapanda.bunnyhop.utility.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.SequencedCollection;
 import java.util.function.Consumer;
 
 /**
@@ -33,10 +30,25 @@ public class SimpleConsumerInvoker<U> extends ConsumerInvoker<U> {
 
   @Override
   public void invoke(U u) {
+    var trace = beginDispatch();
     // コールバック内で登録した後続のコールバックを呼び出せるようにする.
     registry.first.accept(u);
-    List.copyOf(registry.funcs).forEach(fn -> fn.accept(u));
+    var nodes = registry.funcs.nodes();
+    int size = registry.funcs.size();
+    int numCalled = 0;
+    for (int i = 0; i < size; ++i) {
+      var fn = nodes[i].fn;
+      if (fn != null) {
+        long begin = trace.beginListener();
+        fn.accept(u);
+        if (trace.timesListeners()) {
+          trace.endListener(begin, nodes[i].listener(fn));
+        }
+        ++numCalled;
+      }
+    }
     registry.last.accept(u);
+    trace.end(numCalled);
   }
 
   @Override
@@ -51,12 +63,23 @@ public class SimpleConsumerInvoker<U> extends ConsumerInvoker<U> {
 
     private Consumer<? super U> first = u -> {};
     private Consumer<? super U> last = u -> {};
-    private final SequencedCollection<Consumer<? super U>> funcs = new ArrayList<>();
+    private final CallbackList<Consumer<? super U>> funcs = new CallbackList<>();
+
+    @Override
+    public Registration add(Consumer<? super U> fn) {
+      Objects.requireNonNull(fn);
+      return funcs.add(fn);
+    }
 
     @Override
-    public void add(Consumer<? super U> fn) {
+    public Registration addWeak(Consumer<? super U> fn) {
       Objects.requireNonNull(fn);
-      funcs.addLast(fn);
+      return funcs.addWeak(fn, ref -> u -> {
+        var target = ref.get();
+        if (target != null) {
+          target.accept(u);
+        }
+      });
     }
 
     @Override
@@ -68,7 +91,7 @@ public class SimpleConsumerInvoker<U> extends ConsumerInvoker<U> {
       if (fn == last) {
         last = u -> {};
       }
-      funcs.removeAll(List.of(fn));
+      funcs.remove(fn);
     }
 
     @Override
@@ -16,10 +16,7 @@
 
 package net.seapanda.bunnyhop.utility.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.SequencedCollection;
 import net.seapanda.bunnyhop.utility.function.PentaConsumer;
 
 /**
@@ -33,9 +30,24 @@ public class SimplePentaConsumerInvoker<S, T, U, V, W> extends PentaConsumerInvo
 
   @Override
   public void invoke(S s, T t, U u, V v, W w) {
+    var trace = beginDispatch();
     registry.first.accept(s, t, u, v, w);
-    List.copyOf(registry.funcs).forEach(fn -> fn.accept(s, t, u, v, w));
+    var nodes = registry.funcs.nodes();
+    int size = registry.funcs.size();
+    int numCalled = 0;
+    for (int i = 0; i < size; ++i) {
+      var fn = nodes[i].fn;
+      if (fn != null) {
+        long begin = trace.beginListener();
+        fn.accept(s, t, u, v, w);
+        if (trace.timesListeners()) {
+          trace.endListener(begin, nodes[i].listener(fn));
+        }
+        ++numCalled;
+      }
+    }
     registry.last.accept(s, t, u, v, w);
+    trace.end(numCalled);
   }
 
   @Override
@@ -52,14 +64,27 @@ public class SimplePentaConsumerInvoker<S, T, U, V, W> extends PentaConsumerInvo
         (s, t, u, v, w) -> {};
     private PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> last =
         (s, t, u, v, w) -> {};
-    private final SequencedCollection<PentaConsumer<
-        ? super S, ? super T, ? super U, ? super V, ? super W>> funcs = new ArrayList<>();
+    private final CallbackList<
+        PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W>> funcs =
+            new CallbackList<>();
 
+    @Override
+    public Registration add(
+        PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn) {
+      Objects.requireNonNull(fn);
+      return funcs.add(fn);
+    }
 
     @Override
-    public void add(PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn) {
+    public Registration addWeak(
+        PentaConsumer<? super S, ? super T, ? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      funcs.addLast(fn);
+      return funcs.addWeak(fn, ref -> (s, t, u, v, w) -> {
+        var target = ref.get();
+        if (target != null) {
+          target.accept(s, t, u, v, w);
+        }
+      });
     }
 
     @Override
@@ -71,7 +96,7 @@ public class SimplePentaConsumerInvoker<S, T, U, V, W> extends PentaConsumerInvo
       if (fn == last) {
         last = (s, t, u, v, w) -> {};
       }
-      funcs.removeAll(List.of(fn));
+      funcs.remove(fn);
     }
 
     @Override
@@ -16,10 +16,7 @@
 
 package net.seapanda.bunnyhop.utility.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.SequencedCollection;
 import net.seapanda.bunnyhop.utility.function.TetraConsumer;
 
 /**
@@ -33,9 +30,24 @@ public class SimpleTetraConsumerInvoker<T, U, V, W> extends TetraConsumerInvoker
 
   @Override
   public void invoke(T t, U u, V v, W w) {
+    var trace = beginDispatch();
     registry.first.accept(t, u, v, w);
-    List.copyOf(registry.funcs).forEach(fn -> fn.accept(t, u, v, w));
+    var nodes = registry.funcs.nodes();
+    int size = registry.funcs.size();
+    int numCalled = 0;
+    for (int i = 0; i < size; ++i) {
+      var fn = nodes[i].fn;
+      if (fn != null) {
+        long begin = trace.beginListener();
+        fn.accept(t, u, v, w);
+        if (trace.timesListeners()) {
+          trace.endListener(begin, nodes[i].listener(fn));
+        }
+        ++numCalled;
+      }
+    }
     registry.last.accept(t, u, v, w);
+    trace.end(numCalled);
   }
 
   @Override
@@ -50,13 +62,24 @@ public class SimpleTetraConsumerInvoker<T, U, V, W> extends TetraConsumerInvoker
 
     private TetraConsumer<? super T, ? super U, ? super V, ? super W> first = (t, u, v, w) -> {};
     private TetraConsumer<? super T, ? super U, ? super V, ? super W> last = (t, u, v, w) -> {};
-    private final SequencedCollection<TetraConsumer<? super T, ? super U, ? super V, ? super W>>
-        funcs = new ArrayList<>();
+    private final CallbackList<TetraConsumer<? super T, ? super U, ? super V, ? super W>> funcs =
+        new CallbackList<>();
+
+    @Override
+    public Registration add(TetraConsumer<? super T, ? super U, ? super V, ? super W> fn) {
+      Objects.requireNonNull(fn);
+      return funcs.add(fn);
+    }
 
     @Override
-    public void add(TetraConsumer<? super T, ? super U, ? super V, ? super W> fn) {
+    public Registration addWeak(TetraConsumer<? super T, ? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      funcs.addLast(fn);
+      return funcs.addWeak(fn, ref -> (t, u, v, w) -> {
+        var target = ref.get();
+        if (target != null) {
+          target.accept(t, u, v, w);
+        }
+      });
     }
 
     @Override
@@ -68,7 +91,7 @@ public class SimpleTetraConsumerInvoker<T, U, V, W> extends TetraConsumerInvoker
       if (fn == last) {
         last = (t, u, v, w) -> {};
       }
-      funcs.removeAll(List.of(fn));
+      funcs.remove(fn);
     }
 
     @Override
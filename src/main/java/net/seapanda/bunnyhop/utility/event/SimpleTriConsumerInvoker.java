@@ -16,10 +16,7 @@
 
 package net.seapanda.bunnyhop.utility.event;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
-import java.util.SequencedCollection;
 import net.seapanda.bunnyhop.utility.function.TriConsumer;
 
 /**
@@ -33,9 +30,24 @@ public class SimpleTriConsumerInvoker<U, V, W> extends TriConsumerInvoker<U, V,
 
   @Override
   public void invoke(U u, V v, W w) {
+    var trace = beginDispatch();
     registry.first.accept(u, v, w);
-    List.copyOf(registry.funcs).forEach(fn -> fn.accept(u, v, w));
+    var nodes = registry.funcs.nodes();
+    int size = registry.funcs.size();
+    int numCalled = 0;
+    for (int i = 0; i < size; ++i) {
+      var fn = nodes[i].fn;
+      if (fn != null) {
+        long begin = trace.beginListener();
+        fn.accept(u, v, w);
+        if (trace.timesListeners()) {
+          trace.endListener(begin, nodes[i].listener(fn));
+        }
+        ++numCalled;
+      }
+    }
     registry.last.accept(u, v, w);
+    trace.end(numCalled);
   }
 
   @Override
@@ -50,13 +62,24 @@ public class SimpleTriConsumerInvoker<U, V, W> extends TriConsumerInvoker<U, V,
 
     private TriConsumer<? super U, ? super V, ? super W> first = (u, v, w) -> {};
     private TriConsumer<? super U, ? super V, ? super W> last = (u, v, w) -> {};
-    private final SequencedCollection<TriConsumer<? super U, ? super V, ? super W>> funcs =
-        new ArrayList<>();
+    private final CallbackList<TriConsumer<? super U, ? super V, ? super W>> funcs =
+        new CallbackList<>();
+
+    @Override
+    public Registration add(TriConsumer<? super U, ? super V, ? super W> fn) {
+      Objects.requireNonNull(fn);
+      return funcs.add(fn);
+    }
 
     @Override
-    public void add(TriConsumer<? super U, ? super V, ? super W> fn) {
+    public Registration addWeak(TriConsumer<? super U, ? super V, ? super W> fn) {
       Objects.requireNonNull(fn);
-      funcs.addLast(fn);
+      return funcs.addWeak(fn, ref -> (u, v, w) -> {
+        var target = ref.get();
+        if (target != null) {
+          target.accept(u, v, w);
+        }
+      });
     }
 
     @Override
@@ -68,7 +91,7 @@ public class SimpleTriConsumerInvoker<U, V, W> extends TriConsumerInvoker<U, V,
       if (fn == last) {
         last = (u, v, w) -> {};
       }
-      funcs.removeAll(List.of(fn));
+      funcs.remove(fn);
     }
 
     @Override
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * コールバック関数の呼び出しを表す JFR イベント.
+ *
+ * <p>デフォルトでは無効になっている.
+ * 有効にするには JFR の設定で {@code net.seapanda.bunnyhop.Invoke#enabled=true} を指定する.
+ * 短時間で終わる呼び出しを除外するには {@code threshold} を指定する.
+ *
+ * @author K.Koike
+ */
+@Name("net.seapanda.bunnyhop.Invoke")
+@Label("Callback Invocation")
+@Description("Calling the callback functions registered to an invoker")
+@Category({"BhUtility", "Event"})
+@Enabled(false)
+@StackTrace(false)
+public final class InvokeEvent extends Event {
+
+  @Label("Invoker Class")
+  public Class<?> invokerClass;
+
+  @Label("Listener Count")
+  @Description("The number of callback functions called, excluding the first and last ones")
+  public int numListeners;
+
+  /**
+   * このイベントが記録の対象である場合, 値を設定して記録する.
+   *
+   * @param invokerClass コールバック関数を呼び出したオブジェクトのクラス
+   * @param numListeners 呼び出したコールバック関数の数
+   */
+  public void commit(Class<?> invokerClass, int numListeners) {
+    if (shouldCommit()) {
+      this.invokerClass = invokerClass;
+      this.numListeners = numListeners;
+      commit();
+    }
+  }
+}
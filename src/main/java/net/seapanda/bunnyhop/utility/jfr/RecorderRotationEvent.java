@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * ログファイルのローテーションを表す JFR イベント.
+ *
+ * <p>デフォルトでは無効になっている.
+ * 有効にするには JFR の設定で {@code net.seapanda.bunnyhop.RecorderRotation#enabled=true} を指定する.
+ *
+ * @author K.Koike
+ */
+@Name("net.seapanda.bunnyhop.RecorderRotation")
+@Label("Log Rotation")
+@Description("Closing the active log file and opening the next one")
+@Category({"BhUtility", "Logging"})
+@Enabled(false)
+public final class RecorderRotationEvent extends Event {
+
+  @Label("Retired File")
+  public String retiredFile;
+
+  @Label("New Generation")
+  public long generation;
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * ログファイルへの書き込みを表す JFR イベント.
+ *
+ * <p>デフォルトでは無効になっている.
+ * 有効にするには JFR の設定で {@code net.seapanda.bunnyhop.RecorderWrite#enabled=true} を指定する.
+ *
+ * @author K.Koike
+ */
+@Name("net.seapanda.bunnyhop.RecorderWrite")
+@Label("Log Write")
+@Description("Writing a record to a log file")
+@Category({"BhUtility", "Logging"})
+@Enabled(false)
+@StackTrace(false)
+public final class RecorderWriteEvent extends Event {
+
+  @Label("Log File")
+  public String file;
+
+  @Label("Bytes Written")
+  @DataAmount
+  public long bytes;
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * テキストデータベースの構築を表す JFR イベント.
+ *
+ * <p>デフォルトでは無効になっている.
+ * 有効にするには JFR の設定で {@code net.seapanda.bunnyhop.TextDatabaseLoad#enabled=true} を指定する.
+ *
+ * @author K.Koike
+ */
+@Name("net.seapanda.bunnyhop.TextDatabaseLoad")
+@Label("Text Database Load")
+@Description("Building a text database from JSON")
+@Category({"BhUtility", "Text Database"})
+@Enabled(false)
+public final class TextDatabaseLoadEvent extends Event {
+
+  @Label("Source")
+  @Description("The path of the JSON file, or empty if the JSON was given as a string")
+  public String source;
+
+  @Label("Text Count")
+  public int numTexts;
+
+  /**
+   * このイベントが記録の対象である場合, 値を設定して記録する.
+   *
+   * @param source テキストデータを読み込んだファイル.  文字列から読み込んだ場合は null.
+   * @param numTexts 読み込んだテキストの数
+   */
+  public void commit(Object source, int numTexts) {
+    if (shouldCommit()) {
+      this.source = (source == null) ? "" : source.toString();
+      this.numTexts = numTexts;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * タイマーのカウントが 0 になるまでの待機を表す JFR イベント.
+ *
+ * <p>デフォルトでは無効になっている.
+ * 有効にするには JFR の設定で {@code net.seapanda.bunnyhop.TimerAwait#enabled=true} を指定する.
+ *
+ * @author K.Koike
+ */
+@Name("net.seapanda.bunnyhop.TimerAwait")
+@Label("Timer Await")
+@Description("Waiting for a synchronizing timer to reach zero")
+@Category({"BhUtility", "Concurrency"})
+@Enabled(false)
+public final class TimerAwaitEvent extends Event {
+
+  @Label("Phase")
+  public int phase;
+
+  @Label("Parties")
+  @Description("The number of parties registered when the wait started")
+  public int numParties;
+
+  @Label("Completed")
+  @Description("False if the wait timed out or was interrupted")
+  public boolean completed;
+
+  /**
+   * このイベントが記録の対象である場合, 値を設定して記録する.
+   *
+   * @param phase 待機したフェーズ
+   * @param numParties 待機を始めた時点で登録されていたパーティの数
+   * @param completed タイマーのカウントが 0 に達した場合 true
+   */
+  public void commit(int phase, int numParties, boolean completed) {
+    if (shouldCommit()) {
+      this.phase = phase;
+      this.numParties = numParties;
+      this.completed = completed;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,577 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ファイルへのログの出力を専用のスレッドで行うクラス.
+ *
+ * <p>ログを出力するスレッドは, メッセージを事前に確保したリングバッファに格納するだけで制御を返す.
+ * リングバッファに溜まったメッセージは書き込み用のスレッドがまとめて {@link TextRecorder} に書き込む.
+ *
+ * @author K.Koike
+ */
+public class AsyncFileLogger implements Logger {
+
+  private final TextRecorder recorder;
+  /** メッセージを格納するリングバッファ. */
+  private final Slot[] ring;
+  /** リングバッファが一杯のときの動作. */
+  private final OverflowPolicy policy;
+  private final ReentrantLock lock = new ReentrantLock();
+  /** リングバッファにメッセージが格納されたことを通知する条件変数. */
+  private final Condition notEmpty = lock.newCondition();
+  /** リングバッファに空きができたことを通知する条件変数. */
+  private final Condition notFull = lock.newCondition();
+  /** 次に読み出すリングバッファの位置. */
+  private long readPos = 0;
+  /** 次に書き込むリングバッファの位置. */
+  private long writePos = 0;
+  /** リングバッファが一杯で破棄したメッセージの数. */
+  private long numDropped = 0;
+  /** 書き込み用のスレッドが最後にログに記録した, 破棄したメッセージの数. */
+  private long numDroppedReported = 0;
+  private boolean isClosed = false;
+  private volatile CallerInfoMode callerInfoMode = CallerInfoMode.CACHED;
+  /** 同じログの出力を抑制するオブジェクト.  抑制しない場合は null. */
+  private volatile LogSuppressor suppressor;
+  /** 出力するログの重要度の下限. */
+  private volatile LogLevel level = LogLevel.INFO;
+  /**
+   * {@link RecordFormat#BINARY} のログを作成するオブジェクト.  {@link RecordFormat#TEXT} の場合は null.
+   * 書き込み用のスレッドだけが使用する.
+   */
+  private final BinaryRecordEncoder binaryEncoder;
+  /** リングバッファのメッセージをファイルに書き込むスレッド. */
+  private final Thread writer;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param capacity リングバッファに格納できるメッセージの最大数. (1 以上)
+   * @param policy リングバッファが一杯のときの動作
+   */
+  public AsyncFileLogger(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      int capacity,
+      OverflowPolicy policy) throws IOException {
+    this(
+        dirPath,
+        fileName,
+        maxFileSize,
+        maxFiles,
+        capacity,
+        policy,
+        OutputMode.STREAM,
+        FlushPolicy.everyRecord());
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * <p>書き込み用のスレッドがリングバッファからまとめて取り出したメッセージは 1 件のログとみなして
+   * {@code flushPolicy} を適用する.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param capacity リングバッファに格納できるメッセージの最大数. (1 以上)
+   * @param policy リングバッファが一杯のときの動作
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   */
+  public AsyncFileLogger(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      int capacity,
+      OverflowPolicy policy,
+      OutputMode mode,
+      FlushPolicy flushPolicy) throws IOException {
+    this(
+        dirPath,
+        fileName,
+        maxFileSize,
+        maxFiles,
+        capacity,
+        policy,
+        mode,
+        flushPolicy,
+        RetentionPolicy.uncompressed());
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * <p>書き込み用のスレッドがリングバッファからまとめて取り出したメッセージは 1 件のログとみなして
+   * {@code flushPolicy} を適用する.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param capacity リングバッファに格納できるメッセージの最大数. (1 以上)
+   * @param policy リングバッファが一杯のときの動作
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   * @param retentionPolicy 書き込みが終わった出力先ファイルを保持する方法
+   */
+  public AsyncFileLogger(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      int capacity,
+      OverflowPolicy policy,
+      OutputMode mode,
+      FlushPolicy flushPolicy,
+      RetentionPolicy retentionPolicy) throws IOException {
+    this(
+        dirPath,
+        fileName,
+        maxFileSize,
+        maxFiles,
+        capacity,
+        policy,
+        mode,
+        flushPolicy,
+        retentionPolicy,
+        RecordFormat.TEXT);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * <p>書き込み用のスレッドがリングバッファからまとめて取り出したメッセージは 1 件のログとみなして
+   * {@code flushPolicy} を適用する.
+   * {@link RecordFormat#BINARY} を指定した場合でも, 書式を受け取るメソッドに渡したメッセージは
+   * ログを出力するスレッドで書式化する.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param capacity リングバッファに格納できるメッセージの最大数. (1 以上)
+   * @param policy リングバッファが一杯のときの動作
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   * @param retentionPolicy 書き込みが終わった出力先ファイルを保持する方法
+   * @param format 出力先ファイルに書き込むログの形式
+   */
+  public AsyncFileLogger(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      int capacity,
+      OverflowPolicy policy,
+      OutputMode mode,
+      FlushPolicy flushPolicy,
+      RetentionPolicy retentionPolicy,
+      RecordFormat format) throws IOException {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(
+          "'capacity' must be greater than 0.\n%s was set.".formatted(capacity));
+    }
+    this.policy = Objects.requireNonNull(policy);
+    ring = new Slot[capacity];
+    for (int i = 0; i < capacity; ++i) {
+      ring[i] = new Slot();
+    }
+    binaryEncoder = (format == RecordFormat.BINARY) ? new BinaryRecordEncoder() : null;
+    recorder = new TextRecorder(
+        dirPath,
+        fileName,
+        maxFileSize,
+        maxFiles,
+        mode,
+        flushPolicy,
+        retentionPolicy,
+        (binaryEncoder == null) ? null : binaryEncoder::header);
+    writer = new Thread(this::drain, "AsyncFileLogger-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /** デバッグ用エラーメッセージ出力メソッド. */
+  @Override
+  public void error(String msg) {
+    log(LogLevel.ERROR, msg);
+  }
+
+  /** デバッグ用メッセージ出力メソッド. */
+  @Override
+  public void info(String msg) {
+    log(LogLevel.INFO, msg);
+  }
+
+  @Override
+  public void log(LogLevel level, String msg) {
+    if (!isEnabled(level)) {
+      return;
+    }
+    String caller = callerInfoMode.getCallerName();
+    if (!isSuppressed(level, caller, msg)) {
+      put(level, caller, msg);
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object arg) {
+    if (isEnabled(level)) {
+      logFormatted(level, format, new Object[] {arg});
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object arg1, Object arg2) {
+    if (isEnabled(level)) {
+      logFormatted(level, format, new Object[] {arg1, arg2});
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object arg1, Object arg2, Object arg3) {
+    if (isEnabled(level)) {
+      logFormatted(level, format, new Object[] {arg1, arg2, arg3});
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object... args) {
+    if (isEnabled(level)) {
+      logFormatted(level, format, args);
+    }
+  }
+
+  /** {@code format} を書式化したメッセージのログを出力する.  ログを抑制するかどうかは書式で判定する. */
+  private void logFormatted(LogLevel level, String format, Object[] args) {
+    String caller = callerInfoMode.getCallerName();
+    if (!isSuppressed(level, caller, format)) {
+      put(level, caller, format.formatted(args));
+    }
+  }
+
+  @Override
+  public boolean isEnabled(LogLevel level) {
+    return level.ordinal() >= this.level.ordinal();
+  }
+
+  /**
+   * 出力するログの重要度の下限を設定する.
+   *
+   * <p>デフォルトは {@link LogLevel#INFO}.
+   *
+   * @param level この重要度以上のログを出力する
+   */
+  public void setLevel(LogLevel level) {
+    this.level = Objects.requireNonNull(level);
+  }
+
+  /** 出力するログの重要度の下限を返す. */
+  public LogLevel getLevel() {
+    return level;
+  }
+
+  /**
+   * ログに出力する呼び出し元のメソッド名の取得方法を設定する.
+   *
+   * <p>デフォルトは {@link CallerInfoMode#CACHED}.
+   * レイテンシが重要な箇所では {@link CallerInfoMode#NONE} を指定することでコールスタックの走査を省略できる.
+   *
+   * @param mode 呼び出し元のメソッド名の取得方法
+   */
+  public void setCallerInfoMode(CallerInfoMode mode) {
+    callerInfoMode = Objects.requireNonNull(mode);
+  }
+
+  /**
+   * 同じログが短時間に大量に出力されたときに, ログを抑制する条件を設定する.
+   *
+   * <p>デフォルトでは抑制しない.
+   * 条件を変更すると, それまでに抑制したログの数を記したログを出力する.
+   *
+   * @param policy ログを抑制する条件.  抑制しない場合は null.
+   */
+  public void setSuppressionPolicy(SuppressionPolicy policy) {
+    LogSuppressor old;
+    lock.lock();
+    try {
+      old = suppressor;
+      suppressor = (policy == null || isClosed) ? null : new LogSuppressor(policy, this::put);
+    } finally {
+      lock.unlock();
+    }
+    if (old != null) {
+      old.close();
+    }
+  }
+
+  /** {@link #suppressor} がログを抑制する場合 true を返す. */
+  private boolean isSuppressed(LogLevel level, String caller, String template) {
+    LogSuppressor suppressor = this.suppressor;
+    return suppressor != null && !suppressor.tryAcquire(level, caller, template);
+  }
+
+  /**
+   * 書き込み用のスレッドが出力先ファイルに書き込んだログをフラッシュする.
+   *
+   * <p>リングバッファに残っているメッセージはフラッシュの対象にならない.
+   */
+  public void flush() {
+    recorder.flush();
+  }
+
+  /**
+   * リングバッファが一杯で破棄したメッセージの数を返す.
+   *
+   * @return 破棄したメッセージの数.  {@link OverflowPolicy#DROP_AND_COUNT} 以外では常に 0.
+   */
+  public long getNumDropped() {
+    lock.lock();
+    try {
+      return numDropped;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * リングバッファに格納されていて, まだ出力先ファイルに書き込まれていないメッセージの数を返す.
+   *
+   * @return 書き込みを待っているメッセージの数
+   */
+  public int getQueueDepth() {
+    lock.lock();
+    try {
+      return (int) (writePos - readPos);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * 出力先ファイルへの書き込みに関する統計情報のスナップショットを返す.
+   *
+   * @return 統計情報のスナップショット
+   */
+  public RecorderMetrics getMetrics() {
+    return recorder.getMetrics();
+  }
+
+  /** メッセージをリングバッファに格納する. */
+  private void put(LogLevel level, String caller, String msg) {
+    long timeMillis = System.currentTimeMillis();
+    lock.lock();
+    try {
+      while (!isClosed && (writePos - readPos) == ring.length) {
+        switch (policy) {
+          case BLOCK:
+            notFull.awaitUninterruptibly();
+            break;
+          case DROP_AND_COUNT:
+            ++numDropped;
+            return;
+          default:
+            return;
+        }
+      }
+      if (isClosed) {
+        return;
+      }
+      ring[(int) (writePos % ring.length)].set(level, caller, timeMillis, msg);
+      ++writePos;
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * リングバッファに格納されたメッセージを取り出してファイルに書き込む.
+   *
+   * <p>書き込み用のスレッドで実行される.
+   * {@link #close} が呼ばれた後, リングバッファが空になると終了する.
+   * {@link Error} で終了した場合も, 以降のメッセージを受け付けないようにして, ログを出力するスレッドを待たせたままにしない.
+   */
+  private void drain() {
+    try {
+      drainUntilClosed();
+    } finally {
+      lock.lock();
+      try {
+        isClosed = true;
+        notFull.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * {@link #close} が呼ばれてリングバッファが空になるまで, メッセージを取り出してファイルに書き込む.
+   *
+   * <p>書き込みで発生した {@link RuntimeException} は {@link #recorder} に記録し, 書き込みを続ける.
+   */
+  private void drainUntilClosed() {
+    RecordEncoder encoder = RecordEncoder.get();
+    while (true) {
+      long from;
+      long to;
+      long dropped;
+      lock.lock();
+      try {
+        while (!isClosed && readPos == writePos) {
+          notEmpty.awaitUninterruptibly();
+        }
+        if (isClosed && readPos == writePos) {
+          return;
+        }
+        from = readPos;
+        to = writePos;
+        dropped = numDropped - numDroppedReported;
+        numDroppedReported = numDropped;
+      } finally {
+        lock.unlock();
+      }
+      try {
+        // from ~ to の範囲のスロットは readPos を進めるまで書き換えられない.
+        for (long pos = from; pos < to; ++pos) {
+          Slot slot = ring[(int) (pos % ring.length)];
+          try {
+            write(encoder, slot.level, slot.caller, slot.timeMillis, slot.msg);
+          } catch (RuntimeException e) {
+            recorder.recordFailure(e);
+          }
+          slot.clear();
+        }
+        if (dropped > 0) {
+          write(
+              encoder,
+              LogLevel.ERROR,
+              getClass().getName(),
+              System.currentTimeMillis(),
+              "%s messages were dropped.".formatted(dropped));
+        }
+        recorder.applyFlushPolicy();
+      } catch (RuntimeException e) {
+        recorder.recordFailure(e);
+      } finally {
+        lock.lock();
+        try {
+          readPos = to;
+          notFull.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  /**
+   * ログを 1 件作成して標準出力 (もしくは標準エラー出力) と出力先ファイルに書き込む.
+   *
+   * <p>{@link RecordFormat#BINARY} の場合, 出力先ファイルにだけ書き込む.
+   */
+  private void write(
+      RecordEncoder encoder, LogLevel level, String caller, long timeMillis, String msg) {
+    if (binaryEncoder != null) {
+      ByteBuffer record = binaryEncoder.encode(level, caller, timeMillis, msg);
+      binaryEncoder.commit(recorder.append(record));
+      return;
+    }
+    ByteBuffer record = encoder.encode(level.tag(), caller, timeMillis, msg);
+    encoder.print(level.isSevere() ? System.err : System.out);
+    recorder.append(record);
+  }
+
+  /**
+   * 終了処理をする.
+   *
+   * <p>リングバッファに残っているメッセージを全てファイルに書き込んでから制御を返す.
+   */
+  public void close() {
+    // 抑制したログの数をリングバッファに格納してから終了する
+    setSuppressionPolicy(null);
+    lock.lock();
+    try {
+      isClosed = true;
+      notEmpty.signal();
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    boolean interrupted = false;
+    while (writer.isAlive()) {
+      try {
+        writer.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    recorder.close();
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** リングバッファが一杯のときの動作. */
+  public enum OverflowPolicy {
+    /** リングバッファに空きができるまで, ログを出力するスレッドを待たせる. */
+    BLOCK,
+    /** メッセージを破棄する. */
+    DROP,
+    /** メッセージを破棄して, 破棄した数を数える. 破棄した数は書き込み用のスレッドがログに記録する. */
+    DROP_AND_COUNT,
+  }
+
+  /** リングバッファの 1 要素. */
+  private static class Slot {
+    private LogLevel level;
+    private String caller;
+    private long timeMillis;
+    private String msg;
+
+    void set(LogLevel level, String caller, long timeMillis, String msg) {
+      this.level = level;
+      this.caller = caller;
+      this.timeMillis = timeMillis;
+      this.msg = msg;
+    }
+
+    /** 格納したメッセージへの参照を外す. */
+    void clear() {
+      caller = null;
+      msg = null;
+    }
+  }
+}
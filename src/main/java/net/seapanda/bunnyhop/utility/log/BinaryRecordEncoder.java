@@ -0,0 +1,316 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ログファイルに書き込む 1 件分のログを {@link RecordFormat#BINARY} の形式でエンコードするクラス.
+ *
+ * <pre>
+ * ファイルの構成
+ *   ヘッダ : MAGIC (4 Bytes), VERSION (1 Byte), 辞書の要素 * N
+ *   以降 : 辞書の要素とログが任意の順に続く
+ *
+ * 辞書の要素 : ENTRY (1 Byte), ID (int), 文字列
+ * ログ : MESSAGE (1 Byte), 重要度 (1 Byte), 時刻 (long), 呼び出し元 (文字列参照), メッセージ (文字列)
+ *        FORMAT (1 Byte), 重要度 (1 Byte), 時刻 (long), 呼び出し元 (文字列参照), 書式 (文字列参照),
+ *        引数の数 (int), 引数 * 引数の数
+ *
+ * 文字列 : UTF-8 でエンコードしたバイト数 (int), UTF-8 でエンコードしたバイト列
+ * 文字列参照 : 辞書の ID (int).  {@link #INLINE} の場合, 続けて文字列を格納する.
+ * 引数 : 型 (1 Byte), 値.  値の形式は型によって異なる.
+ * 数値は全てビッグエンディアンで格納する.
+ * </pre>
+ *
+ * <p>辞書はファイルごとに独立しているので, ファイルは単独でデコードできる.
+ * ログをエンコードしたときに新しく登録した辞書の要素は, そのログの書き込み結果を {@link #commit} で反映するまで確定しない.
+ * 1 つの {@link TextRecorder} に対して 1 つ作成し, 同時に複数のスレッドから使用してはならない.
+ *
+ * @author K.Koike
+ */
+final class BinaryRecordEncoder {
+
+  /** ファイルの先頭に書き込むマジックナンバー. */
+  static final byte[] MAGIC = {'B', 'H', 'L', 'G'};
+  /** 形式のバージョン. */
+  static final byte VERSION = 1;
+  /** 辞書の要素を表す種別. */
+  static final byte ENTRY = 1;
+  /** メッセージを記録したログを表す種別. */
+  static final byte MESSAGE = 2;
+  /** 書式と引数を記録したログを表す種別. */
+  static final byte FORMAT = 3;
+  /** 辞書に登録せずに文字列を直接格納することを表す文字列参照. */
+  static final int INLINE = -1;
+
+  static final byte ARG_NULL = 0;
+  static final byte ARG_BYTE = 1;
+  static final byte ARG_SHORT = 2;
+  static final byte ARG_INT = 3;
+  static final byte ARG_LONG = 4;
+  static final byte ARG_FLOAT = 5;
+  static final byte ARG_DOUBLE = 6;
+  static final byte ARG_BOOLEAN = 7;
+  static final byte ARG_CHAR = 8;
+  static final byte ARG_STRING = 9;
+
+  /** 辞書に登録する文字列の最大数.  これを超えた文字列は {@link #INLINE} で格納する. */
+  private static final int MAX_ENTRIES = 4096;
+  /** バッファの初期サイズ. (Bytes) */
+  private static final int INITIAL_CAPACITY = 512;
+  /** このサイズ (Bytes) を超えたバッファは, 次に小さなログを書き込むときに縮小する. */
+  private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+  /** UTF-8 で 1 文字 ({@code char}) をエンコードしたときの最大バイト数. */
+  private static final int MAX_BYTES_PER_CHAR = 3;
+
+  /** 辞書に登録した文字列とその ID のマップ. */
+  private final Map<String, Integer> ids = new HashMap<>();
+  /** 辞書に登録した文字列.  インデックスが ID となる. */
+  private final List<String> entries = new ArrayList<>();
+  /**
+   * 書き込みが確定した辞書の要素の数.
+   * これ以降の要素は最後にエンコードしたログの中で定義しているので, そのログを書き込めなかった場合は取り消す.
+   */
+  private int numCommitted = 0;
+  /** エンコードしたデータを格納するバッファ. */
+  private ByteBuffer buf = ByteBuffer.allocate(INITIAL_CAPACITY);
+  /** エンコード前の文字列を格納するバッファ. */
+  private char[] chars = new char[INITIAL_CAPACITY];
+  private CharBuffer charBuf = CharBuffer.wrap(chars);
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  /**
+   * 新しいファイルの先頭に書き込むヘッダを作成する.
+   *
+   * <p>ヘッダには書き込みが確定した辞書の要素を全て含める.
+   * {@link #encode} が返したバッファを書き込む途中でファイルのローテーションが起きた場合に呼ばれるので,
+   * ヘッダはそのバッファとは別に確保する.
+   */
+  ByteBuffer header() {
+    ByteBuffer recordBuf = buf;
+    buf = ByteBuffer.allocate(INITIAL_CAPACITY);
+    buf.put(MAGIC).put(VERSION);
+    for (int id = 0; id < numCommitted; ++id) {
+      putEntry(id, entries.get(id));
+    }
+    ByteBuffer header = buf.flip();
+    buf = recordBuf;
+    return header;
+  }
+
+  /**
+   * メッセージを記録したログをエンコードする.
+   *
+   * <p>返されるバッファは, 次にこのオブジェクトのメソッドを呼ぶまでの間だけ有効である.
+   *
+   * @param level ログの重要度
+   * @param caller ログ出力を行ったメソッドの名前
+   * @param timeMillis ログ出力を行った時刻 (エポックミリ秒)
+   * @param msg ログメッセージ
+   * @return エンコードしたログを格納したバッファ
+   */
+  ByteBuffer encode(LogLevel level, String caller, long timeMillis, String msg) {
+    prepare(msg.length());
+    int callerId = intern(caller);
+    ensureCapacity(14);
+    buf.put(MESSAGE).put((byte) level.ordinal()).putLong(timeMillis).putInt(callerId);
+    putInlineIfNeeded(callerId, caller);
+    putString(msg);
+    return buf.flip();
+  }
+
+  /**
+   * 書式と引数を記録したログをエンコードする.
+   *
+   * <p>返されるバッファは, 次にこのオブジェクトのメソッドを呼ぶまでの間だけ有効である.
+   * 引数に数値, 真偽値, 文字, 文字列以外のオブジェクトが含まれる場合, デコード時に同じ書式化の結果を得られないので,
+   * 書式化したメッセージを記録したログとしてエンコードする.
+   *
+   * @param level ログの重要度
+   * @param caller ログ出力を行ったメソッドの名前
+   * @param timeMillis ログ出力を行った時刻 (エポックミリ秒)
+   * @param format {@link String#formatted} で解釈する書式
+   * @param args 書式の引数
+   * @return エンコードしたログを格納したバッファ
+   */
+  ByteBuffer encode(
+      LogLevel level, String caller, long timeMillis, String format, Object[] args) {
+    for (Object arg : args) {
+      if (!isEncodable(arg)) {
+        return encode(level, caller, timeMillis, format.formatted(args));
+      }
+    }
+    prepare(0);
+    int callerId = intern(caller);
+    int formatId = intern(format);
+    ensureCapacity(14);
+    buf.put(FORMAT).put((byte) level.ordinal()).putLong(timeMillis).putInt(callerId);
+    putInlineIfNeeded(callerId, caller);
+    ensureCapacity(8);
+    buf.putInt(formatId);
+    putInlineIfNeeded(formatId, format);
+    buf.putInt(args.length);
+    for (Object arg : args) {
+      putArg(arg);
+    }
+    return buf.flip();
+  }
+
+  /**
+   * 最後にエンコードしたログの書き込み結果を反映する.
+   *
+   * <p>書き込めなかった場合, そのログで新しく登録した辞書の要素を取り消す.
+   *
+   * @param isWritten 最後にエンコードしたログを書き込めた場合 true
+   */
+  void commit(boolean isWritten) {
+    if (isWritten) {
+      numCommitted = entries.size();
+      return;
+    }
+    while (entries.size() > numCommitted) {
+      ids.remove(entries.removeLast());
+    }
+  }
+
+  /**
+   * {@link #buf} を空にして, {@code numChars} 文字程度のデータを書き込める状態にする.
+   *
+   * <p>前回エンコードしたログの書き込み結果が反映されていない場合, そのログは書き込めなかったものとみなす.
+   */
+  private void prepare(int numChars) {
+    commit(false);
+    int capacity = Math.max(numChars * MAX_BYTES_PER_CHAR, INITIAL_CAPACITY);
+    if (buf.capacity() > MAX_RETAINED_CAPACITY && capacity <= INITIAL_CAPACITY) {
+      buf = ByteBuffer.allocate(INITIAL_CAPACITY);
+      chars = new char[INITIAL_CAPACITY];
+      charBuf = CharBuffer.wrap(chars);
+    }
+    buf.clear();
+  }
+
+  /**
+   * {@code str} を辞書に登録して ID を返す.
+   *
+   * <p>新しく登録した場合は, 辞書の要素を {@link #buf} に書き込む.
+   * 新しく登録した要素は {@link #commit} を呼ぶまで確定しない.
+   * 辞書が一杯の場合は {@link #INLINE} を返す.
+   */
+  private int intern(String str) {
+    Integer id = ids.get(str);
+    if (id != null) {
+      return id;
+    }
+    if (entries.size() >= MAX_ENTRIES) {
+      return INLINE;
+    }
+    int newId = entries.size();
+    entries.add(str);
+    ids.put(str, newId);
+    putEntry(newId, str);
+    return newId;
+  }
+
+  /** 辞書の要素を {@link #buf} に書き込む. */
+  private void putEntry(int id, String str) {
+    ensureCapacity(5);
+    buf.put(ENTRY).putInt(id);
+    putString(str);
+  }
+
+  /** {@code id} が {@link #INLINE} の場合, {@code str} を {@link #buf} に書き込む. */
+  private void putInlineIfNeeded(int id, String str) {
+    if (id == INLINE) {
+      putString(str);
+    }
+  }
+
+  /** {@code str} を UTF-8 でエンコードしたバイト数とバイト列を {@link #buf} に書き込む. */
+  private void putString(String str) {
+    int len = str.length();
+    ensureCapacity(4 + len * MAX_BYTES_PER_CHAR);
+    if (chars.length < len) {
+      chars = new char[len];
+      charBuf = CharBuffer.wrap(chars);
+    }
+    str.getChars(0, len, chars, 0);
+    charBuf.clear().limit(len);
+    int lenPos = buf.position();
+    buf.position(lenPos + 4);
+    encoder.reset();
+    // buf は全ての文字をエンコードできるサイズを確保しているので, オーバーフローは起きない.
+    encoder.encode(charBuf, buf, true);
+    encoder.flush(buf);
+    buf.putInt(lenPos, buf.position() - lenPos - 4);
+  }
+
+  /** 書式の引数 {@code arg} を型と値の組として格納できる場合 true を返す. */
+  private static boolean isEncodable(Object arg) {
+    return arg == null
+        || arg instanceof Byte
+        || arg instanceof Short
+        || arg instanceof Integer
+        || arg instanceof Long
+        || arg instanceof Float
+        || arg instanceof Double
+        || arg instanceof Boolean
+        || arg instanceof Character
+        || arg instanceof String;
+  }
+
+  /** 書式の引数を型と値の組として {@link #buf} に書き込む. */
+  private void putArg(Object arg) {
+    ensureCapacity(9);
+    switch (arg) {
+      case null -> buf.put(ARG_NULL);
+      case Byte val -> buf.put(ARG_BYTE).put(val);
+      case Short val -> buf.put(ARG_SHORT).putShort(val);
+      case Integer val -> buf.put(ARG_INT).putInt(val);
+      case Long val -> buf.put(ARG_LONG).putLong(val);
+      case Float val -> buf.put(ARG_FLOAT).putFloat(val);
+      case Double val -> buf.put(ARG_DOUBLE).putDouble(val);
+      case Boolean val -> buf.put(ARG_BOOLEAN).put((byte) (val ? 1 : 0));
+      case Character val -> buf.put(ARG_CHAR).putChar(val);
+      default -> {
+        buf.put(ARG_STRING);
+        putString((String) arg);
+      }
+    }
+  }
+
+  /** {@link #buf} に {@code numBytes} バイト以上の空きがあるようにする. */
+  private void ensureCapacity(int numBytes) {
+    if (buf.remaining() >= numBytes) {
+      return;
+    }
+    int capacity = Math.max(buf.capacity() * 2, buf.position() + numBytes);
+    ByteBuffer newBuf = ByteBuffer.allocate(capacity);
+    buf.flip();
+    buf = newBuf.put(buf);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import net.seapanda.bunnyhop.utility.Utility;
+
+/**
+ * ログに出力する呼び出し元のメソッド名の取得方法.
+ *
+ * @author K.Koike
+ */
+public enum CallerInfoMode {
+
+  /** ログを出力するたびにコールスタックを辿ってメソッド名を取得する. */
+  RESOLVE,
+  /** コールスタックを辿って取得したメソッド名の文字列を, 呼び出し元のメソッドごとにキャッシュする. */
+  CACHED,
+  /** メソッド名を取得しない.  ログの呼び出し元の欄は空になる. */
+  NONE;
+
+  /**
+   * この取得方法でコールスタックから {@link Logger} のメソッドを呼び出したメソッドの名前を取得する.
+   *
+   * @return {@link Logger} のメソッドを呼び出したメソッド名.  {@link #NONE} の場合は空の文字列.
+   */
+  String getCallerName() {
+    return switch (this) {
+      case RESOLVE -> Utility.getCallerName(Logger.class, false);
+      case CACHED -> Utility.getCallerName(Logger.class, true);
+      case NONE -> "";
+    };
+  }
+}
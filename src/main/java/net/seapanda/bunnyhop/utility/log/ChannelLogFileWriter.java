@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ダイレクトバッファに溜めたデータを {@link FileChannel} で出力先ファイルに書き込むクラス.
+ *
+ * @author K.Koike
+ */
+class ChannelLogFileWriter implements LogFileWriter {
+
+  /** 書き込むデータを溜めるバッファのサイズ. (Bytes) */
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FileChannel channel;
+  private final ByteBuffer buf;
+  private long size;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param filePath 出力先ファイルのパス.  ファイルが存在する場合は末尾に追記する.
+   */
+  ChannelLogFileWriter(Path filePath) throws IOException {
+    channel = FileChannel.open(
+        filePath,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    size = channel.size();
+  }
+
+  @Override
+  public void write(ByteBuffer data) throws IOException {
+    int len = data.remaining();
+    if (len > buf.remaining()) {
+      flush();
+    }
+    if (len > buf.capacity()) {
+      writeFully(data);
+    } else {
+      buf.put(data);
+    }
+    size += len;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    buf.flip();
+    writeFully(buf);
+    buf.clear();
+  }
+
+  /** {@code data} の position から limit までのデータを全てチャネルに書き込む. */
+  private void writeFully(ByteBuffer data) throws IOException {
+    while (data.hasRemaining()) {
+      channel.write(data);
+    }
+  }
+
+  @Override
+  public void force() throws IOException {
+    channel.force(false);
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+}
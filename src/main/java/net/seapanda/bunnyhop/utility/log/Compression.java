@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * ローテーションによって書き込みが終わったログファイルを圧縮する方式.
+ *
+ * @author K.Koike
+ */
+public enum Compression {
+
+  /** 圧縮しない. */
+  NONE(""),
+  /** gzip 形式で圧縮する.  圧縮したファイルの拡張子は ".log.gz" となる. */
+  GZIP(".gz"),
+  /** zlib 形式 (deflate) で圧縮する.  圧縮したファイルの拡張子は ".log.deflate" となる. */
+  DEFLATE(".deflate");
+
+  /** 圧縮したファイルの名前の末尾に付ける文字列. */
+  private final String suffix;
+
+  private Compression(String suffix) {
+    this.suffix = suffix;
+  }
+
+  /** 圧縮したファイルの名前の末尾に付ける文字列を返す. */
+  String suffix() {
+    return suffix;
+  }
+
+  /** {@code out} に書き込むデータをこの方式で圧縮するストリームを返す. */
+  OutputStream compress(OutputStream out) throws IOException {
+    return switch (this) {
+      case NONE -> out;
+      case GZIP -> new GZIPOutputStream(out, 8192);
+      case DEFLATE -> new DeflaterOutputStream(out);
+    };
+  }
+
+  /** この方式で圧縮されたデータを {@code in} から読んで展開するストリームを返す. */
+  InputStream decompress(InputStream in) throws IOException {
+    return switch (this) {
+      case NONE -> in;
+      case GZIP -> new GZIPInputStream(in, 8192);
+      case DEFLATE -> new InflaterInputStream(in);
+    };
+  }
+}
@@ -0,0 +1,639 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import net.seapanda.bunnyhop.utility.log.AsyncFileLogger.OverflowPolicy;
+
+/**
+ * 複数のスレッドからのログの出力をロックを使わずに受け付けて, 専用のスレッドでファイルに書き込むクラス.
+ *
+ * <p>ログを出力するスレッドは, ログ 1 件分のテキストを作成してスレッドごとに確保したバッファに格納し,
+ * ロックを使わないキューに追加するだけで制御を返す.
+ * テキストの作成は各スレッドで並行して行われ, スレッド間で共有するロックを取得しない.
+ * キューに追加されたログは書き込み用のスレッドが {@link TextRecorder} に書き込む.
+ * 同じスレッドから出力したログは, 出力した順にファイルに書き込まれる.
+ * {@link #close} が制御を返すまでにキューへの追加を始めたログは, 全てファイルに書き込まれる.
+ *
+ * @author K.Koike
+ */
+public final class ConcurrentFileLogger implements Logger {
+
+  /** バッファの空きを待つときに 1 回に待機する最大の時間. (ns) */
+  private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  /** キューが空のときに書き込み用のスレッドが待機する最大の時間. (ns) */
+  private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final TextRecorder recorder;
+  /** スレッドごとのバッファに格納できるログの最大数. */
+  private final int slotsPerThread;
+  /** スレッドごとのバッファが一杯のときの動作. */
+  private final OverflowPolicy policy;
+  /**
+   * ログを出力するスレッドごとのバッファ.
+   *
+   * <p>バッファはこのオブジェクトを参照しないので, スレッドが生きていてもこのオブジェクトは回収できる.
+   */
+  private final ThreadLocal<Staging> stagings = ThreadLocal.withInitial(this::newStaging);
+  /**
+   * 作成したスレッドごとのバッファ.  終了処理でバッファを無効にするために保持する.
+   * 終了したスレッドのバッファは回収できるように弱参照で保持する.
+   */
+  private final Set<Staging> allStagings =
+      Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+  /** ログを書き込み用のスレッドに渡すキュー. */
+  private final StagingQueue queue = new StagingQueue();
+  /** バッファが一杯で破棄したメッセージの数. */
+  private final LongAdder numDropped = new LongAdder();
+  /** キューに追加したログの数. */
+  private final LongAdder numEnqueued = new LongAdder();
+  /**
+   * 書き込み用のスレッドがキューから取り出したログの数.
+   * 書き込み用のスレッドが, キューが空になるたびに更新する.
+   */
+  private volatile long numDequeued = 0;
+  /**
+   * 書き込み用のスレッドがキューへの追加を待っている場合 true.
+   * 待機中の書き込み用のスレッドを 1 度だけ再開させるため, 再開させるスレッドが false に戻す.
+   */
+  private final AtomicBoolean isDrainerWaiting = new AtomicBoolean(false);
+  private volatile boolean isClosed = false;
+  /**
+   * {@link #close} が呼ばれた後, キューへの追加を始めていたログが全て追加されると true になる.
+   * 書き込み用のスレッドは, これが true でキューが空になると終了する.
+   */
+  private volatile boolean isStopping = false;
+  private volatile CallerInfoMode callerInfoMode = CallerInfoMode.CACHED;
+  /** 同じログの出力を抑制するオブジェクト.  抑制しない場合は null. */
+  private volatile LogSuppressor suppressor;
+  /** 出力するログの重要度の下限. */
+  private volatile LogLevel level = LogLevel.INFO;
+  /** キューのログをファイルに書き込むスレッド. */
+  private final Thread drainer;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param slotsPerThread ログを出力するスレッドごとのバッファに格納できるログの最大数. (2 以上)
+   * @param policy スレッドごとのバッファが一杯のときの動作
+   */
+  public ConcurrentFileLogger(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      int slotsPerThread,
+      OverflowPolicy policy) throws IOException {
+    this(
+        dirPath,
+        fileName,
+        maxFileSize,
+        maxFiles,
+        slotsPerThread,
+        policy,
+        OutputMode.STREAM,
+        FlushPolicy.everyRecord(),
+        RetentionPolicy.uncompressed());
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * <p>書き込み用のスレッドがキューからまとめて取り出したログは 1 件のログとみなして
+   * {@code flushPolicy} を適用する.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param slotsPerThread ログを出力するスレッドごとのバッファに格納できるログの最大数. (2 以上)
+   * @param policy スレッドごとのバッファが一杯のときの動作
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   * @param retentionPolicy 書き込みが終わった出力先ファイルを保持する方法
+   */
+  public ConcurrentFileLogger(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      int slotsPerThread,
+      OverflowPolicy policy,
+      OutputMode mode,
+      FlushPolicy flushPolicy,
+      RetentionPolicy retentionPolicy) throws IOException {
+    if (slotsPerThread < 2) {
+      throw new IllegalArgumentException(
+          "'slotsPerThread' must be greater than 1.\n%s was set.".formatted(slotsPerThread));
+    }
+    this.slotsPerThread = slotsPerThread;
+    this.policy = Objects.requireNonNull(policy);
+    recorder = new TextRecorder(
+        dirPath, fileName, maxFileSize, maxFiles, mode, flushPolicy, retentionPolicy);
+    drainer = new Thread(this::drain, "ConcurrentFileLogger-writer");
+    drainer.setDaemon(true);
+    drainer.start();
+  }
+
+  /** デバッグ用エラーメッセージ出力メソッド. */
+  @Override
+  public void error(String msg) {
+    log(LogLevel.ERROR, msg);
+  }
+
+  /** デバッグ用メッセージ出力メソッド. */
+  @Override
+  public void info(String msg) {
+    log(LogLevel.INFO, msg);
+  }
+
+  @Override
+  public void log(LogLevel level, String msg) {
+    if (!isEnabled(level) || isClosed) {
+      return;
+    }
+    String caller = callerInfoMode.getCallerName();
+    if (!isSuppressed(level, caller, msg)) {
+      enqueue(level, caller, msg);
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object arg) {
+    if (isEnabled(level) && !isClosed) {
+      logFormatted(level, format, new Object[] {arg});
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object arg1, Object arg2) {
+    if (isEnabled(level) && !isClosed) {
+      logFormatted(level, format, new Object[] {arg1, arg2});
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object arg1, Object arg2, Object arg3) {
+    if (isEnabled(level) && !isClosed) {
+      logFormatted(level, format, new Object[] {arg1, arg2, arg3});
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object... args) {
+    if (isEnabled(level) && !isClosed) {
+      logFormatted(level, format, args);
+    }
+  }
+
+  /** {@code format} を書式化したメッセージのログを出力する.  ログを抑制するかどうかは書式で判定する. */
+  private void logFormatted(LogLevel level, String format, Object[] args) {
+    String caller = callerInfoMode.getCallerName();
+    if (!isSuppressed(level, caller, format)) {
+      enqueue(level, caller, format.formatted(args));
+    }
+  }
+
+  /**
+   * ログを 1 件作成してキューに追加する.
+   *
+   * <p>{@link Staging#isEnqueuing} を true にしてから {@link #isClosed} を読むので,
+   * {@link #close} はキューへの追加を始めたスレッドを見逃さない.
+   */
+  private void enqueue(LogLevel level, String caller, String msg) {
+    Staging staging = stagings.get();
+    staging.isEnqueuing = true;
+    try {
+      if (isClosed) {
+        return;
+      }
+      Record record = acquire(staging);
+      if (record == null) {
+        return;
+      }
+      record.set(level, RecordEncoder.get().encode(
+          level.tag(), caller, System.currentTimeMillis(), msg));
+      numEnqueued.increment();
+      queue.offer(record);
+    } finally {
+      staging.isEnqueuing = false;
+    }
+    if (isDrainerWaiting.get() && isDrainerWaiting.getAndSet(false)) {
+      LockSupport.unpark(drainer);
+    }
+  }
+
+  /**
+   * {@code staging} からログを格納する {@link Record} を取得する.
+   *
+   * @return ログを格納する {@link Record}.  {@link #policy} に従ってログを破棄する場合は null.
+   */
+  private Record acquire(Staging staging) {
+    while (true) {
+      Record record = staging.tryAcquire();
+      if (record != null) {
+        return record;
+      }
+      switch (policy) {
+        case BLOCK:
+          if (isClosed) {
+            return null;
+          }
+          staging.awaitRelease();
+          break;
+        case DROP_AND_COUNT:
+          numDropped.increment();
+          return null;
+        default:
+          return null;
+      }
+    }
+  }
+
+  /** ログを出力するスレッドのバッファを作成する. */
+  private Staging newStaging() {
+    var staging = new Staging(slotsPerThread);
+    allStagings.add(staging);
+    return staging;
+  }
+
+  @Override
+  public boolean isEnabled(LogLevel level) {
+    return level.ordinal() >= this.level.ordinal();
+  }
+
+  /**
+   * 出力するログの重要度の下限を設定する.
+   *
+   * <p>デフォルトは {@link LogLevel#INFO}.
+   *
+   * @param level この重要度以上のログを出力する
+   */
+  public void setLevel(LogLevel level) {
+    this.level = Objects.requireNonNull(level);
+  }
+
+  /** 出力するログの重要度の下限を返す. */
+  public LogLevel getLevel() {
+    return level;
+  }
+
+  /**
+   * ログに出力する呼び出し元のメソッド名の取得方法を設定する.
+   *
+   * <p>デフォルトは {@link CallerInfoMode#CACHED}.
+   * レイテンシが重要な箇所では {@link CallerInfoMode#NONE} を指定することでコールスタックの走査を省略できる.
+   *
+   * @param mode 呼び出し元のメソッド名の取得方法
+   */
+  public void setCallerInfoMode(CallerInfoMode mode) {
+    callerInfoMode = Objects.requireNonNull(mode);
+  }
+
+  /**
+   * 同じログが短時間に大量に出力されたときに, ログを抑制する条件を設定する.
+   *
+   * <p>デフォルトでは抑制しない.
+   * 条件を変更すると, それまでに抑制したログの数を記したログを出力する.
+   *
+   * @param policy ログを抑制する条件.  抑制しない場合は null.
+   */
+  public synchronized void setSuppressionPolicy(SuppressionPolicy policy) {
+    LogSuppressor old = suppressor;
+    suppressor = (policy == null || isClosed) ? null : new LogSuppressor(policy, this::enqueue);
+    if (old != null) {
+      old.close();
+    }
+  }
+
+  /** {@link #suppressor} がログを抑制する場合 true を返す. */
+  private boolean isSuppressed(LogLevel level, String caller, String template) {
+    LogSuppressor suppressor = this.suppressor;
+    return suppressor != null && !suppressor.tryAcquire(level, caller, template);
+  }
+
+  /**
+   * 書き込み用のスレッドが出力先ファイルに書き込んだログをフラッシュする.
+   *
+   * <p>キューに残っているログはフラッシュの対象にならない.
+   */
+  public void flush() {
+    recorder.flush();
+  }
+
+  /**
+   * バッファが一杯で破棄したメッセージの数を返す.
+   *
+   * @return 破棄したメッセージの数.  {@link OverflowPolicy#DROP_AND_COUNT} 以外では常に 0.
+   */
+  public long getNumDropped() {
+    return numDropped.sum();
+  }
+
+  /**
+   * キューに格納されていて, まだ出力先ファイルに書き込まれていないログの数を返す.
+   *
+   * <p>書き込み用のスレッドはキューが空になったときに取り出した数を公開するので, 返す値は概算である.
+   *
+   * @return 書き込みを待っているログの数の概算
+   */
+  public long getQueueDepth() {
+    return Math.max(numEnqueued.sum() - numDequeued, 0);
+  }
+
+  /**
+   * 出力先ファイルへの書き込みに関する統計情報のスナップショットを返す.
+   *
+   * @return 統計情報のスナップショット
+   */
+  public RecorderMetrics getMetrics() {
+    return recorder.getMetrics();
+  }
+
+  /**
+   * キューに追加されたログを取り出してファイルに書き込む.
+   *
+   * <p>書き込み用のスレッドで実行される.
+   * {@link #close} が呼ばれてキューへの追加が全て終わった後, キューが空になると終了する.
+   */
+  private void drain() {
+    long numDroppedReported = 0;
+    long numPolled = 0;
+    boolean hasUnflushed = false;
+    while (true) {
+      Record record = queue.poll();
+      if (record != null) {
+        record.print();
+        recorder.append(record.buffer());
+        ++numPolled;
+        hasUnflushed = true;
+        continue;
+      }
+      numDequeued = numPolled;
+      long dropped = numDropped.sum() - numDroppedReported;
+      if (dropped > 0) {
+        numDroppedReported += dropped;
+        RecordEncoder encoder = RecordEncoder.get();
+        ByteBuffer report = encoder.encode(
+            LogLevel.ERROR.tag(),
+            getClass().getName(),
+            System.currentTimeMillis(),
+            "%s messages were dropped.".formatted(dropped));
+        encoder.print(System.err);
+        recorder.append(report);
+        hasUnflushed = true;
+      }
+      if (hasUnflushed) {
+        recorder.applyFlushPolicy();
+        hasUnflushed = false;
+      }
+      if (isStopping) {
+        if (queue.isEmpty()) {
+          return;
+        }
+        continue;
+      }
+      isDrainerWaiting.set(true);
+      if (queue.isEmpty()) {
+        LockSupport.parkNanos(this, MAX_IDLE_NANOS);
+      }
+      isDrainerWaiting.set(false);
+    }
+  }
+
+  /**
+   * 終了処理をする.
+   *
+   * <p>キューへの追加を始めていたログを待って, キューに残っているログを全てファイルに書き込んでから制御を返す.
+   */
+  public void close() {
+    // 抑制したログの数をキューに追加してから終了する
+    setSuppressionPolicy(null);
+    isClosed = true;
+    List<Staging> created;
+    synchronized (allStagings) {
+      created = new ArrayList<>(allStagings);
+      allStagings.clear();
+    }
+    // isClosed を読む前にキューへの追加を始めていたスレッドを待つ
+    for (Staging staging : created) {
+      while (staging.isEnqueuing) {
+        LockSupport.parkNanos(this, MAX_WAIT_NANOS);
+      }
+    }
+    isStopping = true;
+    LockSupport.unpark(drainer);
+    boolean interrupted = false;
+    while (drainer.isAlive()) {
+      try {
+        drainer.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    recorder.close();
+    // 終了したロガーのバッファをスレッドが保持し続けないようにする
+    created.forEach(Staging::invalidate);
+    stagings.remove();
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * ログを出力するスレッドごとのバッファ.
+   *
+   * <p>ログを格納する {@link Record} をリングバッファとして使う.
+   * 同じスレッドのログは出力した順に書き込まれるので, {@link Record} も格納した順に空きになる.
+   * スレッドローカル変数から参照されるので, ロガーへの参照を持たない.
+   */
+  private static final class Staging {
+    /** ログを格納する {@link Record}.  {@link #invalidate} を呼んだ後は null. */
+    private Record[] slots;
+    /** 次に使う {@link #slots} のインデックス. */
+    private int next = 0;
+    /** このバッファを使うスレッド. */
+    private final Thread owner = Thread.currentThread();
+    /**
+     * {@link #owner} がバッファの空きを待っている場合 true.
+     * 待機中のスレッドを 1 度だけ再開させるため, 再開させるスレッドが false に戻す.
+     */
+    private final AtomicBoolean isWaiting = new AtomicBoolean(false);
+    /** {@link #owner} がログをキューに追加している間 true. */
+    private volatile boolean isEnqueuing = false;
+
+    Staging(int numSlots) {
+      slots = new Record[numSlots];
+      for (int i = 0; i < slots.length; ++i) {
+        slots[i] = new Record(this);
+      }
+    }
+
+    /**
+     * ログを格納する {@link Record} を取得する.
+     *
+     * @return ログを格納する {@link Record}.  空きが無い場合は null.
+     */
+    Record tryAcquire() {
+      Record record = slots[next];
+      if (record.inUse) {
+        return null;
+      }
+      next = (next + 1) % slots.length;
+      record.inUse = true;
+      return record;
+    }
+
+    /** 次に使う {@link Record} が空きに戻るまで一定時間待つ. */
+    void awaitRelease() {
+      isWaiting.set(true);
+      if (slots[next].inUse) {
+        LockSupport.parkNanos(this, MAX_WAIT_NANOS);
+      }
+      isWaiting.set(false);
+    }
+
+    /**
+     * このバッファが保持している {@link Record} を解放する.
+     *
+     * <p>ロガーの終了処理で, 全てのスレッドがキューへの追加を終えた後に呼ぶ.
+     */
+    void invalidate() {
+      slots = null;
+    }
+  }
+
+  /** ログ 1 件分のテキストを格納するクラス. */
+  private static class Record {
+    /** このサイズ (Bytes) を超えたバッファは, 次に小さなログを格納するときに縮小する. */
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+    private static final int INITIAL_CAPACITY = 256;
+
+    /** UTF-8 でエンコードしたテキスト. */
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    /** {@link #data} を参照するバッファ. */
+    private ByteBuffer buf = ByteBuffer.wrap(data);
+    private int length = 0;
+    private LogLevel level;
+    /** 書き込み用のスレッドがこのオブジェクトを参照している間は true. */
+    private volatile boolean inUse = false;
+    /** キューの次の要素. */
+    private volatile Record next;
+    /** このオブジェクトを持つバッファ.  キューの番兵の場合は null. */
+    private final Staging staging;
+
+    Record(Staging staging) {
+      this.staging = staging;
+    }
+
+    /** {@code text} の position から limit までのデータを格納する. */
+    void set(LogLevel level, ByteBuffer text) {
+      int len = text.remaining();
+      if (data.length < len || (data.length > MAX_RETAINED_CAPACITY && len <= INITIAL_CAPACITY)) {
+        data = new byte[Math.max(len, INITIAL_CAPACITY)];
+        buf = ByteBuffer.wrap(data);
+      }
+      text.get(data, 0, len);
+      length = len;
+      this.level = level;
+    }
+
+    /** このオブジェクトを空きに戻して, バッファの空きを待っているスレッドがあれば再開させる. */
+    void release() {
+      inUse = false;
+      if (staging != null && staging.isWaiting.get() && staging.isWaiting.getAndSet(false)) {
+        LockSupport.unpark(staging.owner);
+      }
+    }
+
+    /** 格納したテキストを参照するバッファを返す. */
+    ByteBuffer buffer() {
+      return buf.clear().limit(length);
+    }
+
+    /** 格納したテキストを標準出力 (もしくは標準エラー出力) に出力する. */
+    void print() {
+      PrintStream ps = level.isSevere() ? System.err : System.out;
+      if (StandardCharsets.UTF_8.equals(ps.charset())) {
+        ps.write(data, 0, length);
+      } else {
+        ps.print(new String(data, 0, length, StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  /**
+   * 複数のスレッドが追加して 1 つのスレッドが取り出すキュー.
+   *
+   * <p>要素の追加は {@link AtomicReference#getAndSet} 1 回で完了し, ロックを取得しない.
+   * 先頭の要素はキューから取り出した後も番兵として参照されるので, 次の要素を取り出すときに空きに戻す.
+   */
+  private static class StagingQueue {
+    /** 最後に取り出した要素 (番兵). */
+    private Record head = new Record(null);
+    /** 最後に追加した要素. */
+    private final AtomicReference<Record> tail = new AtomicReference<>(head);
+
+    /** キューに {@code record} を追加する. */
+    void offer(Record record) {
+      record.next = null;
+      Record prev = tail.getAndSet(record);
+      prev.next = record;
+    }
+
+    /**
+     * キューから要素を取り出す.
+     *
+     * <p>書き込み用のスレッドからのみ呼ぶ.
+     *
+     * @return 取り出した要素.  キューが空の場合は null.
+     */
+    Record poll() {
+      Record next = head.next;
+      if (next == null) {
+        return null;
+      }
+      head.release();
+      head = next;
+      return next;
+    }
+
+    /** キューが空の場合 true を返す. */
+    boolean isEmpty() {
+      return head.next == null && tail.get() == head;
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ログを標準出力 (重要度が {@link LogLevel#WARN} 以上のものは標準エラー出力) に出力する {@link LogSink}.
+ *
+ * <p>ログはバッファにコピーするだけで, 出力は専用のスレッドがまとめて行う.
+ * 端末への出力が遅い場合でも, ログを出力するスレッドは待たされない.
+ * バッファが一杯の場合, ログは破棄され, 破棄した数を後で標準エラー出力に出力する.
+ *
+ * @author K.Koike
+ */
+public final class ConsoleSink implements LogSink {
+
+  /** バッファのサイズのデフォルト値. (Bytes) */
+  private static final int DEFAULT_CAPACITY = 256 * 1024;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  /** 出力するログが追加されたことを通知する. */
+  private final Condition notEmpty = lock.newCondition();
+  /** バッファのログを出力し終えたことを通知する. */
+  private final Condition drained = lock.newCondition();
+  /** 標準出力に出力するログ. */
+  private final Batch out;
+  /** 標準エラー出力に出力するログ. */
+  private final Batch err;
+  /** バッファが一杯で破棄したログの数. */
+  private long numDropped = 0;
+  /** 出力用のスレッドがログを出力している場合 true. */
+  private boolean isWriting = false;
+  private boolean isClosed = false;
+  /** ログを出力するスレッド. */
+  private final Thread writer;
+
+  /** コンストラクタ. */
+  public ConsoleSink() {
+    this(System.out, System.err, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param out 重要度が {@link LogLevel#WARN} 未満のログの出力先
+   * @param err 重要度が {@link LogLevel#WARN} 以上のログの出力先
+   * @param capacity 出力先ごとのバッファのサイズ (Bytes). (1 以上)
+   */
+  public ConsoleSink(PrintStream out, PrintStream err, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(
+          "'capacity' must be greater than 0.\n%s was set.".formatted(capacity));
+    }
+    this.out = new Batch(out, capacity);
+    this.err = new Batch(err, capacity);
+    writer = new Thread(this::drain, "ConsoleSink-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  public void write(LogLevel level, ByteBuffer record) {
+    Batch batch = level.isSevere() ? err : out;
+    lock.lock();
+    try {
+      if (isClosed) {
+        return;
+      }
+      if (!batch.add(record)) {
+        ++numDropped;
+        return;
+      }
+      notEmpty.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** バッファのログを全て出力するまで待つ. */
+  @Override
+  public void flush() {
+    lock.lock();
+    try {
+      while (!isClosed && (isWriting || !out.isEmpty() || !err.isEmpty())) {
+        drained.awaitUninterruptibly();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** バッファが一杯で破棄したログの数を返す. */
+  public long getNumDropped() {
+    lock.lock();
+    try {
+      return numDropped;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * バッファのログを出力する.
+   *
+   * <p>出力用のスレッドで実行される.
+   * {@link #close} が呼ばれた後, バッファが空になると終了する.
+   */
+  private void drain() {
+    long numDroppedReported = 0;
+    while (true) {
+      long dropped;
+      lock.lock();
+      try {
+        isWriting = false;
+        drained.signalAll();
+        while (!isClosed && out.isEmpty() && err.isEmpty()) {
+          notEmpty.awaitUninterruptibly();
+        }
+        if (isClosed && out.isEmpty() && err.isEmpty()) {
+          return;
+        }
+        isWriting = true;
+        out.swap();
+        err.swap();
+        dropped = numDropped - numDroppedReported;
+        numDroppedReported = numDropped;
+      } finally {
+        lock.unlock();
+      }
+      // 出力中のバッファはロックの外で読むが, 次に swap するまでログを出力するスレッドからは書き換えられない
+      out.print();
+      err.print();
+      if (dropped > 0) {
+        err.stream.println("%s log messages were dropped by ConsoleSink.".formatted(dropped));
+      }
+    }
+  }
+
+  /**
+   * 終了処理をする.
+   *
+   * <p>バッファのログを全て出力してから制御を返す.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      isClosed = true;
+      notEmpty.signal();
+      drained.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    boolean interrupted = false;
+    while (writer.isAlive()) {
+      try {
+        writer.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * 1 つの出力先に出力するログをまとめるバッファ.
+   *
+   * <p>ログを追加するバッファと出力中のバッファを入れ替えて使うので, ログ 1 件ごとにオブジェクトを作成しない.
+   */
+  private static class Batch {
+    private final PrintStream stream;
+    /** ログを追加するバッファ. */
+    private byte[] pending;
+    private int pendingLen = 0;
+    /** 出力中のバッファ. */
+    private byte[] writing;
+    private int writingLen = 0;
+
+    Batch(PrintStream stream, int capacity) {
+      this.stream = stream;
+      pending = new byte[capacity];
+      writing = new byte[capacity];
+    }
+
+    /**
+     * ログをバッファに追加する.
+     *
+     * @return バッファに空きが無く, ログを追加できなかった場合 false
+     */
+    boolean add(ByteBuffer record) {
+      int len = record.remaining();
+      if (len > pending.length - pendingLen) {
+        return false;
+      }
+      record.get(pending, pendingLen, len);
+      pendingLen += len;
+      return true;
+    }
+
+    boolean isEmpty() {
+      return pendingLen == 0;
+    }
+
+    /** ログを追加するバッファと出力中のバッファを入れ替える. */
+    void swap() {
+      byte[] tmp = writing;
+      writing = pending;
+      writingLen = pendingLen;
+      pending = tmp;
+      pendingLen = 0;
+    }
+
+    /** 出力中のバッファのログを出力する. */
+    void print() {
+      if (writingLen == 0) {
+        return;
+      }
+      if (StandardCharsets.UTF_8.equals(stream.charset())) {
+        stream.write(writing, 0, writingLen);
+      } else {
+        stream.print(new String(writing, 0, writingLen, StandardCharsets.UTF_8));
+      }
+      stream.flush();
+      writingLen = 0;
+    }
+  }
+}
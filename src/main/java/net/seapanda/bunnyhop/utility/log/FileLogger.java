@@ -17,11 +17,9 @@
 package net.seapanda.bunnyhop.utility.log;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import net.seapanda.bunnyhop.utility.Utility;
+import java.util.Objects;
 
 /**
  * ファイルにログを出力する機能を提供するクラス.
@@ -32,6 +30,20 @@ public class FileLogger implements Logger {
 
   private final TextRecorder recorder;
   private boolean isClosed = false;
+  private volatile CallerInfoMode callerInfoMode = CallerInfoMode.CACHED;
+  /** 同じログの出力を抑制するオブジェクト.  抑制しない場合は null. */
+  private volatile LogSuppressor suppressor;
+  /** 出力するログの重要度の下限. */
+  private volatile LogLevel level = LogLevel.INFO;
+  /** ファイルに出力しないログを保持するオブジェクト.  保持しない場合は null. */
+  private volatile FlightRecorder flightRecorder;
+  /**
+   * {@link #isEnabled} の判定に使う重要度の下限.
+   * {@link #level} と, {@link #flightRecorder} が保持するログの重要度の下限のうち, 低い方.
+   */
+  private volatile LogLevel enabledLevel = LogLevel.INFO;
+  /** {@link RecordFormat#BINARY} のログを作成するオブジェクト.  {@link RecordFormat#TEXT} の場合は null. */
+  private final BinaryRecordEncoder binaryEncoder;
   
   /**
    * コンストラクタ.
@@ -44,39 +56,332 @@ public class FileLogger implements Logger {
   public FileLogger(Path dirPath, String fileName, int maxFileSize, int maxFiles)
       throws IOException {
     recorder = new TextRecorder(dirPath, fileName, maxFileSize, maxFiles);
+    binaryEncoder = null;
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   */
+  public FileLogger(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      OutputMode mode,
+      FlushPolicy flushPolicy) throws IOException {
+    recorder = new TextRecorder(dirPath, fileName, maxFileSize, maxFiles, mode, flushPolicy);
+    binaryEncoder = null;
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   * @param retentionPolicy 書き込みが終わった出力先ファイルを保持する方法
+   */
+  public FileLogger(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      OutputMode mode,
+      FlushPolicy flushPolicy,
+      RetentionPolicy retentionPolicy) throws IOException {
+    this(
+        dirPath,
+        fileName,
+        maxFileSize,
+        maxFiles,
+        mode,
+        flushPolicy,
+        retentionPolicy,
+        RecordFormat.TEXT);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   * @param retentionPolicy 書き込みが終わった出力先ファイルを保持する方法
+   * @param format 出力先ファイルに書き込むログの形式
+   */
+  public FileLogger(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      OutputMode mode,
+      FlushPolicy flushPolicy,
+      RetentionPolicy retentionPolicy,
+      RecordFormat format) throws IOException {
+    binaryEncoder = (format == RecordFormat.BINARY) ? new BinaryRecordEncoder() : null;
+    recorder = new TextRecorder(
+        dirPath,
+        fileName,
+        maxFileSize,
+        maxFiles,
+        mode,
+        flushPolicy,
+        retentionPolicy,
+        (binaryEncoder == null) ? null : binaryEncoder::header);
   }
 
   /** デバッグ用エラーメッセージ出力メソッド. */
-  public synchronized void error(String msg) {
-    if (isClosed) {
+  @Override
+  public void error(String msg) {
+    log(LogLevel.ERROR, msg);
+  }
+
+  /** デバッグ用メッセージ出力メソッド. */
+  @Override
+  public void info(String msg) {
+    log(LogLevel.INFO, msg);
+  }
+
+  @Override
+  public void log(LogLevel level, String msg) {
+    if (!isEnabled(level)) {
       return;
     }
-    Date date = Calendar.getInstance().getTime();
-    msg = "[ERR] : %s @ %s\n%s\n----\n".formatted(
-        Utility.getMethodName(2),
-        new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(date),
-        msg);
-    System.err.print(msg);
-    recorder.write(msg);
+    String caller = callerInfoMode.getCallerName();
+    if (!isSuppressed(level, caller, msg)) {
+      write(level, caller, msg);
+    }
   }
 
-  /** デバッグ用メッセージ出力メソッド. */
-  public synchronized void info(String msg) {
+  @Override
+  public void log(LogLevel level, String format, Object arg) {
+    if (isEnabled(level)) {
+      write(level, callerInfoMode.getCallerName(), format, new Object[] {arg});
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object arg1, Object arg2) {
+    if (isEnabled(level)) {
+      write(level, callerInfoMode.getCallerName(), format, new Object[] {arg1, arg2});
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object arg1, Object arg2, Object arg3) {
+    if (isEnabled(level)) {
+      write(level, callerInfoMode.getCallerName(), format, new Object[] {arg1, arg2, arg3});
+    }
+  }
+
+  @Override
+  public void log(LogLevel level, String format, Object... args) {
+    if (isEnabled(level)) {
+      write(level, callerInfoMode.getCallerName(), format, args);
+    }
+  }
+
+  @Override
+  public boolean isEnabled(LogLevel level) {
+    return level.ordinal() >= enabledLevel.ordinal();
+  }
+
+  /**
+   * 出力するログの重要度の下限を設定する.
+   *
+   * <p>デフォルトは {@link LogLevel#INFO}.
+   *
+   * @param level この重要度以上のログを出力する
+   */
+  public synchronized void setLevel(LogLevel level) {
+    this.level = Objects.requireNonNull(level);
+    updateEnabledLevel();
+  }
+
+  /** 出力するログの重要度の下限を返す. */
+  public LogLevel getLevel() {
+    return level;
+  }
+
+  /**
+   * ファイルに出力しないログを保持する {@link FlightRecorder} を設定する.
+   *
+   * <p>{@link #setLevel} で設定した下限を下回る重要度のログは,
+   * {@link FlightRecorder#getCaptureLevel} 以上であれば {@code flightRecorder} に保持される.
+   * 保持したログは {@link LogLevel#ERROR} のログを出力する直前と, {@link #dumpFlightRecorder} を呼んだときに
+   * 出力先ファイルにだけ書き込まれる.
+   * {@link RecordFormat#BINARY} の場合は使用できない.
+   *
+   * @param flightRecorder ファイルに出力しないログを保持するオブジェクト.  保持しない場合は null.
+   * @throws IllegalStateException このオブジェクトが {@link RecordFormat#BINARY} でログを書き込む場合
+   */
+  public synchronized void setFlightRecorder(FlightRecorder flightRecorder) {
+    if (flightRecorder != null && binaryEncoder != null) {
+      throw new IllegalStateException(
+          "A flight recorder cannot be used with %s.".formatted(RecordFormat.BINARY));
+    }
+    this.flightRecorder = flightRecorder;
+    updateEnabledLevel();
+  }
+
+  /** {@link #enabledLevel} を更新する. */
+  private void updateEnabledLevel() {
+    FlightRecorder flightRecorder = this.flightRecorder;
+    enabledLevel = (flightRecorder != null && flightRecorder.getCaptureLevel().compareTo(level) < 0)
+        ? flightRecorder.getCaptureLevel() : level;
+  }
+
+  /**
+   * {@link #setFlightRecorder} で設定した {@link FlightRecorder} が保持しているログを出力先ファイルに書き込む.
+   *
+   * <p>{@link FlightRecorder} を設定していない場合は何もしない.
+   */
+  public synchronized void dumpFlightRecorder() {
+    FlightRecorder flightRecorder = this.flightRecorder;
+    if (!isClosed && flightRecorder != null) {
+      dump(flightRecorder);
+    }
+  }
+
+  /** {@code flightRecorder} が保持しているログを出力先ファイルに書き込む. */
+  private void dump(FlightRecorder flightRecorder) {
+    int numRecords = flightRecorder.getNumRecords();
+    if (numRecords == 0) {
+      return;
+    }
+    recorder.append(RecordEncoder.get().encode(
+        LogLevel.INFO.tag(),
+        FlightRecorder.class.getSimpleName(),
+        System.currentTimeMillis(),
+        "Dumping %s records held by the flight recorder.".formatted(numRecords)));
+    flightRecorder.dump(recorder::append);
+    recorder.applyFlushPolicy();
+  }
+
+  /**
+   * ログに出力する呼び出し元のメソッド名の取得方法を設定する.
+   *
+   * <p>デフォルトは {@link CallerInfoMode#CACHED}.
+   * レイテンシが重要な箇所では {@link CallerInfoMode#NONE} を指定することでコールスタックの走査を省略できる.
+   *
+   * @param mode 呼び出し元のメソッド名の取得方法
+   */
+  public void setCallerInfoMode(CallerInfoMode mode) {
+    callerInfoMode = Objects.requireNonNull(mode);
+  }
+
+  /**
+   * 同じログが短時間に大量に出力されたときに, ログを抑制する条件を設定する.
+   *
+   * <p>デフォルトでは抑制しない.
+   * 条件を変更すると, それまでに抑制したログの数を記したログを出力する.
+   *
+   * @param policy ログを抑制する条件.  抑制しない場合は null.
+   */
+  public synchronized void setSuppressionPolicy(SuppressionPolicy policy) {
+    LogSuppressor old = suppressor;
+    suppressor = (policy == null || isClosed) ? null : new LogSuppressor(policy, this::write);
+    if (old != null) {
+      old.close();
+    }
+  }
+
+  /** {@link #suppressor} がログを抑制する場合 true を返す. */
+  private boolean isSuppressed(LogLevel level, String caller, String template) {
+    LogSuppressor suppressor = this.suppressor;
+    return suppressor != null && !suppressor.tryAcquire(level, caller, template);
+  }
+
+  /**
+   * ログを 1 件作成して標準出力 (もしくは標準エラー出力) と出力先ファイルに書き込む.
+   *
+   * <p>{@link RecordFormat#BINARY} の場合, 出力先ファイルにだけ書き込む.
+   */
+  private synchronized void write(LogLevel level, String caller, String msg) {
     if (isClosed) {
       return;
     }
-    Date date = Calendar.getInstance().getTime();
-    msg = "[INFO] : %s @ %s\n%s\n----\n".formatted(
-        Utility.getMethodName(2),
-        new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(date),
-        msg);
-    System.out.print(msg);
-    recorder.write(msg);
+    FlightRecorder flightRecorder = this.flightRecorder;
+    if (level.compareTo(this.level) < 0) {
+      // ファイルに出力する重要度の下限を下回るログは, フライトレコーダにだけ保持する
+      if (flightRecorder != null) {
+        flightRecorder.add(RecordEncoder.get().encode(
+            level.tag(), caller, System.currentTimeMillis(), msg));
+      }
+      return;
+    }
+    if (flightRecorder != null && level == LogLevel.ERROR) {
+      dump(flightRecorder);
+    }
+    if (binaryEncoder != null) {
+      ByteBuffer record = binaryEncoder.encode(level, caller, System.currentTimeMillis(), msg);
+      binaryEncoder.commit(recorder.write(record));
+      return;
+    }
+    RecordEncoder encoder = RecordEncoder.get();
+    ByteBuffer record = encoder.encode(level.tag(), caller, System.currentTimeMillis(), msg);
+    encoder.print(level.isSevere() ? System.err : System.out);
+    recorder.write(record);
+  }
+
+  /**
+   * {@code format} を書式化したメッセージのログを 1 件作成して書き込む.
+   *
+   * <p>{@link RecordFormat#BINARY} の場合, 書式化せずに書式と引数を出力先ファイルに書き込む.
+   */
+  private void write(LogLevel level, String caller, String format, Object[] args) {
+    if (isSuppressed(level, caller, format)) {
+      return;
+    }
+    if (binaryEncoder == null) {
+      write(level, caller, format.formatted(args));
+      return;
+    }
+    synchronized (this) {
+      if (!isClosed) {
+        ByteBuffer record =
+            binaryEncoder.encode(level, caller, System.currentTimeMillis(), format, args);
+        binaryEncoder.commit(recorder.write(record));
+      }
+    }
+  }
+
+  /**
+   * 出力先ファイルに書き込んだログをフラッシュする.
+   *
+   * <p>{@link FlushPolicy#groupCommit} を指定した場合, このメソッドを呼んだ時点までのログがまとめてフラッシュされる.
+   */
+  public void flush() {
+    recorder.flush();
+  }
+
+  /**
+   * 出力先ファイルへの書き込みに関する統計情報のスナップショットを返す.
+   *
+   * @return 統計情報のスナップショット
+   */
+  public RecorderMetrics getMetrics() {
+    return recorder.getMetrics();
   }
 
   /** 終了処理をする. */
   public synchronized void close() {
+    // 抑制したログの数を書き込んでから終了する
+    setSuppressionPolicy(null);
     isClosed = true;
     recorder.close();
-  }  
+  }
 }
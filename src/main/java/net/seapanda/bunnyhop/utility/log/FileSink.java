@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * ログをファイルに出力する {@link LogSink}.
+ *
+ * <p>書き込んだログは {@link FlushPolicy} に従ってまとめてフラッシュされる.
+ *
+ * @author K.Koike
+ */
+public final class FileSink implements LogSink {
+
+  private final TextRecorder recorder;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   */
+  public FileSink(Path dirPath, String fileName, int maxFileSize, int maxFiles)
+      throws IOException {
+    recorder = new TextRecorder(dirPath, fileName, maxFileSize, maxFiles);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   * @param retentionPolicy 書き込みが終わった出力先ファイルを保持する方法
+   */
+  public FileSink(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      OutputMode mode,
+      FlushPolicy flushPolicy,
+      RetentionPolicy retentionPolicy) throws IOException {
+    recorder = new TextRecorder(
+        dirPath, fileName, maxFileSize, maxFiles, mode, flushPolicy, retentionPolicy);
+  }
+
+  @Override
+  public void write(LogLevel level, ByteBuffer record) {
+    recorder.write(record);
+  }
+
+  @Override
+  public void flush() {
+    recorder.flush();
+  }
+
+  /**
+   * 出力先ファイルへの書き込みに関する統計情報のスナップショットを返す.
+   *
+   * @return 統計情報のスナップショット
+   */
+  public RecorderMetrics getMetrics() {
+    return recorder.getMetrics();
+  }
+
+  @Override
+  public void close() {
+    recorder.close();
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 最近のログをメモリに保持して, エラーが発生したときにまとめて出力するためのクラス.
+ *
+ * <p>ログはヒープ外に確保した固定サイズのリングバッファにコピーして保持する.
+ * 空きが無い場合は古いログから上書きするので, 保持するログの数はログの長さに依存する.
+ * ログの保持ではオブジェクトを作成しない.
+ *
+ * <p>{@link FileLogger#setFlightRecorder} で {@link FileLogger} に設定すると,
+ * ファイルに出力する重要度の下限を下回るログを, {@link #getCaptureLevel} 以上であればこのオブジェクトに保持する.
+ * 保持したログは {@link LogLevel#ERROR} のログを出力したときと {@link FileLogger#dumpFlightRecorder} を呼んだときに,
+ * 古いものから順にファイルに書き込まれる.
+ *
+ * @author K.Koike
+ */
+public final class FlightRecorder {
+
+  /** ログを保持するリングバッファ.  各ログの先頭に長さ (int) を付けて格納する. */
+  private final ByteBuffer ring;
+  /** 保持するログの重要度の下限. */
+  private final LogLevel captureLevel;
+  /** 最も古いログの位置. */
+  private int head = 0;
+  /** 次にログを格納する位置. */
+  private int tail = 0;
+  /** 使用中のサイズ. (Bytes) */
+  private int used = 0;
+  /** 保持しているログの数. */
+  private int numRecords = 0;
+  /** 上書きしたログ, もしくは長すぎて保持できなかったログの数. */
+  private long numDiscarded = 0;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param capacity リングバッファのサイズ (Bytes).  (1 以上)
+   * @param captureLevel 保持するログの重要度の下限
+   */
+  public FlightRecorder(int capacity, LogLevel captureLevel) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(
+          "'capacity' must be greater than 0.\n%s was set.".formatted(capacity));
+    }
+    ring = ByteBuffer.allocateDirect(capacity);
+    this.captureLevel = Objects.requireNonNull(captureLevel);
+  }
+
+  /** 保持するログの重要度の下限を返す. */
+  public LogLevel getCaptureLevel() {
+    return captureLevel;
+  }
+
+  /** 保持しているログの数を返す. */
+  public synchronized int getNumRecords() {
+    return numRecords;
+  }
+
+  /** 上書きしたログ, もしくは長すぎて保持できなかったログの数を返す. */
+  public synchronized long getNumDiscarded() {
+    return numDiscarded;
+  }
+
+  /** 保持しているログを消去する. */
+  public synchronized void clear() {
+    head = 0;
+    tail = 0;
+    used = 0;
+    numRecords = 0;
+  }
+
+  /**
+   * ログを 1 件保持する.
+   *
+   * @param record 保持するログ.  position から limit までのデータを保持する.
+   */
+  synchronized void add(ByteBuffer record) {
+    int len = record.remaining();
+    int size = Integer.BYTES + len;
+    if (size > ring.capacity()) {
+      ++numDiscarded;
+      return;
+    }
+    while (ring.capacity() - used < size) {
+      int oldest = getInt(head);
+      head = (head + Integer.BYTES + oldest) % ring.capacity();
+      used -= Integer.BYTES + oldest;
+      --numRecords;
+      ++numDiscarded;
+    }
+    putInt(tail, len);
+    int pos = (tail + Integer.BYTES) % ring.capacity();
+    int first = Math.min(len, ring.capacity() - pos);
+    ring.put(pos, record, record.position(), first);
+    ring.put(0, record, record.position() + first, len - first);
+    tail = (tail + size) % ring.capacity();
+    used += size;
+    ++numRecords;
+  }
+
+  /**
+   * 保持しているログを古いものから順に {@code out} に渡して, 消去する.
+   *
+   * @param out ログを受け取る関数.  渡されたバッファは関数から制御が返るまでの間だけ有効である.
+   * @return {@code out} に渡したログの数
+   */
+  synchronized int dump(Consumer<ByteBuffer> out) {
+    int numDumped = numRecords;
+    byte[] buf = new byte[Math.min(used, ring.capacity())];
+    while (numRecords > 0) {
+      int len = getInt(head);
+      int pos = (head + Integer.BYTES) % ring.capacity();
+      int first = Math.min(len, ring.capacity() - pos);
+      ring.get(pos, buf, 0, first);
+      ring.get(0, buf, first, len - first);
+      head = (head + Integer.BYTES + len) % ring.capacity();
+      --numRecords;
+      out.accept(ByteBuffer.wrap(buf, 0, len));
+    }
+    clear();
+    return numDumped;
+  }
+
+  /** リングバッファの {@code index} から int 値を書き込む. */
+  private void putInt(int index, int value) {
+    for (int i = 0; i < Integer.BYTES; ++i) {
+      ring.put((index + i) % ring.capacity(), (byte) (value >>> (24 - 8 * i)));
+    }
+  }
+
+  /** リングバッファの {@code index} から int 値を読む. */
+  private int getInt(int index) {
+    int value = 0;
+    for (int i = 0; i < Integer.BYTES; ++i) {
+      value = (value << 8) | (ring.get((index + i) % ring.capacity()) & 0xff);
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "FlightRecorder(capacity = %s, captureLevel = %s, records = %s, discarded = %s)"
+        .formatted(ring.capacity(), captureLevel, numRecords, numDiscarded);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+/**
+ * {@link TextRecorder} が書き込んだデータをフラッシュするタイミングを表すクラス.
+ *
+ * <p>フラッシュはバッファリングしたデータを OS に渡す処理である.
+ * {@link #withForce} で force を有効にすると, フラッシュの後にデータをストレージデバイスに同期 (fsync) する.
+ *
+ * @author K.Koike
+ */
+public final class FlushPolicy {
+
+  /** フラッシュを行う条件. */
+  private final Trigger trigger;
+  /** {@link Trigger#EVERY_BYTES} のときはバイト数. {@link Trigger#EVERY_MILLIS} のときはミリ秒. */
+  private final long threshold;
+  /** フラッシュの後にストレージデバイスへの同期を行う場合 true. */
+  private final boolean force;
+
+  private FlushPolicy(Trigger trigger, long threshold, boolean force) {
+    this.trigger = trigger;
+    this.threshold = threshold;
+    this.force = force;
+  }
+
+  /** ログを 1 件書き込むたびにフラッシュする {@link FlushPolicy} を返す. */
+  public static FlushPolicy everyRecord() {
+    return new FlushPolicy(Trigger.EVERY_RECORD, 0, false);
+  }
+
+  /**
+   * 前回のフラッシュから書き込んだデータが {@code numBytes} バイト以上になったときにフラッシュする
+   * {@link FlushPolicy} を返す.
+   *
+   * @param numBytes フラッシュを行うデータのサイズ (Bytes). (1 以上)
+   */
+  public static FlushPolicy everyBytes(long numBytes) {
+    if (numBytes < 1) {
+      throw new IllegalArgumentException(
+          "'numBytes' must be greater than 0.\n%s was set.".formatted(numBytes));
+    }
+    return new FlushPolicy(Trigger.EVERY_BYTES, numBytes, false);
+  }
+
+  /**
+   * 前回のフラッシュから {@code millis} ミリ秒以上経過したときにフラッシュする {@link FlushPolicy} を返す.
+   *
+   * <p>ログの書き込みが無い間も, フラッシュされていないデータは {@code millis} ミリ秒以内にフラッシュされる.
+   *
+   * @param millis フラッシュを行う間隔 (ms). (1 以上)
+   */
+  public static FlushPolicy everyMillis(long millis) {
+    if (millis < 1) {
+      throw new IllegalArgumentException(
+          "'millis' must be greater than 0.\n%s was set.".formatted(millis));
+    }
+    return new FlushPolicy(Trigger.EVERY_MILLIS, millis, false);
+  }
+
+  /**
+   * {@link FileLogger#flush} などで明示的に指示されたときにフラッシュする {@link FlushPolicy} を返す.
+   *
+   * <p>バッファが一杯になった場合, ファイルのローテーションを行う場合, 終了処理を行う場合もフラッシュする.
+   */
+  public static FlushPolicy groupCommit() {
+    return new FlushPolicy(Trigger.GROUP_COMMIT, 0, false);
+  }
+
+  /**
+   * フラッシュの後にストレージデバイスへの同期を行うかどうかを変更した {@link FlushPolicy} を返す.
+   *
+   * @param force フラッシュの後にストレージデバイスへの同期を行う場合 true
+   */
+  public FlushPolicy withForce(boolean force) {
+    return new FlushPolicy(trigger, threshold, force);
+  }
+
+  /** フラッシュの後にストレージデバイスへの同期を行う場合 true を返す. */
+  public boolean isForceEnabled() {
+    return force;
+  }
+
+  /** フラッシュを行う条件を返す. */
+  Trigger trigger() {
+    return trigger;
+  }
+
+  /** フラッシュを行う条件の閾値を返す. */
+  long threshold() {
+    return threshold;
+  }
+
+  @Override
+  public String toString() {
+    return "FlushPolicy(%s, %s, force = %s)".formatted(trigger, threshold, force);
+  }
+
+  /** フラッシュを行う条件. */
+  enum Trigger {
+    EVERY_RECORD,
+    EVERY_BYTES,
+    EVERY_MILLIS,
+    GROUP_COMMIT,
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IllegalFormatException;
+import java.util.List;
+
+/**
+ * {@link RecordFormat#BINARY} で書き込んだログファイルをテキスト形式に変換するクラス.
+ *
+ * <pre>
+ * コマンドラインからの使い方
+ *   java -cp BhUtility.jar net.seapanda.bunnyhop.utility.log.LogDecoder ファイル...
+ *   java -cp BhUtility.jar net.seapanda.bunnyhop.utility.log.LogDecoder --dir ディレクトリ 共通部分の名前
+ *
+ * 変換したテキストは標準出力に UTF-8 で出力する.
+ * --dir を指定した場合, {@link LogSegments#list} で取得したファイルを古い順に変換する.
+ * </pre>
+ *
+ * @author K.Koike
+ */
+public final class LogDecoder {
+
+  private static final String USAGE = """
+      usage: LogDecoder <file>...
+             LogDecoder --dir <directory> <file name>""";
+
+  private final TimestampCache timestamp = new TimestampCache();
+  /** 辞書に登録された文字列.  インデックスが ID となる. */
+  private final List<String> entries = new ArrayList<>();
+
+  private LogDecoder() {}
+
+  /** コマンドラインから呼ばれるメソッド. */
+  public static void main(String[] args) throws IOException {
+    List<Path> files = new ArrayList<>();
+    if (args.length == 3 && args[0].equals("--dir")) {
+      files.addAll(LogSegments.list(Path.of(args[1]), args[2]));
+    } else if (args.length > 0 && !args[0].startsWith("--")) {
+      Arrays.stream(args).map(Path::of).forEach(files::add);
+    } else {
+      System.err.println(USAGE);
+      System.exit(1);
+    }
+    Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    for (Path file : files) {
+      try (InputStream in = LogSegments.newInputStream(file)) {
+        decode(in, out);
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * {@code in} から読んだログをテキスト形式に変換して {@code out} に書き込む.
+   *
+   * <p>{@link RecordFormat#TEXT} で書き込んだデータは, そのまま {@code out} に書き込む.
+   * ファイルの末尾のログが途中で途切れている場合, そのログは無視する.
+   *
+   * @param in ログファイル 1 つ分のデータを読むストリーム
+   * @param out 変換したテキストの書き込み先
+   */
+  public static void decode(InputStream in, Appendable out) throws IOException {
+    var bufIn = new BufferedInputStream(in);
+    byte[] magic = BinaryRecordEncoder.MAGIC;
+    bufIn.mark(magic.length + 1);
+    byte[] head = bufIn.readNBytes(magic.length + 1);
+    if (head.length == magic.length + 1
+        && Arrays.equals(head, 0, magic.length, magic, 0, magic.length)
+        && head[magic.length] == BinaryRecordEncoder.VERSION) {
+      new LogDecoder().decodeRecords(new DataInputStream(bufIn), out);
+    } else {
+      bufIn.reset();
+      copyText(bufIn, out);
+    }
+  }
+
+  /** ヘッダ以降のログを変換する. */
+  private void decodeRecords(DataInputStream in, Appendable out) throws IOException {
+    try {
+      while (true) {
+        int type = in.read();
+        // 0 はメモリマップしたファイルを切り詰める前に終了した場合の未使用領域
+        if (type <= 0) {
+          return;
+        }
+        switch (type) {
+          case BinaryRecordEncoder.ENTRY -> addEntry(in.readInt(), readString(in));
+          case BinaryRecordEncoder.MESSAGE -> {
+            LogLevel level = readLevel(in);
+            long timeMillis = in.readLong();
+            String caller = readRef(in);
+            render(out, level, caller, timeMillis, readString(in));
+          }
+          case BinaryRecordEncoder.FORMAT -> {
+            LogLevel level = readLevel(in);
+            long timeMillis = in.readLong();
+            String caller = readRef(in);
+            String format = readRef(in);
+            Object[] args = new Object[in.readInt()];
+            for (int i = 0; i < args.length; ++i) {
+              args[i] = readArg(in);
+            }
+            render(out, level, caller, timeMillis, formatMessage(format, args));
+          }
+          default -> throw new IOException("Unknown record type (%s).".formatted(type));
+        }
+      }
+    } catch (EOFException e) { /* do nothing */ }
+  }
+
+  /** 辞書に文字列を登録する. */
+  private void addEntry(int id, String str) throws IOException {
+    if (id < 0 || id > entries.size()) {
+      throw new IOException("Invalid dictionary entry (%s).".formatted(id));
+    }
+    if (id == entries.size()) {
+      entries.add(str);
+    } else {
+      entries.set(id, str);
+    }
+  }
+
+  /** ログの重要度を読む. */
+  private static LogLevel readLevel(DataInputStream in) throws IOException {
+    int ordinal = in.readUnsignedByte();
+    if (ordinal >= LogLevel.values().length) {
+      throw new IOException("Unknown log level (%s).".formatted(ordinal));
+    }
+    return LogLevel.values()[ordinal];
+  }
+
+  /** 文字列参照を読んで, 参照先の文字列を返す. */
+  private String readRef(DataInputStream in) throws IOException {
+    int id = in.readInt();
+    if (id == BinaryRecordEncoder.INLINE) {
+      return readString(in);
+    }
+    if (id < 0 || id >= entries.size()) {
+      throw new IOException("Undefined dictionary entry (%s).".formatted(id));
+    }
+    return entries.get(id);
+  }
+
+  /** UTF-8 でエンコードされた文字列を読む. */
+  private static String readString(DataInputStream in) throws IOException {
+    int len = in.readInt();
+    if (len < 0) {
+      throw new IOException("Invalid string length (%s).".formatted(len));
+    }
+    return new String(in.readNBytes(len), StandardCharsets.UTF_8);
+  }
+
+  /** 書式の引数を読む. */
+  private static Object readArg(DataInputStream in) throws IOException {
+    int type = in.readUnsignedByte();
+    return switch (type) {
+      case BinaryRecordEncoder.ARG_NULL -> null;
+      case BinaryRecordEncoder.ARG_BYTE -> in.readByte();
+      case BinaryRecordEncoder.ARG_SHORT -> in.readShort();
+      case BinaryRecordEncoder.ARG_INT -> in.readInt();
+      case BinaryRecordEncoder.ARG_LONG -> in.readLong();
+      case BinaryRecordEncoder.ARG_FLOAT -> in.readFloat();
+      case BinaryRecordEncoder.ARG_DOUBLE -> in.readDouble();
+      case BinaryRecordEncoder.ARG_BOOLEAN -> in.readByte() != 0;
+      case BinaryRecordEncoder.ARG_CHAR -> in.readChar();
+      case BinaryRecordEncoder.ARG_STRING -> readString(in);
+      default -> throw new IOException("Unknown argument type (%s).".formatted(type));
+    };
+  }
+
+  /** {@code format} を書式化する.  書式と引数が合わない場合は, 書式と引数を並べた文字列を返す. */
+  private static String formatMessage(String format, Object[] args) {
+    try {
+      return format.formatted(args);
+    } catch (IllegalFormatException e) {
+      return format + " " + Arrays.toString(args);
+    }
+  }
+
+  /** {@link RecordFormat#TEXT} と同じ形式でログを 1 件書き込む. */
+  private void render(
+      Appendable out, LogLevel level, String caller, long timeMillis, String msg)
+      throws IOException {
+    out.append('[').append(level.tag()).append("] : ")
+        .append(caller).append(" @ ").append(timestamp.get(timeMillis)).append('\n')
+        .append(msg).append("\n----\n");
+  }
+
+  /** {@code in} から読んだテキストをそのまま {@code out} に書き込む. */
+  private static void copyText(InputStream in, Appendable out) throws IOException {
+    Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+    char[] chars = new char[8192];
+    int len;
+    while ((len = reader.read(chars)) > 0) {
+      out.append(CharBuffer.wrap(chars, 0, len));
+    }
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.nio.file.Path;
+
+/**
+ * {@link LogReader} で読んだログ 1 件分の情報.
+ *
+ * @param segment ログを格納していたセグメントのパス
+ * @param level ログの重要度
+ * @param caller ログ出力を行ったメソッドの名前
+ * @param timeMillis ログ出力を行った時刻 (エポックミリ秒).  ログファイルの時刻は秒単位なので, 1000 の倍数となる.
+ * @param message ログメッセージ
+ * @author K.Koike
+ */
+public record LogEntry(
+    Path segment, LogLevel level, String caller, long timeMillis, String message) {}
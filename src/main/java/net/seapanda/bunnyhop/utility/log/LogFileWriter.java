@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link TextRecorder} が 1 つの出力先ファイルにデータを書き込むために使用するインタフェース.
+ *
+ * @author K.Koike
+ */
+interface LogFileWriter extends Closeable {
+
+  /**
+   * 出力先ファイルにデータを書き込む.
+   *
+   * <p>実装によってはデータをバッファリングし, {@link #flush} を呼ぶまで OS に渡さない.
+   *
+   * @param data 書き込むデータ.  position から limit までのデータを書き込む.
+   */
+  void write(ByteBuffer data) throws IOException;
+
+  /** バッファリングしたデータを OS に渡す. */
+  void flush() throws IOException;
+
+  /** OS に渡したデータをストレージデバイスに同期する. */
+  void force() throws IOException;
+
+  /**
+   * 出力先ファイルのサイズを返す.
+   *
+   * @return 出力先ファイルのサイズ. (Bytes)  バッファリングしたデータを含む.
+   */
+  long size();
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+/**
+ * ログの重要度.
+ *
+ * <p>後に定義したものほど重要度が高い.
+ *
+ * @author K.Koike
+ */
+public enum LogLevel {
+
+  /** 処理の流れを追跡するための詳細な情報. */
+  TRACE("TRACE"),
+  /** デバッグ用の情報. */
+  DEBUG("DEBUG"),
+  /** 通常の動作に関する情報. */
+  INFO("INFO"),
+  /** 処理は継続できるが, 注意が必要な事象. */
+  WARN("WARN"),
+  /** エラー. */
+  ERROR("ERR");
+
+  /** ログの先頭に付けるタグ. */
+  private final String tag;
+
+  private LogLevel(String tag) {
+    this.tag = tag;
+  }
+
+  /** ログの先頭に付けるタグを返す. */
+  String tag() {
+    return tag;
+  }
+
+  /** この重要度のログを標準エラー出力に出力する場合 true を返す. */
+  boolean isSevere() {
+    return this.ordinal() >= WARN.ordinal();
+  }
+}
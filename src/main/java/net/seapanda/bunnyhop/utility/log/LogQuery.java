@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * {@link LogReader} で検索するログの条件を表すクラス.
+ *
+ * <p>条件は全て AND で結合される.
+ *
+ * @author K.Koike
+ */
+public final class LogQuery {
+
+  /** 検索するログの時刻の下限 (この値を含む).  (エポックミリ秒) */
+  private final long fromMillis;
+  /** 検索するログの時刻の上限 (この値を含まない).  (エポックミリ秒) */
+  private final long toMillis;
+  /** 検索するログの重要度の下限. */
+  private final LogLevel minLevel;
+  /** ログに含まれる文字列を UTF-8 でエンコードしたもの.  条件が無い場合は null. */
+  private final byte[] text;
+
+  private LogQuery(long fromMillis, long toMillis, LogLevel minLevel, byte[] text) {
+    this.fromMillis = fromMillis;
+    this.toMillis = toMillis;
+    this.minLevel = minLevel;
+    this.text = text;
+  }
+
+  /** 全てのログにマッチする条件を返す. */
+  public static LogQuery all() {
+    return new LogQuery(Long.MIN_VALUE, Long.MAX_VALUE, LogLevel.TRACE, null);
+  }
+
+  /**
+   * ログの時刻の範囲を変更した条件を返す.
+   *
+   * <p>ログファイルの時刻は秒単位なので, 時刻は秒単位で比較される.
+   *
+   * @param from 検索するログの時刻の下限 (この値を含む)
+   * @param to 検索するログの時刻の上限 (この値を含まない)
+   * @return 新しい条件
+   */
+  public LogQuery withTimeRange(Instant from, Instant to) {
+    Objects.requireNonNull(from);
+    Objects.requireNonNull(to);
+    if (from.isAfter(to)) {
+      throw new IllegalArgumentException(
+          "'from' must not be after 'to'.\nfrom = %s, to = %s".formatted(from, to));
+    }
+    return new LogQuery(toEpochMilli(from), toEpochMilli(to), minLevel, text);
+  }
+
+  /** {@code instant} をエポックミリ秒に変換する.  {@code long} の範囲を超える場合は範囲内に丸める. */
+  private static long toEpochMilli(Instant instant) {
+    try {
+      return instant.toEpochMilli();
+    } catch (ArithmeticException e) {
+      return instant.isBefore(Instant.EPOCH) ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+  }
+
+  /**
+   * ログの重要度の下限を変更した条件を返す.
+   *
+   * @param minLevel 検索するログの重要度の下限
+   * @return 新しい条件
+   */
+  public LogQuery withMinLevel(LogLevel minLevel) {
+    return new LogQuery(fromMillis, toMillis, Objects.requireNonNull(minLevel), text);
+  }
+
+  /**
+   * ログに含まれる文字列を変更した条件を返す.
+   *
+   * <p>ヘッダ (重要度, メソッド名, 時刻) とメッセージのどちらかに {@code text} を含むログがマッチする.
+   *
+   * @param text ログに含まれる文字列.  大文字と小文字を区別する.
+   * @return 新しい条件
+   */
+  public LogQuery withText(String text) {
+    Objects.requireNonNull(text);
+    return new LogQuery(fromMillis, toMillis, minLevel, text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** 時刻が {@code minMillis} から {@code maxMillis} までのログが条件にマッチし得る場合 true を返す. */
+  boolean overlaps(long minMillis, long maxMillis) {
+    return minMillis < toMillis && maxMillis >= fromMillis;
+  }
+
+  /** 時刻が {@code timeMillis} のログが時刻の条件にマッチする場合 true を返す. */
+  boolean containsTime(long timeMillis) {
+    return fromMillis <= timeMillis && timeMillis < toMillis;
+  }
+
+  /** 重要度の集合を表すビットマスク {@code levels} にマッチする重要度が含まれる場合 true を返す. */
+  boolean matchesAnyLevel(int levels) {
+    return (levels >>> minLevel.ordinal()) != 0;
+  }
+
+  /** 重要度が {@code level} のログが重要度の条件にマッチする場合 true を返す. */
+  boolean matchesLevel(LogLevel level) {
+    return level.compareTo(minLevel) >= 0;
+  }
+
+  /** ログに含まれる文字列.  条件が無い場合は null. */
+  byte[] text() {
+    return text;
+  }
+
+  @Override
+  public String toString() {
+    return "LogQuery(from = %s, to = %s, minLevel = %s, text = %s)".formatted(
+        fromMillis,
+        toMillis,
+        minLevel,
+        (text == null) ? null : new String(text, StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,525 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link TextRecorder} が書き込んだログファイルからログを検索するクラス.
+ *
+ * <p>セグメントごとに, 一定数のログをまとめたブロックの先頭位置, 時刻の範囲, 重要度の集合を記録した疎なインデックスを作成する.
+ * 検索時は条件にマッチし得るブロックだけを読むので, 時刻や重要度で絞り込む検索では大半のセグメントを読まずに済む.
+ * 書き込みが終わったセグメントのインデックスは最初の検索時に 1 度だけ作成し,
+ * 書き込み中のセグメントのインデックスは検索のたびに追加された部分だけを更新する.
+ *
+ * <p>セグメントは並列に検索する.
+ * 書き込みが終わった非圧縮のテキストのセグメントはメモリマップして読み, 検索が終わるとマップを解除する.
+ * 書き込み中のセグメントは, 書き込み側がファイルを切り詰めても影響を受けないようにヒープに読み込む.
+ * 前回の検索で読んだ部分はそのまま使い, インデックスを作成した位置より後ろだけをファイルから読む.
+ * 圧縮されたセグメントと {@link RecordFormat#BINARY} のセグメントは, 展開してテキスト形式に変換してから読む.
+ * いずれの場合もファイルを読み取り専用で開くだけなので, 書き込み側の処理を待たせない.
+ * 書き込み側がフラッシュしていないログと, 末尾で途切れているログは検索の対象にならない.
+ *
+ * <p>このクラスはスレッドセーフである.
+ *
+ * @author K.Koike
+ */
+public final class LogReader {
+
+  /** インデックスの 1 ブロックに含めるログの数. */
+  private static final int RECORDS_PER_BLOCK = 64;
+  /** 書き込み中のセグメントを 1 度に読むサイズ. (Bytes) */
+  private static final int ACTIVE_READ_SIZE = 64 * 1024;
+  /** ログの終わりを表すバイト列. */
+  private static final byte[] DELIMITER = "\n----\n".getBytes(StandardCharsets.UTF_8);
+  /** ヘッダのタグとメソッド名の区切り. */
+  private static final byte[] TAG_END = "] : ".getBytes(StandardCharsets.UTF_8);
+  /** ヘッダのメソッド名と時刻の区切り. */
+  private static final byte[] TIME_SEPARATOR = " @ ".getBytes(StandardCharsets.UTF_8);
+  /** ヘッダの時刻の文字列 "yyyy/MM/dd HH:mm:ss" の長さ. */
+  private static final int TIMESTAMP_LENGTH = 19;
+  /** {@link LogLevel} の順序で並べた各重要度のタグ. */
+  private static final byte[][] TAGS = Arrays.stream(LogLevel.values())
+      .map(level -> level.tag().getBytes(StandardCharsets.UTF_8))
+      .toArray(byte[][]::new);
+
+  private final LogSegments segments;
+  /** セグメントのパスとインデックスのマップ. */
+  private final Map<Path, SegmentIndex> indexes = new ConcurrentHashMap<>();
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath ログファイルを格納するディレクトリのパス
+   * @param fileName ログファイルの共通部分の名前
+   */
+  public LogReader(Path dirPath, String fileName) {
+    segments = new LogSegments(dirPath, fileName);
+  }
+
+  /**
+   * {@code query} にマッチするログを検索する.
+   *
+   * @param query 検索するログの条件
+   * @return {@code query} にマッチするログのリスト.  ファイルに書き込まれた順に並ぶ.
+   */
+  public List<LogEntry> search(LogQuery query) throws IOException {
+    List<Path> paths = segments.list();
+    // 削除されたセグメントのインデックスを捨てる
+    indexes.keySet().retainAll(new HashSet<>(paths));
+    Path active = paths.isEmpty() ? null : paths.getLast();
+    try {
+      return paths.parallelStream()
+          .flatMap(path -> searchSegment(path, path.equals(active), query).stream())
+          .toList();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /** {@code path} のセグメントから {@code query} にマッチするログを検索する. */
+  private List<LogEntry> searchSegment(Path path, boolean isActive, LogQuery query) {
+    SegmentIndex index = indexes.computeIfAbsent(path, SegmentIndex::new);
+    try {
+      return index.search(query, isActive);
+    } catch (NoSuchFileException e) {
+      indexes.remove(path, index);
+      // 検索中に圧縮したファイルに置き換えられた場合は, 圧縮したファイルを検索する
+      for (Compression compression : Compression.values()) {
+        Path compressed = path.resolveSibling(path.getFileName() + compression.suffix());
+        if (compression != Compression.NONE && Files.exists(compressed)) {
+          return searchSegment(compressed, false, query);
+        }
+      }
+      // 検索中に削除された
+      return List.of();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * 書き込みが終わったセグメントのデータを読む.
+   *
+   * @param path 読むセグメントのパス
+   * @return セグメントのデータをテキスト形式で格納したバッファ
+   */
+  private static ByteBuffer load(Path path) throws IOException {
+    if (!isText(path)) {
+      return decode(path);
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (isBinary(channel)) {
+        return decode(path);
+      }
+      int size = (int) Math.min(channel.size(), Integer.MAX_VALUE);
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+  }
+
+  /** {@code path} が圧縮されていないセグメントのパスである場合 true を返す. */
+  private static boolean isText(Path path) {
+    return path.getFileName().toString().endsWith(".log");
+  }
+
+  /** {@code channel} のファイルが {@link RecordFormat#BINARY} で書き込まれている場合 true を返す. */
+  private static boolean isBinary(FileChannel channel) throws IOException {
+    byte[] magic = BinaryRecordEncoder.MAGIC;
+    ByteBuffer head = ByteBuffer.allocate(magic.length + 1);
+    while (head.hasRemaining() && channel.read(head, head.position()) > 0) { /* do nothing */ }
+    return !head.hasRemaining()
+        && Arrays.equals(head.array(), 0, magic.length, magic, 0, magic.length)
+        && head.get(magic.length) == BinaryRecordEncoder.VERSION;
+  }
+
+  /** {@code path} のセグメントをテキスト形式に変換してバッファに格納する. */
+  private static ByteBuffer decode(Path path) throws IOException {
+    var text = new StringBuilder();
+    try (InputStream in = LogSegments.newInputStream(path)) {
+      LogDecoder.decode(in, text);
+    }
+    return ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** {@link #load} で読んだバッファを解放する. */
+  private static void release(ByteBuffer buf) {
+    if (buf instanceof MappedByteBuffer mapped) {
+      MappedLogFileWriter.unmap(mapped);
+    }
+  }
+
+  /**
+   * {@code buf} の {@code from} から {@code to} までの範囲で {@code pattern} を探す.
+   *
+   * @return {@code pattern} が最初に現れる位置.  見つからない場合は -1.
+   */
+  private static int indexOf(ByteBuffer buf, byte[] pattern, int from, int to) {
+    byte first = pattern[0];
+    int last = to - pattern.length;
+    for (int i = from; i <= last; ++i) {
+      if (buf.get(i) != first) {
+        continue;
+      }
+      int j = 1;
+      while (j < pattern.length && buf.get(i + j) == pattern[j]) {
+        ++j;
+      }
+      if (j == pattern.length) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** {@code buf} の {@code from} から {@code to} までのバイト列を UTF-8 の文字列に変換する. */
+  private static String decodeUtf8(ByteBuffer buf, int from, int to) {
+    if (from >= to) {
+      return "";
+    }
+    byte[] bytes = new byte[to - from];
+    buf.get(from, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 1 件のログの位置を表すクラス.
+   *
+   * <p>ログを 1 件ずつ読み進めるので, ログ 1 件ごとにオブジェクトを作成しない.
+   */
+  private static final class Cursor {
+    private final ByteBuffer buf;
+    /** 読み取り範囲の末尾. */
+    private final int limit;
+    /** ログの先頭の位置. */
+    private int start;
+    /** ヘッダの行末 ('\n') の位置. */
+    private int lineEnd;
+    /** ログの終わりを表すバイト列の位置. */
+    private int end;
+    /** 最後に変換した時刻の文字列.  同じ秒のログが続く場合に変換を省く. */
+    private final byte[] lastTimestamp = new byte[TIMESTAMP_LENGTH];
+    /** {@link #lastTimestamp} を変換した時刻.  (エポックミリ秒) */
+    private long lastTimeMillis = Long.MIN_VALUE;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    Cursor(ByteBuffer buf, int start, int limit) {
+      this.buf = buf;
+      this.start = start;
+      this.end = start - DELIMITER.length;
+      this.limit = limit;
+    }
+
+    /**
+     * 次のログに進む.
+     *
+     * @return 次のログが最後まで書き込まれている場合 true
+     */
+    boolean next() {
+      int pos = end + DELIMITER.length;
+      // 0 はメモリマップしたファイルの未使用領域
+      if (pos >= limit || buf.get(pos) == 0) {
+        return false;
+      }
+      int delimiter = indexOf(buf, DELIMITER, pos, limit);
+      if (delimiter < 0) {
+        return false;
+      }
+      start = pos;
+      end = delimiter;
+      lineEnd = end;
+      for (int i = start; i < end; ++i) {
+        if (buf.get(i) == '\n') {
+          lineEnd = i;
+          break;
+        }
+      }
+      return true;
+    }
+
+    /** 次のログの先頭の位置を返す. */
+    int nextStart() {
+      return end + DELIMITER.length;
+    }
+
+    /** ログの重要度を返す.  ヘッダの形式が正しくない場合は null. */
+    LogLevel level() {
+      if (buf.get(start) != '[') {
+        return null;
+      }
+      int tagEnd = indexOf(buf, TAG_END, start, lineEnd);
+      if (tagEnd < 0) {
+        return null;
+      }
+      int tagLen = tagEnd - start - 1;
+      for (int i = 0; i < TAGS.length; ++i) {
+        if (TAGS[i].length == tagLen && matches(start + 1, TAGS[i])) {
+          return LogLevel.values()[i];
+        }
+      }
+      return null;
+    }
+
+    /** ログの時刻 (エポックミリ秒) を返す.  ヘッダの形式が正しくない場合は {@link Long#MIN_VALUE}. */
+    long timeMillis() {
+      int pos = lineEnd - TIMESTAMP_LENGTH;
+      if (pos < start) {
+        return Long.MIN_VALUE;
+      }
+      if (lastTimeMillis != Long.MIN_VALUE && matches(pos, lastTimestamp)) {
+        return lastTimeMillis;
+      }
+      try {
+        long epochSecond = LocalDateTime.of(
+            digits(pos, 4), digits(pos + 5, 2), digits(pos + 8, 2),
+            digits(pos + 11, 2), digits(pos + 14, 2), digits(pos + 17, 2))
+            .atZone(zone)
+            .toEpochSecond();
+        buf.get(pos, lastTimestamp);
+        lastTimeMillis = epochSecond * 1000;
+        return lastTimeMillis;
+      } catch (DateTimeException e) {
+        return Long.MIN_VALUE;
+      }
+    }
+
+    /** ログが {@code text} を含む場合 true を返す. */
+    boolean contains(byte[] text) {
+      return indexOf(buf, text, start, end) >= 0;
+    }
+
+    /** ログを {@link LogEntry} に変換する. */
+    LogEntry toEntry(Path segment, LogLevel level, long timeMillis) {
+      int callerStart = indexOf(buf, TAG_END, start, lineEnd) + TAG_END.length;
+      int callerEnd = lineEnd - TIMESTAMP_LENGTH - TIME_SEPARATOR.length;
+      return new LogEntry(
+          segment,
+          level,
+          decodeUtf8(buf, callerStart, callerEnd),
+          timeMillis,
+          decodeUtf8(buf, lineEnd + 1, end));
+    }
+
+    /** {@code pos} から始まるバイト列が {@code bytes} と一致する場合 true を返す. */
+    private boolean matches(int pos, byte[] bytes) {
+      for (int i = 0; i < bytes.length; ++i) {
+        if (buf.get(pos + i) != bytes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** {@code pos} から始まる {@code len} 桁の 10 進数を読む. */
+    private int digits(int pos, int len) {
+      int value = 0;
+      for (int i = pos; i < pos + len; ++i) {
+        int digit = buf.get(i) - '0';
+        if (digit < 0 || 9 < digit) {
+          throw new DateTimeException("Not a digit.");
+        }
+        value = value * 10 + digit;
+      }
+      return value;
+    }
+  }
+
+  /** 1 つのセグメントのインデックス. */
+  private static final class SegmentIndex {
+    private final Path path;
+    /** 各ブロックの先頭のログの位置. */
+    private int[] offsets = new int[16];
+    /** 各ブロックに含まれるログの時刻の最小値. (エポックミリ秒) */
+    private long[] minTimes = new long[16];
+    /** 各ブロックに含まれるログの時刻の最大値. (エポックミリ秒) */
+    private long[] maxTimes = new long[16];
+    /** 各ブロックに含まれるログの重要度の集合.  {@link LogLevel#ordinal} 番目のビットが重要度を表す. */
+    private int[] levels = new int[16];
+    private int numBlocks = 0;
+    /** 最後のブロックに含まれるログの数. */
+    private int numRecordsInLastBlock = 0;
+    /** インデックスを作成したデータの末尾の位置. */
+    private int end = 0;
+    /** 書き込みが終わったセグメントの全体のインデックスを作成した場合 true. */
+    private boolean isComplete = false;
+    /**
+     * 書き込み中のセグメントから読んだデータ.  {@link #end} までの部分は次の検索でもそのまま使う.
+     * 読んでいない場合は null.
+     */
+    private ByteBuffer activeData = null;
+
+    SegmentIndex(Path path) {
+      this.path = path;
+    }
+
+    /**
+     * セグメントから {@code query} にマッチするログを検索する.
+     *
+     * @param query 検索するログの条件
+     * @param isActive 書き込み中のセグメントの場合 true
+     * @return {@code query} にマッチするログのリスト
+     */
+    synchronized List<LogEntry> search(LogQuery query, boolean isActive) throws IOException {
+      if (isComplete && !hasCandidates(query)) {
+        return List.of();
+      }
+      if (!isActive) {
+        activeData = null;
+      }
+      ByteBuffer buf = isActive ? loadActive() : load(path);
+      try {
+        if (!isComplete) {
+          update(buf);
+          isComplete = !isActive;
+        }
+        return collect(buf, query);
+      } finally {
+        release(buf);
+      }
+    }
+
+    /**
+     * 書き込み中のセグメントのデータを読む.
+     *
+     * <p>前回読んだデータのうち {@link #end} までの部分は読み直さない.
+     * メモリマップで書き込まれたファイルの末尾の未使用領域 (0 で埋められた部分) に達したら読むのを止める.
+     *
+     * @return セグメントのデータをテキスト形式で格納したバッファ
+     */
+    private ByteBuffer loadActive() throws IOException {
+      if (!isText(path)) {
+        return decode(path);
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        if (isBinary(channel)) {
+          return decode(path);
+        }
+        ByteBuffer buf = (activeData == null) ? ByteBuffer.allocate(ACTIVE_READ_SIZE) : activeData;
+        buf.limit(buf.capacity()).position(end);
+        while (true) {
+          if (!buf.hasRemaining()) {
+            buf = ByteBuffer.allocate(buf.capacity() * 2).put(buf.flip());
+          }
+          if (channel.read(buf, buf.position()) <= 0 || buf.get(buf.position() - 1) == 0) {
+            break;
+          }
+        }
+        activeData = buf;
+        return buf.flip();
+      }
+    }
+
+    /** {@code query} にマッチし得るブロックがある場合 true を返す. */
+    private boolean hasCandidates(LogQuery query) {
+      for (int i = 0; i < numBlocks; ++i) {
+        if (isCandidate(i, query)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** {@code block} 番目のブロックが {@code query} にマッチし得る場合 true を返す. */
+    private boolean isCandidate(int block, LogQuery query) {
+      return query.matchesAnyLevel(levels[block])
+          && query.overlaps(minTimes[block], maxTimes[block]);
+    }
+
+    /** インデックスを作成していない部分のログをインデックスに追加する. */
+    private void update(ByteBuffer buf) {
+      var cursor = new Cursor(buf, end, buf.limit());
+      while (cursor.next()) {
+        if (numBlocks == 0 || numRecordsInLastBlock == RECORDS_PER_BLOCK) {
+          addBlock(cursor.start);
+        }
+        ++numRecordsInLastBlock;
+        LogLevel level = cursor.level();
+        long timeMillis = cursor.timeMillis();
+        if (level != null && timeMillis != Long.MIN_VALUE) {
+          int last = numBlocks - 1;
+          levels[last] |= 1 << level.ordinal();
+          minTimes[last] = Math.min(minTimes[last], timeMillis);
+          maxTimes[last] = Math.max(maxTimes[last], timeMillis);
+        }
+        end = cursor.nextStart();
+      }
+    }
+
+    /** {@code offset} から始まるブロックを追加する. */
+    private void addBlock(int offset) {
+      if (numBlocks == offsets.length) {
+        int len = numBlocks * 2;
+        offsets = Arrays.copyOf(offsets, len);
+        minTimes = Arrays.copyOf(minTimes, len);
+        maxTimes = Arrays.copyOf(maxTimes, len);
+        levels = Arrays.copyOf(levels, len);
+      }
+      offsets[numBlocks] = offset;
+      minTimes[numBlocks] = Long.MAX_VALUE;
+      maxTimes[numBlocks] = Long.MIN_VALUE;
+      levels[numBlocks] = 0;
+      ++numBlocks;
+      numRecordsInLastBlock = 0;
+    }
+
+    /** インデックスを作成した範囲から {@code query} にマッチするログを集める. */
+    private List<LogEntry> collect(ByteBuffer buf, LogQuery query) {
+      var entries = new ArrayList<LogEntry>();
+      byte[] text = query.text();
+      for (int i = 0; i < numBlocks; ++i) {
+        if (!isCandidate(i, query)) {
+          continue;
+        }
+        int blockEnd = (i + 1 < numBlocks) ? offsets[i + 1] : end;
+        var cursor = new Cursor(buf, offsets[i], blockEnd);
+        while (cursor.next()) {
+          LogLevel level = cursor.level();
+          if (level == null || !query.matchesLevel(level)) {
+            continue;
+          }
+          long timeMillis = cursor.timeMillis();
+          if (timeMillis == Long.MIN_VALUE || !query.containsTime(timeMillis)) {
+            continue;
+          }
+          if (text != null && !cursor.contains(text)) {
+            continue;
+          }
+          entries.add(cursor.toEntry(path, level, timeMillis));
+        }
+      }
+      return entries;
+    }
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link TextRecorder} が作成するログファイル (セグメント) の名前と一覧を扱うクラス.
+ *
+ * <pre>
+ * セグメントの名前は "共通部分の名前-世代番号.log" となる.
+ * 圧縮したセグメントの名前には, さらに圧縮方式に応じた拡張子 (".gz" など) が付く.
+ * 世代番号はローテーションのたびに 1 ずつ増えるので, 世代番号が最も大きいセグメントが書き込み中のセグメントとなる.
+ * 保持しているセグメントの世代番号の範囲は "共通部分の名前.manifest" に記録する.
+ * </pre>
+ *
+ * @author K.Koike
+ */
+public final class LogSegments {
+
+  /** 世代番号の最小の桁数. */
+  private static final int GENERATION_DIGITS = 10;
+
+  /** セグメントを格納するディレクトリのパス. */
+  private final Path dirPath;
+  /** セグメントの共通部分の名前. */
+  private final String fileName;
+  /** セグメントの名前にマッチするパターン. */
+  private final Pattern segmentPattern;
+  /** セグメントと圧縮途中のファイルの名前にマッチするパターン. */
+  private final Pattern segmentOrTmpPattern;
+  /** 世代番号を持たない形式 (共通部分の名前-0000.log) のファイルの名前にマッチするパターン. */
+  private final Pattern legacyPattern;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath セグメントを格納するディレクトリのパス
+   * @param fileName セグメントの共通部分の名前
+   */
+  public LogSegments(Path dirPath, String fileName) {
+    this.dirPath = dirPath;
+    this.fileName = fileName;
+    segmentPattern = Pattern.compile(Pattern.quote(fileName)
+        + "-(\\d{%s,})\\.log(\\.gz|\\.deflate)?".formatted(GENERATION_DIGITS));
+    segmentOrTmpPattern = Pattern.compile(Pattern.quote(fileName)
+        + "-(\\d{%s,})\\.log(\\.gz|\\.deflate|\\.tmp)?".formatted(GENERATION_DIGITS));
+    legacyPattern = Pattern.compile(Pattern.quote(fileName) + "-(\\d{4})\\.log");
+  }
+
+  /**
+   * {@code dirPath} にある {@code fileName} のセグメントを古いものから順に並べたリストを返す.
+   *
+   * @param dirPath セグメントを格納するディレクトリのパス
+   * @param fileName セグメントの共通部分の名前
+   * @return セグメントのパスのリスト.  最後の要素が書き込み中のセグメントとなる.
+   */
+  public static List<Path> list(Path dirPath, String fileName) throws IOException {
+    return new LogSegments(dirPath, fileName).list();
+  }
+
+  /**
+   * セグメントを古いものから順に並べたリストを返す.
+   *
+   * @return セグメントのパスのリスト.  最後の要素が書き込み中のセグメントとなる.
+   */
+  public List<Path> list() throws IOException {
+    var paths = new ArrayList<Path>();
+    for (long generation : scan()) {
+      find(generation).ifPresent(paths::add);
+    }
+    return paths;
+  }
+
+  /**
+   * セグメントを読むための入力ストリームを返す.
+   *
+   * <p>圧縮されたセグメントの場合, 展開したデータを読むストリームを返す.
+   *
+   * @param segment {@link #list} で取得したセグメントのパス
+   * @return {@code segment} を読むための入力ストリーム
+   */
+  public static InputStream newInputStream(Path segment) throws IOException {
+    String name = segment.getFileName().toString();
+    InputStream in = Files.newInputStream(segment);
+    for (Compression compression : Compression.values()) {
+      if (compression != Compression.NONE && name.endsWith(".log" + compression.suffix())) {
+        try {
+          return compression.decompress(in);
+        } catch (IOException e) {
+          in.close();
+          throw e;
+        }
+      }
+    }
+    return in;
+  }
+
+  /**
+   * ディレクトリにあるセグメントの世代番号を昇順に並べたリストを返す.
+   *
+   * @return セグメントの世代番号のリスト
+   */
+  List<Long> scan() throws IOException {
+    return scan(segmentPattern);
+  }
+
+  /** ディレクトリにある, 名前が {@code pattern} にマッチするファイルの世代番号を昇順に並べたリストを返す. */
+  private List<Long> scan(Pattern pattern) throws IOException {
+    var generations = new ArrayList<Long>();
+    if (!Files.isDirectory(dirPath)) {
+      return generations;
+    }
+    try (DirectoryStream<Path> paths = Files.newDirectoryStream(dirPath)) {
+      for (Path path : paths) {
+        Matcher matcher = pattern.matcher(path.getFileName().toString());
+        if (matcher.matches()) {
+          generations.add(Long.parseLong(matcher.group(1)));
+        }
+      }
+    }
+    return generations.stream().distinct().sorted().toList();
+  }
+
+  /**
+   * 世代番号を持たない形式 (共通部分の名前-0000.log) のファイルを, 新しい形式の名前に変更する.
+   *
+   * <p>古い形式では番号が小さいほど新しいファイルなので, 番号の大きいものから順に世代番号 1, 2, ... を割り当てる.
+   *
+   * @return 割り当てた最大の世代番号.  変更したファイルが無い場合は 0.
+   */
+  long migrateLegacyFiles() throws IOException {
+    var legacyPaths = new ArrayList<Path>();
+    try (DirectoryStream<Path> paths = Files.newDirectoryStream(dirPath)) {
+      for (Path path : paths) {
+        if (legacyPattern.matcher(path.getFileName().toString()).matches()) {
+          legacyPaths.add(path);
+        }
+      }
+    }
+    legacyPaths.sort(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed());
+    long generation = 0;
+    for (Path legacyPath : legacyPaths) {
+      ++generation;
+      Files.move(legacyPath, path(generation), StandardCopyOption.ATOMIC_MOVE);
+    }
+    return generation;
+  }
+
+  /** {@code generation} で指定した世代のセグメントのパスを返す. */
+  Path path(long generation) {
+    return dirPath.resolve(
+        ("%s-%0" + GENERATION_DIGITS + "d.log").formatted(fileName, generation));
+  }
+
+  /** {@code generation} で指定した世代のセグメントを {@code compression} で圧縮したファイルのパスを返す. */
+  Path path(long generation, Compression compression) {
+    Path path = path(generation);
+    return path.resolveSibling(path.getFileName() + compression.suffix());
+  }
+
+  /** {@code generation} で指定した世代のセグメントを圧縮している途中のファイルのパスを返す. */
+  Path tmpPath(long generation) {
+    Path path = path(generation);
+    return path.resolveSibling(path.getFileName() + ".tmp");
+  }
+
+  /**
+   * {@code generation} で指定した世代のセグメントを探す.
+   *
+   * <p>圧縮したファイルと圧縮前のファイルの両方がある場合, 圧縮したファイルを返す.
+   *
+   * @return 見つかったセグメントのパス.  見つからなかった場合は空の {@link Optional}.
+   */
+  Optional<Path> find(long generation) {
+    for (Compression compression : Compression.values()) {
+      if (compression != Compression.NONE && Files.exists(path(generation, compression))) {
+        return Optional.of(path(generation, compression));
+      }
+    }
+    Path path = path(generation);
+    return Files.exists(path) ? Optional.of(path) : Optional.empty();
+  }
+
+  /** {@code generation} で指定した世代のセグメントを, 圧縮したものや圧縮途中のものも含めて全て削除する. */
+  void delete(long generation) throws IOException {
+    for (Compression compression : Compression.values()) {
+      Files.deleteIfExists(path(generation, compression));
+    }
+    Files.deleteIfExists(tmpPath(generation));
+  }
+
+  /**
+   * {@code generation} より古い世代のセグメントを, 圧縮したものや圧縮途中のものも含めて全て削除する.
+   *
+   * @param generation この世代番号より小さい世代のセグメントを削除する
+   */
+  void deleteOlderThan(long generation) throws IOException {
+    for (long olderGeneration : scan(segmentOrTmpPattern)) {
+      if (olderGeneration >= generation) {
+        break;
+      }
+      delete(olderGeneration);
+    }
+  }
+
+  /** マニフェストファイルのパスを返す. */
+  private Path manifestPath() {
+    return dirPath.resolve(fileName + ".manifest");
+  }
+
+  /**
+   * マニフェストファイルを読む.
+   *
+   * @return マニフェストファイルの内容.  ファイルが存在しないか内容が不正な場合は空の {@link Optional}.
+   */
+  Optional<Manifest> readManifest() {
+    try {
+      List<String> lines = Files.readAllLines(manifestPath(), StandardCharsets.UTF_8);
+      long oldest = -1;
+      long newest = -1;
+      for (String line : lines) {
+        String[] keyVal = line.split("=", 2);
+        if (keyVal.length != 2) {
+          continue;
+        }
+        switch (keyVal[0].trim()) {
+          case "oldest" -> oldest = Long.parseLong(keyVal[1].trim());
+          case "newest" -> newest = Long.parseLong(keyVal[1].trim());
+          default -> { }
+        }
+      }
+      if (oldest < 1 || newest < oldest) {
+        return Optional.empty();
+      }
+      return Optional.of(new Manifest(oldest, newest));
+    } catch (IOException | NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * マニフェストファイルを書き換える.
+   *
+   * <p>一時ファイルに書き込んでから置き換えるので, 読み込み中のマニフェストファイルが壊れることはない.
+   *
+   * @param manifest マニフェストファイルに書き込む内容
+   */
+  void writeManifest(Manifest manifest) throws IOException {
+    Path manifestPath = manifestPath();
+    Path tmpPath = dirPath.resolve(fileName + ".manifest.tmp");
+    Files.writeString(
+        tmpPath,
+        "oldest=%s\nnewest=%s\n".formatted(manifest.oldest(), manifest.newest()),
+        StandardCharsets.UTF_8);
+    Files.move(
+        tmpPath, manifestPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * 保持しているセグメントの世代番号の範囲.
+   *
+   * @param oldest 最も古いセグメントの世代番号
+   * @param newest 書き込み中のセグメントの世代番号
+   */
+  record Manifest(long oldest, long newest) {}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link SinkLogger} が作成したログの出力先.
+ *
+ * <p>実装クラスは複数のスレッドから同時に呼ばれても正しく動作しなければならない.
+ *
+ * @author K.Koike
+ */
+public interface LogSink {
+
+  /**
+   * ログを 1 件出力する.
+   *
+   * <p>{@code record} はこのメソッドから制御が返るまでの間だけ有効である.
+   * このメソッドから制御が返った後もデータを使う場合は, コピーすること.
+   *
+   * @param level ログの重要度
+   * @param record UTF-8 でエンコードしたログ.  position から limit までのデータを出力する.
+   */
+  void write(LogLevel level, ByteBuffer record);
+
+  /** 出力したログをフラッシュする. */
+  default void flush() {}
+
+  /** 終了処理をする. */
+  void close();
+}
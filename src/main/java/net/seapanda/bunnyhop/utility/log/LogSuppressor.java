@@ -0,0 +1,270 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link SuppressionPolicy} に従って同じログの出力を抑制するクラス.
+ *
+ * <p>ログを出力するかどうかの判定はロックを取らずに行う.
+ * ウィンドウの上限に達した後の判定は, 共有のカウンタを読むだけで書き換えないので, 多数のスレッドから同じログを出力しても競合しない.
+ * 抑制したログの数は, ウィンドウが終わった後にログを出力しようとしたスレッドか,
+ * ウィンドウごとに実行される定期処理のどちらかが {@link Reporter} に渡す.
+ * 出力されなくなった種類のカウンタは定期処理で取り除く.  取り除いた後のカウンタで抑制したログの数は,
+ * 抑制したスレッドが報告するので失われない.
+ *
+ * @author K.Koike
+ */
+final class LogSuppressor {
+
+  /** 抑制したログの数を報告する処理を定期的に行うスレッド. */
+  private static final ScheduledExecutorService sweeper =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "LogSuppressor-sweeper");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final SuppressionPolicy policy;
+  private final Reporter reporter;
+  /** ウィンドウの長さ. (ns) */
+  private final long windowNanos;
+  /**
+   * ログ出力を行ったメソッドの名前から, ログメッセージとその出力回数のマップを引くマップ.
+   * 既に区別しているログの種類の判定でオブジェクトを作成しないように, 2 段階のマップにする.
+   * 空になった内側のマップは, 外側のマップのロックを取得して取り除く.
+   */
+  private final Map<String, Map<String, Counter>> counters = new ConcurrentHashMap<>();
+  /** 区別しているログの種類の数. */
+  private final AtomicInteger numKeys = new AtomicInteger(0);
+  /** 抑制したログの数を定期的に報告するタスク. */
+  private final ScheduledFuture<?> sweepTask;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param policy ログを抑制する条件
+   * @param reporter 抑制したログの数を記したログを出力する処理.  このオブジェクトの抑制の対象にしない方法で出力すること.
+   */
+  LogSuppressor(SuppressionPolicy policy, Reporter reporter) {
+    this.policy = policy;
+    this.reporter = reporter;
+    windowNanos = TimeUnit.MILLISECONDS.toNanos(policy.windowMillis());
+    sweepTask = sweeper.scheduleAtFixedRate(
+        this::sweep, policy.windowMillis(), policy.windowMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * ログを出力するかどうかを判定する.
+   *
+   * @param level ログの重要度
+   * @param caller ログ出力を行ったメソッドの名前
+   * @param template ログメッセージ.  書式を指定した場合は書式.
+   * @return ログを出力する場合 true.  抑制する場合 false.
+   */
+  boolean tryAcquire(LogLevel level, String caller, String template) {
+    if (!policy.appliesTo(level)) {
+      return true;
+    }
+    long now = System.nanoTime();
+    while (true) {
+      Counter counter = find(caller, template);
+      if (counter == null) {
+        if (numKeys.get() >= policy.maxKeys()) {
+          return true;
+        }
+        counter = register(level, caller, template, now);
+      }
+      // 取り除かれたカウンタの場合, 新しいカウンタで数え直す
+      if (!counter.isRetired()) {
+        counter.rollOver(now);
+        return counter.tryAcquire();
+      }
+    }
+  }
+
+  /** {@code caller} と {@code template} で区別されるログの種類のカウンタを探す.  無い場合は null を返す. */
+  private Counter find(String caller, String template) {
+    Map<String, Counter> templates = counters.get(caller);
+    return (templates == null) ? null : templates.get(template);
+  }
+
+  /** {@code caller} と {@code template} で区別されるログの種類のカウンタを登録して返す. */
+  private Counter register(LogLevel level, String caller, String template, long now) {
+    var registered = new Counter[1];
+    counters.compute(caller, (key, templates) -> {
+      if (templates == null) {
+        templates = new ConcurrentHashMap<>();
+      }
+      registered[0] = templates.computeIfAbsent(template, k -> {
+        numKeys.incrementAndGet();
+        return new Counter(caller, template, level, now);
+      });
+      return templates;
+    });
+    return registered[0];
+  }
+
+  /** ウィンドウが終わったログの種類について, 抑制したログの数を報告し, 出力されなくなった種類を取り除く. */
+  private void sweep() {
+    long now = System.nanoTime();
+    List<Counter> retired = new ArrayList<>();
+    for (String caller : counters.keySet()) {
+      counters.computeIfPresent(caller, (key, templates) -> {
+        templates.values().removeIf(counter -> {
+          if (counter.isIdle(now)) {
+            counter.retire();
+            retired.add(counter);
+            return true;
+          }
+          return false;
+        });
+        return templates.isEmpty() ? null : templates;
+      });
+    }
+    numKeys.addAndGet(-retired.size());
+    // ログの出力はマップのロックを解放してから行う
+    retired.forEach(Counter::report);
+    for (Map<String, Counter> templates : counters.values()) {
+      templates.values().forEach(counter -> counter.rollOver(now));
+    }
+  }
+
+  /** 抑制したログの数を全て報告して, 定期的な処理を止める. */
+  void close() {
+    sweepTask.cancel(false);
+    List<Counter> retired = new ArrayList<>();
+    for (String caller : counters.keySet()) {
+      counters.computeIfPresent(caller, (key, templates) -> {
+        templates.values().forEach(Counter::retire);
+        retired.addAll(templates.values());
+        return null;
+      });
+    }
+    numKeys.addAndGet(-retired.size());
+    retired.forEach(Counter::report);
+  }
+
+  /** 抑制したログの数を記したログを出力する処理. */
+  @FunctionalInterface
+  interface Reporter {
+
+    /**
+     * 抑制したログの数を記したログを出力する.
+     *
+     * @param level ログの重要度
+     * @param caller ログ出力を行ったメソッドの名前
+     * @param msg ログメッセージ
+     */
+    void report(LogLevel level, String caller, String msg);
+  }
+
+  /** 1 種類のログの出力回数を数えるクラス. */
+  private final class Counter {
+    /** ログ出力を行ったメソッドの名前. */
+    private final String caller;
+    /** ログメッセージ.  書式を指定した場合は書式. */
+    private final String template;
+    /** 最初に出力されたときのログの重要度. */
+    private final LogLevel level;
+    /** 現在のウィンドウの開始時刻. ({@link System#nanoTime} の値) */
+    private final AtomicLong windowStart;
+    /** 現在のウィンドウで出力したログの数. */
+    private final AtomicInteger numAccepted = new AtomicInteger(0);
+    /** 抑制したログの数の累計. */
+    private final LongAdder numSuppressed = new LongAdder();
+    /** 報告した抑制したログの数の累計. */
+    private long numReported = 0;
+    /** {@link #counters} から取り除かれた場合 true. */
+    private volatile boolean isRetired = false;
+
+    Counter(String caller, String template, LogLevel level, long now) {
+      this.caller = caller;
+      this.template = template;
+      this.level = level;
+      windowStart = new AtomicLong(now);
+    }
+
+    /** 現在のウィンドウに空きがある場合, 出力したログの数を増やして true を返す. */
+    boolean tryAcquire() {
+      // 上限に達した後は共有の変数を書き換えない
+      if (numAccepted.get() < policy.maxOccurrences()
+          && numAccepted.incrementAndGet() <= policy.maxOccurrences()) {
+        return true;
+      }
+      numSuppressed.increment();
+      // 取り除いたスレッドが報告した後に数えた場合は, このスレッドが報告する
+      if (isRetired) {
+        report();
+      }
+      return false;
+    }
+
+    /** 現在のウィンドウが終わっている場合, 新しいウィンドウを始めて, 抑制したログの数を報告する. */
+    void rollOver(long now) {
+      long start = windowStart.get();
+      if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+        numAccepted.set(0);
+        report();
+      }
+    }
+
+    /** 現在のウィンドウが終わっていて, ウィンドウの間にログが出力されていない場合 true を返す. */
+    boolean isIdle(long now) {
+      return now - windowStart.get() >= windowNanos && numAccepted.get() == 0;
+    }
+
+    /** {@link #counters} から取り除かれた場合 true を返す. */
+    boolean isRetired() {
+      return isRetired;
+    }
+
+    /**
+     * {@link #counters} から取り除かれたことを記録する.
+     *
+     * <p>この後に {@link #report} を呼ぶこと.
+     */
+    void retire() {
+      isRetired = true;
+    }
+
+    /** 報告していない抑制したログの数を報告する. */
+    void report() {
+      long numNewlySuppressed;
+      synchronized (this) {
+        long total = numSuppressed.sum();
+        numNewlySuppressed = total - numReported;
+        numReported = total;
+      }
+      if (numNewlySuppressed > 0) {
+        reporter.report(level, caller, "%s\n(repeated %s more times and suppressed)"
+            .formatted(template, numNewlySuppressed));
+      }
+    }
+  }
+}
@@ -16,9 +16,15 @@
 
 package net.seapanda.bunnyhop.utility.log;
 
+import java.util.function.Supplier;
+
 /**
  * ログ出力機能を規定したインタフェース.
  *
+ * <p>{@link Supplier} を受け取るメソッドと書式を受け取るメソッドは, 指定した重要度のログが出力されない場合,
+ * メッセージの作成と書式化を行わない.
+ * 書式は {@link String#formatted} で解釈する.
+ *
  * @author K.Koike
  */
 public interface Logger {
@@ -28,4 +34,212 @@ public interface Logger {
 
   /** メッセージをログに出力する. */
   void error(String msg);
+
+  /**
+   * 重要度が {@code level} のメッセージをログに出力する.
+   *
+   * <p>デフォルト実装は {@link LogLevel#WARN} 以上のメッセージを {@link #error(String)} に,
+   * それ以外のメッセージを {@link #info(String)} に渡す.
+   */
+  default void log(LogLevel level, String msg) {
+    if (level.isSevere()) {
+      error(msg);
+    } else {
+      info(msg);
+    }
+  }
+
+  /**
+   * 重要度が {@code level} のログが出力される場合 true を返す.
+   *
+   * <p>デフォルト実装は常に true を返す.
+   */
+  default boolean isEnabled(LogLevel level) {
+    return true;
+  }
+
+  /** 重要度が {@code level} のログが出力される場合, {@code msg} が返すメッセージをログに出力する. */
+  default void log(LogLevel level, Supplier<String> msg) {
+    if (isEnabled(level)) {
+      log(level, msg.get());
+    }
+  }
+
+  /** 重要度が {@code level} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void log(LogLevel level, String format, Object arg) {
+    if (isEnabled(level)) {
+      log(level, format.formatted(arg));
+    }
+  }
+
+  /** 重要度が {@code level} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void log(LogLevel level, String format, Object arg1, Object arg2) {
+    if (isEnabled(level)) {
+      log(level, format.formatted(arg1, arg2));
+    }
+  }
+
+  /** 重要度が {@code level} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void log(LogLevel level, String format, Object arg1, Object arg2, Object arg3) {
+    if (isEnabled(level)) {
+      log(level, format.formatted(arg1, arg2, arg3));
+    }
+  }
+
+  /** 重要度が {@code level} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void log(LogLevel level, String format, Object... args) {
+    if (isEnabled(level)) {
+      log(level, format.formatted(args));
+    }
+  }
+
+  /** 重要度が {@link LogLevel#TRACE} のメッセージをログに出力する. */
+  default void trace(String msg) {
+    log(LogLevel.TRACE, msg);
+  }
+
+  /** 重要度が {@link LogLevel#TRACE} のログが出力される場合, {@code msg} が返すメッセージをログに出力する. */
+  default void trace(Supplier<String> msg) {
+    if (isEnabled(LogLevel.TRACE)) {
+      log(LogLevel.TRACE, msg.get());
+    }
+  }
+
+  /** 重要度が {@link LogLevel#TRACE} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void trace(String format, Object arg) {
+    log(LogLevel.TRACE, format, arg);
+  }
+
+  /** 重要度が {@link LogLevel#TRACE} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void trace(String format, Object arg1, Object arg2) {
+    log(LogLevel.TRACE, format, arg1, arg2);
+  }
+
+  /** 重要度が {@link LogLevel#TRACE} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void trace(String format, Object arg1, Object arg2, Object arg3) {
+    log(LogLevel.TRACE, format, arg1, arg2, arg3);
+  }
+
+  /** 重要度が {@link LogLevel#TRACE} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void trace(String format, Object... args) {
+    log(LogLevel.TRACE, format, args);
+  }
+
+  /** 重要度が {@link LogLevel#DEBUG} のメッセージをログに出力する. */
+  default void debug(String msg) {
+    log(LogLevel.DEBUG, msg);
+  }
+
+  /** 重要度が {@link LogLevel#DEBUG} のログが出力される場合, {@code msg} が返すメッセージをログに出力する. */
+  default void debug(Supplier<String> msg) {
+    if (isEnabled(LogLevel.DEBUG)) {
+      log(LogLevel.DEBUG, msg.get());
+    }
+  }
+
+  /** 重要度が {@link LogLevel#DEBUG} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void debug(String format, Object arg) {
+    log(LogLevel.DEBUG, format, arg);
+  }
+
+  /** 重要度が {@link LogLevel#DEBUG} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void debug(String format, Object arg1, Object arg2) {
+    log(LogLevel.DEBUG, format, arg1, arg2);
+  }
+
+  /** 重要度が {@link LogLevel#DEBUG} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void debug(String format, Object arg1, Object arg2, Object arg3) {
+    log(LogLevel.DEBUG, format, arg1, arg2, arg3);
+  }
+
+  /** 重要度が {@link LogLevel#DEBUG} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void debug(String format, Object... args) {
+    log(LogLevel.DEBUG, format, args);
+  }
+
+  /** 重要度が {@link LogLevel#INFO} のログが出力される場合, {@code msg} が返すメッセージをログに出力する. */
+  default void info(Supplier<String> msg) {
+    if (isEnabled(LogLevel.INFO)) {
+      log(LogLevel.INFO, msg.get());
+    }
+  }
+
+  /** 重要度が {@link LogLevel#INFO} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void info(String format, Object arg) {
+    log(LogLevel.INFO, format, arg);
+  }
+
+  /** 重要度が {@link LogLevel#INFO} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void info(String format, Object arg1, Object arg2) {
+    log(LogLevel.INFO, format, arg1, arg2);
+  }
+
+  /** 重要度が {@link LogLevel#INFO} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void info(String format, Object arg1, Object arg2, Object arg3) {
+    log(LogLevel.INFO, format, arg1, arg2, arg3);
+  }
+
+  /** 重要度が {@link LogLevel#INFO} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void info(String format, Object... args) {
+    log(LogLevel.INFO, format, args);
+  }
+
+  /** 重要度が {@link LogLevel#WARN} のメッセージをログに出力する. */
+  default void warn(String msg) {
+    log(LogLevel.WARN, msg);
+  }
+
+  /** 重要度が {@link LogLevel#WARN} のログが出力される場合, {@code msg} が返すメッセージをログに出力する. */
+  default void warn(Supplier<String> msg) {
+    if (isEnabled(LogLevel.WARN)) {
+      log(LogLevel.WARN, msg.get());
+    }
+  }
+
+  /** 重要度が {@link LogLevel#WARN} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void warn(String format, Object arg) {
+    log(LogLevel.WARN, format, arg);
+  }
+
+  /** 重要度が {@link LogLevel#WARN} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void warn(String format, Object arg1, Object arg2) {
+    log(LogLevel.WARN, format, arg1, arg2);
+  }
+
+  /** 重要度が {@link LogLevel#WARN} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void warn(String format, Object arg1, Object arg2, Object arg3) {
+    log(LogLevel.WARN, format, arg1, arg2, arg3);
+  }
+
+  /** 重要度が {@link LogLevel#WARN} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void warn(String format, Object... args) {
+    log(LogLevel.WARN, format, args);
+  }
+
+  /** 重要度が {@link LogLevel#ERROR} のログが出力される場合, {@code msg} が返すメッセージをログに出力する. */
+  default void error(Supplier<String> msg) {
+    if (isEnabled(LogLevel.ERROR)) {
+      log(LogLevel.ERROR, msg.get());
+    }
+  }
+
+  /** 重要度が {@link LogLevel#ERROR} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void error(String format, Object arg) {
+    log(LogLevel.ERROR, format, arg);
+  }
+
+  /** 重要度が {@link LogLevel#ERROR} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void error(String format, Object arg1, Object arg2) {
+    log(LogLevel.ERROR, format, arg1, arg2);
+  }
+
+  /** 重要度が {@link LogLevel#ERROR} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void error(String format, Object arg1, Object arg2, Object arg3) {
+    log(LogLevel.ERROR, format, arg1, arg2, arg3);
+  }
+
+  /** 重要度が {@link LogLevel#ERROR} のログが出力される場合, {@code format} を書式化したメッセージをログに出力する. */
+  default void error(String format, Object... args) {
+    log(LogLevel.ERROR, format, args);
+  }
 }
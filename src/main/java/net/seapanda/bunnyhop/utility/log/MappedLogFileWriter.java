@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 出力先ファイルをメモリにマップしてデータを書き込むクラス.
+ *
+ * <p>出力先ファイルは開いた時点で最大サイズまで拡張してマップするので, 書き込みはメモリへのコピーになる.
+ * 終了処理で出力先ファイルを書き込んだデータのサイズに切り詰める.
+ *
+ * @author K.Koike
+ */
+class MappedLogFileWriter implements LogFileWriter {
+
+  /** マップを解除するメソッド.  使用できない場合は null. */
+  private static final MethodHandle invokeCleaner = findInvokeCleaner();
+
+  private final FileChannel channel;
+  /** 出力先ファイルをマップしたバッファ.  position は書き込んだデータの末尾を指す. */
+  private MappedByteBuffer buf;
+  /** ストレージデバイスに同期したデータの末尾の位置. */
+  private int forcedPos;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param filePath 出力先ファイルのパス.  ファイルが存在する場合は末尾に追記する.
+   * @param segmentSize 出力先ファイルをマップするサイズ (Bytes)
+   */
+  MappedLogFileWriter(Path filePath, int segmentSize) throws IOException {
+    channel = FileChannel.open(
+        filePath,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long fileSize = channel.size();
+      buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, fileSize));
+      buf.position(findEndOfData((int) fileSize));
+      forcedPos = buf.position();
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * 出力先ファイルに書き込まれたデータの末尾の位置を探す.
+   *
+   * <p>切り詰められずに終了したファイルの末尾は 0 で埋められているので, それを読み飛ばす.
+   */
+  private int findEndOfData(int fileSize) {
+    int end = fileSize;
+    while (end > 0 && buf.get(end - 1) == 0) {
+      --end;
+    }
+    return end;
+  }
+
+  @Override
+  public void write(ByteBuffer data) throws IOException {
+    if (data.remaining() > buf.remaining()) {
+      remap(buf.position() + data.remaining());
+    }
+    buf.put(data);
+  }
+
+  /**
+   * {@code size} バイト以上を書き込めるように出力先ファイルをマップし直す.
+   *
+   * <p>マップに失敗した場合, 元のマップはそのまま使用できる.
+   */
+  private void remap(int size) throws IOException {
+    MappedByteBuffer newBuf = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    newBuf.position(buf.position());
+    MappedByteBuffer oldBuf = buf;
+    buf = newBuf;
+    unmap(oldBuf);
+  }
+
+  /** マップしたデータは書き込んだ時点で OS に渡っているので何もしない. */
+  @Override
+  public void flush() {}
+
+  @Override
+  public void force() {
+    int pos = buf.position();
+    if (pos > forcedPos) {
+      buf.force(forcedPos, pos - forcedPos);
+      forcedPos = pos;
+    }
+  }
+
+  @Override
+  public long size() {
+    return buf.position();
+  }
+
+  @Override
+  public void close() throws IOException {
+    int end = buf.position();
+    unmap(buf);
+    buf = null;
+    try {
+      // マップを解除できなかった場合, 切り詰めに失敗する環境がある.
+      // その場合, 末尾の 0 は次に開いたときに読み飛ばされる.
+      channel.truncate(end);
+    } catch (IOException e) {
+      /* do nothing */
+    } finally {
+      channel.close();
+    }
+  }
+
+  /** {@code buf} のマップを解除する. */
+  static void unmap(MappedByteBuffer buf) {
+    if (invokeCleaner == null) {
+      return;
+    }
+    try {
+      invokeCleaner.invokeExact((ByteBuffer) buf);
+    } catch (Throwable e) { /* do nothing */ }
+  }
+
+  /** マップを解除するメソッド ({@code sun.misc.Unsafe#invokeCleaner}) を探す. */
+  private static MethodHandle findInvokeCleaner() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      return MethodHandles.lookup()
+          .findVirtual(
+              unsafeClass,
+              "invokeCleaner",
+              MethodType.methodType(void.class, ByteBuffer.class))
+          .bindTo(field.get(null));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 最近出力されたログをメモリに保持する {@link LogSink}.
+ *
+ * <p>保持するログの数が上限に達すると, 古いものから上書きする.
+ * ログを格納する配列は, 格納するログより小さい場合だけ作り直す.
+ *
+ * @author K.Koike
+ */
+public final class MemorySink implements LogSink {
+
+  /** ログを格納する配列. */
+  private final byte[][] records;
+  /** {@link #records} の各要素に格納したログの長さ. */
+  private final int[] lengths;
+  /** 書き込んだログの総数. */
+  private long numWritten = 0;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param capacity 保持するログの最大数 (1 以上)
+   */
+  public MemorySink(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(
+          "'capacity' must be greater than 0.\n%s was set.".formatted(capacity));
+    }
+    records = new byte[capacity][];
+    lengths = new int[capacity];
+  }
+
+  @Override
+  public synchronized void write(LogLevel level, ByteBuffer record) {
+    int idx = (int) (numWritten % records.length);
+    int len = record.remaining();
+    if (records[idx] == null || records[idx].length < len) {
+      records[idx] = new byte[len];
+    }
+    record.get(records[idx], 0, len);
+    lengths[idx] = len;
+    ++numWritten;
+  }
+
+  /**
+   * 保持しているログを返す.
+   *
+   * @return 保持しているログのテキストを古いものから順に並べたリスト
+   */
+  public synchronized List<String> getRecords() {
+    int numRecords = (int) Math.min(numWritten, records.length);
+    var texts = new ArrayList<String>(numRecords);
+    for (long i = numWritten - numRecords; i < numWritten; ++i) {
+      int idx = (int) (i % records.length);
+      texts.add(new String(records[idx], 0, lengths[idx], StandardCharsets.UTF_8));
+    }
+    return texts;
+  }
+
+  /** 書き込んだログの総数を返す. */
+  public synchronized long getNumWritten() {
+    return numWritten;
+  }
+
+  /** 保持しているログを消去して, 書き込んだログの総数を 0 に戻す. */
+  public synchronized void clear() {
+    numWritten = 0;
+  }
+
+  @Override
+  public void close() {}
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+/**
+ * {@link TextRecorder} が出力先ファイルにデータを書き込む方法.
+ *
+ * @author K.Koike
+ */
+public enum OutputMode {
+
+  /** 書き込むデータをバッファリングせずに, 出力ストリームを通して書き込む. */
+  STREAM,
+  /** 書き込むデータをダイレクトバッファに溜めて, {@link java.nio.channels.FileChannel} でまとめて書き込む. */
+  CHANNEL,
+  /**
+   * 出力先ファイルを最大サイズまで拡張してメモリにマップし, データをメモリにコピーすることで書き込む.
+   * ファイルを閉じるときに書き込んだデータのサイズに切り詰める.
+   */
+  MAPPED,
+}
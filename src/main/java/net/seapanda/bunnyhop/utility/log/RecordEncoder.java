@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ログファイルに書き込む 1 件分のテキストを作成して UTF-8 でエンコードするクラス.
+ *
+ * <p>作成途中のテキストとエンコード結果を格納するバッファはスレッドごとに再利用するので,
+ * メッセージの長さが一定の範囲に収まる限り, ログ 1 件ごとにオブジェクトを作成しない.
+ *
+ * @author K.Koike
+ */
+final class RecordEncoder {
+
+  /** バッファの初期サイズ (文字数). */
+  private static final int INITIAL_CAPACITY = 256;
+  /** このサイズ (文字数) を超えたバッファは, 次に小さなメッセージを書き込むときに縮小する. */
+  private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+  /** UTF-8 で 1 文字 ({@code char}) をエンコードしたときの最大バイト数. */
+  private static final int MAX_BYTES_PER_CHAR = 3;
+  private static final TimestampCache timestamp = new TimestampCache();
+  private static final ThreadLocal<RecordEncoder> encoders =
+      ThreadLocal.withInitial(RecordEncoder::new);
+
+  /** 作成途中のテキスト. */
+  private StringBuilder text = new StringBuilder(INITIAL_CAPACITY);
+  /** エンコード前のテキストを格納するバッファ. */
+  private char[] chars;
+  private CharBuffer charBuf;
+  /** エンコードしたテキストを格納するバッファ. */
+  private ByteBuffer byteBuf;
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  private RecordEncoder() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  /** 呼び出したスレッド専用の {@link RecordEncoder} を返す. */
+  static RecordEncoder get() {
+    return encoders.get();
+  }
+
+  /**
+   * ログファイルに書き込む 1 件分のテキストを作成して UTF-8 でエンコードする.
+   *
+   * <p>返されるバッファは, 同じスレッドから次にこのオブジェクトのメソッドを呼ぶまでの間だけ有効である.
+   *
+   * @param tag ログの種類を表す文字列
+   * @param caller ログ出力を行ったメソッドの名前
+   * @param timeMillis ログ出力を行った時刻 (エポックミリ秒)
+   * @param msg ログメッセージ
+   * @return エンコードしたテキストを格納したバッファ
+   */
+  ByteBuffer encode(String tag, String caller, long timeMillis, String msg) {
+    if (text.capacity() > MAX_RETAINED_CAPACITY) {
+      text = new StringBuilder(INITIAL_CAPACITY);
+    }
+    text.setLength(0);
+    text.append('[').append(tag).append("] : ")
+        .append(caller).append(" @ ").append(timestamp.get(timeMillis)).append('\n')
+        .append(msg).append("\n----\n");
+    return encodeText();
+  }
+
+  /** {@link #text} を UTF-8 でエンコードして {@link #byteBuf} に格納する. */
+  private ByteBuffer encodeText() {
+    int len = text.length();
+    if (chars.length < len || (chars.length > MAX_RETAINED_CAPACITY && len <= INITIAL_CAPACITY)) {
+      allocate(Math.max(len, INITIAL_CAPACITY));
+    }
+    text.getChars(0, len, chars, 0);
+    charBuf.clear().limit(len);
+    byteBuf.clear();
+    encoder.reset();
+    // byteBuf は全ての文字をエンコードできるサイズを確保しているので, オーバーフローは起きない.
+    encoder.encode(charBuf, byteBuf, true);
+    encoder.flush(byteBuf);
+    return byteBuf.flip();
+  }
+
+  /** {@code numChars} 文字を格納できるバッファを確保する. */
+  private void allocate(int numChars) {
+    chars = new char[numChars];
+    charBuf = CharBuffer.wrap(chars);
+    byteBuf = ByteBuffer.allocate(numChars * MAX_BYTES_PER_CHAR);
+  }
+
+  /**
+   * 最後に {@link #encode} で作成したテキストを {@code ps} に出力する.
+   *
+   * <p>{@code ps} の文字セットが UTF-8 である場合, エンコード済みのデータをそのまま書き込む.
+   *
+   * @param ps テキストの出力先
+   */
+  void print(PrintStream ps) {
+    if (StandardCharsets.UTF_8.equals(ps.charset())) {
+      ps.write(byteBuf.array(), byteBuf.arrayOffset(), byteBuf.limit());
+    } else {
+      ps.append(text);
+    }
+  }
+}
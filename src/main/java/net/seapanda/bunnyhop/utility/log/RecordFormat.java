@@ -0,0 +1,37 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+/**
+ * ログファイルに書き込むログの形式.
+ *
+ * @author K.Koike
+ */
+public enum RecordFormat {
+
+  /** "[INFO] : 呼び出し元 @ 日時" から始まるテキスト形式.  ログは標準出力 (もしくは標準エラー出力) にも出力する. */
+  TEXT,
+  /**
+   * バイナリ形式.
+   *
+   * <p>時刻と重要度は固定長で記録し, 呼び出し元のメソッド名と書式は各ファイルの辞書に 1 度だけ書き込む.
+   * 書式を受け取るメソッドで出力したログは, 書式化せずに書式と引数のまま記録する.
+   * ログを作成するコストを抑えるため, 標準出力と標準エラー出力には出力しない.
+   * ファイルは {@link LogDecoder} でテキスト形式に変換できる.
+   */
+  BINARY,
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import net.seapanda.bunnyhop.utility.metrics.LatencyHistogram;
+
+/**
+ * {@link TextRecorder} の統計情報のスナップショット.
+ *
+ * @param numRecords 出力先ファイルに書き込んだログの数
+ * @param numBytes 出力先ファイルに書き込んだデータのサイズ (Bytes)
+ * @param numRotations ファイルのローテーションを行った回数
+ * @param rotationNanos ファイルのローテーションにかかった時間の合計 (ns)
+ * @param writeLatency ログ 1 件の書き込みにかかった時間の分布.
+ *                     一定の件数ごとに 1 件を計測した値で, ローテーションにかかった時間を含む.
+ * @param flushLatency フラッシュ (と, 有効な場合はストレージデバイスへの同期) にかかった時間の分布
+ * @param numFailures 書き込み, フラッシュ, ファイルの圧縮などで発生した I/O エラーと,
+ *                    ログを書き込むスレッドで発生した例外の数
+ * @param lastFailure 最後に発生したエラー.  エラーが発生していない場合は null.
+ * @author K.Koike
+ */
+public record RecorderMetrics(
+    long numRecords,
+    long numBytes,
+    long numRotations,
+    long rotationNanos,
+    LatencyHistogram writeLatency,
+    LatencyHistogram flushLatency,
+    long numFailures,
+    Exception lastFailure) {}
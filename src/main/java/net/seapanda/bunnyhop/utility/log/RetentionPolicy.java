@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.util.Objects;
+
+/**
+ * {@link TextRecorder} がローテーションによって書き込みを終えたログファイルをどのように保持するかを表すクラス.
+ *
+ * <p>圧縮を有効にすると, 書き込みが終わったファイルは優先度の低いバックグラウンドスレッドで圧縮される.
+ * 圧縮処理が書き込み中のファイルへの I/O と競合しないように, 圧縮するデータの読み込み速度は
+ * {@link #withCompressionRate} で指定した値以下に抑えられる.
+ *
+ * @author K.Koike
+ */
+public final class RetentionPolicy {
+
+  /** 圧縮するデータの読み込み速度のデフォルト値. (Bytes / s) */
+  private static final long DEFAULT_COMPRESSION_RATE = 8L * 1024 * 1024;
+
+  /** 書き込みが終わったファイルの圧縮方式. */
+  private final Compression compression;
+  /** 書き込みが終わったファイルの合計サイズの上限. (Bytes)  上限が無い場合は {@link Long#MAX_VALUE}. */
+  private final long maxTotalBytes;
+  /** 圧縮するデータの読み込み速度の上限. (Bytes / s) */
+  private final long compressionRate;
+
+  private RetentionPolicy(Compression compression, long maxTotalBytes, long compressionRate) {
+    this.compression = compression;
+    this.maxTotalBytes = maxTotalBytes;
+    this.compressionRate = compressionRate;
+  }
+
+  /** 書き込みが終わったファイルを圧縮せずに保持する {@link RetentionPolicy} を返す. */
+  public static RetentionPolicy uncompressed() {
+    return new RetentionPolicy(Compression.NONE, Long.MAX_VALUE, DEFAULT_COMPRESSION_RATE);
+  }
+
+  /**
+   * 書き込みが終わったファイルを {@code compression} で圧縮して保持する {@link RetentionPolicy} を返す.
+   *
+   * @param compression 書き込みが終わったファイルの圧縮方式
+   */
+  public static RetentionPolicy compressed(Compression compression) {
+    return new RetentionPolicy(
+        Objects.requireNonNull(compression), Long.MAX_VALUE, DEFAULT_COMPRESSION_RATE);
+  }
+
+  /**
+   * 書き込みが終わったファイルの合計サイズの上限を変更した {@link RetentionPolicy} を返す.
+   *
+   * <p>合計サイズには圧縮後のファイルのサイズを使う.
+   * 合計サイズが上限を超えた場合, 出力先ファイルの最大個数に達していなくても古いファイルから削除する.
+   * 書き込み中のファイルと, 圧縮が終わっていないファイルのサイズは合計サイズに含まない.
+   *
+   * @param numBytes 書き込みが終わったファイルの合計サイズの上限 (Bytes). (0 以上)
+   */
+  public RetentionPolicy withMaxTotalBytes(long numBytes) {
+    if (numBytes < 0) {
+      throw new IllegalArgumentException(
+          "'numBytes' must be greater than or equal to 0.\n%s was set.".formatted(numBytes));
+    }
+    return new RetentionPolicy(compression, numBytes, compressionRate);
+  }
+
+  /**
+   * 圧縮するデータの読み込み速度の上限を変更した {@link RetentionPolicy} を返す.
+   *
+   * @param bytesPerSecond 圧縮するデータの読み込み速度の上限 (Bytes / s). (1 以上)
+   */
+  public RetentionPolicy withCompressionRate(long bytesPerSecond) {
+    if (bytesPerSecond < 1) {
+      throw new IllegalArgumentException(
+          "'bytesPerSecond' must be greater than 0.\n%s was set.".formatted(bytesPerSecond));
+    }
+    return new RetentionPolicy(compression, maxTotalBytes, bytesPerSecond);
+  }
+
+  /** 書き込みが終わったファイルの圧縮方式を返す. */
+  public Compression compression() {
+    return compression;
+  }
+
+  /** 書き込みが終わったファイルの合計サイズの上限を返す. */
+  long maxTotalBytes() {
+    return maxTotalBytes;
+  }
+
+  /** 圧縮するデータの読み込み速度の上限を返す. */
+  long compressionRate() {
+    return compressionRate;
+  }
+
+  @Override
+  public String toString() {
+    return "RetentionPolicy(%s, maxTotalBytes = %s, compressionRate = %s)"
+        .formatted(compression, maxTotalBytes, compressionRate);
+  }
+}
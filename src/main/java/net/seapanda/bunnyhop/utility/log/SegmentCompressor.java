@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 書き込みが終わったログファイルをバックグラウンドで圧縮するクラス.
+ *
+ * <p>全ての {@link TextRecorder} で 1 つの優先度の低いスレッドを共有する.
+ *
+ * @author K.Koike
+ */
+final class SegmentCompressor {
+
+  /** 圧縮を行うスレッド. */
+  private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    var thread = new Thread(runnable, "TextRecorder-compressor");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+  /** 1 回に読み込むデータのサイズ. (Bytes) */
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private SegmentCompressor() {}
+
+  /**
+   * {@code task} を圧縮を行うスレッドで実行する.
+   *
+   * @return {@code task} の実行を取り消すための {@link Future}
+   */
+  static Future<?> submit(Runnable task) {
+    return executor.submit(task);
+  }
+
+  /**
+   * {@code src} を {@code compression} で圧縮して {@code dest} に書き込む.
+   *
+   * <p>データの読み込み速度が {@code bytesPerSecond} を超えないように, 読み込みの合間に待機する.
+   * 割り込まれた場合は, 読み込みの合間に圧縮を中断する.
+   *
+   * @param src 圧縮するファイル
+   * @param dest 圧縮したデータを書き込むファイル.  既に存在する場合は上書きする.
+   * @param compression 圧縮方式
+   * @param bytesPerSecond データの読み込み速度の上限 (Bytes / s)
+   * @throws InterruptedException 圧縮中に割り込まれた場合
+   */
+  static void compress(Path src, Path dest, Compression compression, long bytesPerSecond)
+      throws IOException, InterruptedException {
+    byte[] chunk = new byte[CHUNK_SIZE];
+    long startTime = System.nanoTime();
+    long numRead = 0;
+    try (InputStream in = Files.newInputStream(src);
+        OutputStream out = compression.compress(Files.newOutputStream(dest))) {
+      int len;
+      while ((len = in.read(chunk)) > 0) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        out.write(chunk, 0, len);
+        numRead += len;
+        long dueTime = startTime + (long) (numRead * (1e9 / bytesPerSecond));
+        long waitTime = dueTime - System.nanoTime();
+        if (waitTime > 0) {
+          TimeUnit.NANOSECONDS.sleep(waitTime);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ログを 1 度だけ作成して, 複数の {@link LogSink} に出力するクラス.
+ *
+ * <p>ログのテキストの作成と UTF-8 へのエンコードは 1 件につき 1 回だけ行い, エンコードしたデータを全ての出力先に渡す.
+ * ある出力先で例外が発生しても, 他の出力先への出力は継続する.
+ * 出力先ごとのバッファリングは各 {@link LogSink} が行う.
+ * 例えば {@link ConsoleSink} と {@link FileSink} を指定すると,
+ * 端末への出力が遅い場合でもファイルへの書き込みは待たされない.
+ *
+ * @author K.Koike
+ */
+public class SinkLogger implements Logger {
+
+  /** ログの出力先. */
+  private final LogSink[] sinks;
+  /** 出力先ごとの, 出力時に例外が発生した回数. */
+  private final LongAdder[] numFailures;
+  private volatile boolean isClosed = false;
+  private volatile CallerInfoMode callerInfoMode = CallerInfoMode.CACHED;
+  /** 出力するログの重要度の下限. */
+  private volatile LogLevel level = LogLevel.INFO;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param sinks ログの出力先
+   */
+  public SinkLogger(LogSink... sinks) {
+    this(List.of(sinks));
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param sinks ログの出力先
+   */
+  public SinkLogger(List<? extends LogSink> sinks) {
+    this.sinks = sinks.toArray(LogSink[]::new);
+    numFailures = new LongAdder[this.sinks.length];
+    for (int i = 0; i < numFailures.length; ++i) {
+      numFailures[i] = new LongAdder();
+    }
+  }
+
+  /** デバッグ用エラーメッセージ出力メソッド. */
+  @Override
+  public void error(String msg) {
+    log(LogLevel.ERROR, msg);
+  }
+
+  /** デバッグ用メッセージ出力メソッド. */
+  @Override
+  public void info(String msg) {
+    log(LogLevel.INFO, msg);
+  }
+
+  @Override
+  public void log(LogLevel level, String msg) {
+    if (!isEnabled(level) || isClosed) {
+      return;
+    }
+    ByteBuffer record = RecordEncoder.get().encode(
+        level.tag(), callerInfoMode.getCallerName(), System.currentTimeMillis(), msg);
+    int pos = record.position();
+    for (int i = 0; i < sinks.length; ++i) {
+      try {
+        sinks[i].write(level, record);
+      } catch (RuntimeException e) {
+        numFailures[i].increment();
+      }
+      record.position(pos);
+    }
+  }
+
+  @Override
+  public boolean isEnabled(LogLevel level) {
+    return level.ordinal() >= this.level.ordinal();
+  }
+
+  /**
+   * 出力するログの重要度の下限を設定する.
+   *
+   * <p>デフォルトは {@link LogLevel#INFO}.
+   *
+   * @param level この重要度以上のログを出力する
+   */
+  public void setLevel(LogLevel level) {
+    this.level = Objects.requireNonNull(level);
+  }
+
+  /** 出力するログの重要度の下限を返す. */
+  public LogLevel getLevel() {
+    return level;
+  }
+
+  /**
+   * ログに出力する呼び出し元のメソッド名の取得方法を設定する.
+   *
+   * <p>デフォルトは {@link CallerInfoMode#CACHED}.
+   *
+   * @param mode 呼び出し元のメソッド名の取得方法
+   */
+  public void setCallerInfoMode(CallerInfoMode mode) {
+    callerInfoMode = Objects.requireNonNull(mode);
+  }
+
+  /**
+   * {@code sink} への出力時に例外が発生した回数を返す.
+   *
+   * @param sink コンストラクタで指定した出力先
+   * @return {@code sink} への出力時に例外が発生した回数.  {@code sink} が出力先でない場合は 0.
+   */
+  public long getNumFailures(LogSink sink) {
+    for (int i = 0; i < sinks.length; ++i) {
+      if (sinks[i] == sink) {
+        return numFailures[i].sum();
+      }
+    }
+    return 0;
+  }
+
+  /** 全ての出力先のログをフラッシュする. */
+  public void flush() {
+    for (int i = 0; i < sinks.length; ++i) {
+      try {
+        sinks[i].flush();
+      } catch (RuntimeException e) {
+        numFailures[i].increment();
+      }
+    }
+  }
+
+  /** 全ての出力先の終了処理をする. */
+  public void close() {
+    isClosed = true;
+    for (int i = 0; i < sinks.length; ++i) {
+      try {
+        sinks[i].close();
+      } catch (RuntimeException e) {
+        numFailures[i].increment();
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 出力ストリームを通して出力先ファイルにデータを書き込むクラス.
+ *
+ * <p>データはバッファリングせずに, 書き込むたびに OS に渡す.
+ *
+ * @author K.Koike
+ */
+class StreamLogFileWriter implements LogFileWriter {
+
+  private final FileChannel channel;
+  private final OutputStream os;
+  private long size;
+
+  /**
+   * コンストラクタ.
+   *
+   * @param filePath 出力先ファイルのパス.  ファイルが存在する場合は末尾に追記する.
+   */
+  StreamLogFileWriter(Path filePath) throws IOException {
+    channel = FileChannel.open(
+        filePath,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    os = Channels.newOutputStream(channel);
+    size = channel.size();
+  }
+
+  @Override
+  public void write(ByteBuffer data) throws IOException {
+    int len = data.remaining();
+    if (data.hasArray()) {
+      os.write(data.array(), data.arrayOffset() + data.position(), len);
+      data.position(data.limit());
+    } else {
+      byte[] bytes = new byte[len];
+      data.get(bytes);
+      os.write(bytes);
+    }
+    size += len;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    os.flush();
+  }
+
+  @Override
+  public void force() throws IOException {
+    channel.force(false);
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public void close() throws IOException {
+    os.close();
+  }
+}
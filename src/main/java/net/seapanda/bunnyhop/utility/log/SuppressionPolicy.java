@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.util.Objects;
+
+/**
+ * 同じログが短時間に大量に出力されたときに, ログを抑制する条件を表すクラス.
+ *
+ * <p>呼び出し元のメソッド名とメッセージ (書式を指定した場合は書式) が同じログを同じログとみなす.
+ * 同じログは一定時間 (ウィンドウ) ごとに指定した件数までを出力し, それ以降のログは出力せずに数だけを数える.
+ * 抑制したログがある場合, ウィンドウが終わった後に抑制した数を記したログを 1 件出力する.
+ *
+ * @author K.Koike
+ */
+public final class SuppressionPolicy {
+
+  /** 抑制のために区別するログの種類の最大数のデフォルト値. */
+  private static final int DEFAULT_MAX_KEYS = 1024;
+
+  /** 1 つのウィンドウで出力する同じログの最大数. */
+  private final int maxOccurrences;
+  /** ウィンドウの長さ. (ms) */
+  private final long windowMillis;
+  /** 抑制の対象にするログの重要度の下限. */
+  private final LogLevel minLevel;
+  /** 抑制のために区別するログの種類の最大数. */
+  private final int maxKeys;
+
+  private SuppressionPolicy(int maxOccurrences, long windowMillis, LogLevel minLevel, int maxKeys) {
+    this.maxOccurrences = maxOccurrences;
+    this.windowMillis = windowMillis;
+    this.minLevel = minLevel;
+    this.maxKeys = maxKeys;
+  }
+
+  /**
+   * {@code windowMillis} ミリ秒ごとに, 同じログを {@code maxOccurrences} 件まで出力する
+   * {@link SuppressionPolicy} を返す.
+   *
+   * <p>抑制の対象となるのは {@link LogLevel#WARN} 以上のログである.
+   *
+   * @param maxOccurrences 1 つのウィンドウで出力する同じログの最大数. (1 以上)
+   * @param windowMillis ウィンドウの長さ (ms). (1 以上)
+   */
+  public static SuppressionPolicy firstPerWindow(int maxOccurrences, long windowMillis) {
+    if (maxOccurrences < 1) {
+      throw new IllegalArgumentException(
+          "'maxOccurrences' must be greater than 0.\n%s was set.".formatted(maxOccurrences));
+    }
+    if (windowMillis < 1) {
+      throw new IllegalArgumentException(
+          "'windowMillis' must be greater than 0.\n%s was set.".formatted(windowMillis));
+    }
+    return new SuppressionPolicy(maxOccurrences, windowMillis, LogLevel.WARN, DEFAULT_MAX_KEYS);
+  }
+
+  /**
+   * 抑制の対象にするログの重要度の下限を変更した {@link SuppressionPolicy} を返す.
+   *
+   * @param minLevel この重要度以上のログを抑制の対象にする
+   */
+  public SuppressionPolicy withMinLevel(LogLevel minLevel) {
+    return new SuppressionPolicy(
+        maxOccurrences, windowMillis, Objects.requireNonNull(minLevel), maxKeys);
+  }
+
+  /**
+   * 抑制のために区別するログの種類の最大数を変更した {@link SuppressionPolicy} を返す.
+   *
+   * <p>区別するログの種類がこの数に達している間, 新しい種類のログは抑制されずに出力される.
+   * 一定時間出力されなかった種類のログは, 区別する対象から外れる.
+   *
+   * @param maxKeys 抑制のために区別するログの種類の最大数. (1 以上)
+   */
+  public SuppressionPolicy withMaxKeys(int maxKeys) {
+    if (maxKeys < 1) {
+      throw new IllegalArgumentException(
+          "'maxKeys' must be greater than 0.\n%s was set.".formatted(maxKeys));
+    }
+    return new SuppressionPolicy(maxOccurrences, windowMillis, minLevel, maxKeys);
+  }
+
+  /** 1 つのウィンドウで出力する同じログの最大数を返す. */
+  int maxOccurrences() {
+    return maxOccurrences;
+  }
+
+  /** ウィンドウの長さ (ms) を返す. */
+  long windowMillis() {
+    return windowMillis;
+  }
+
+  /** 抑制のために区別するログの種類の最大数を返す. */
+  int maxKeys() {
+    return maxKeys;
+  }
+
+  /** 重要度が {@code level} のログが抑制の対象となる場合 true を返す. */
+  boolean appliesTo(LogLevel level) {
+    return level.compareTo(minLevel) >= 0;
+  }
+
+  @Override
+  public String toString() {
+    return "SuppressionPolicy(%s per %s ms, minLevel = %s, maxKeys = %s)".formatted(
+        maxOccurrences, windowMillis, minLevel, maxKeys);
+  }
+}
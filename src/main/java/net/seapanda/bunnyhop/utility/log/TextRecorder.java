@@ -18,22 +18,52 @@ package net.seapanda.bunnyhop.utility.log;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import net.seapanda.bunnyhop.utility.jfr.RecorderRotationEvent;
+import net.seapanda.bunnyhop.utility.jfr.RecorderWriteEvent;
+import net.seapanda.bunnyhop.utility.metrics.LatencyHistogram;
 
 /**
  * ファイルにテキストを出力するクラス.
  *
+ * <p>出力先ファイルの名前と一覧については {@link LogSegments} を参照.
+ *
  * @author K.Koike
  */
 public class TextRecorder implements Closeable {
 
-  /** 出力先ファイルの出力ストリーム. */
-  private OutputStream os;
+  /** {@link FlushPolicy#everyMillis} で指定した間隔でフラッシュを行うスレッド. */
+  private static final ScheduledExecutorService flushScheduler =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "TextRecorder-flusher");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  /** ログ 1 件の書き込みにかかった時間を計測する間隔. */
+  private static final int WRITE_SAMPLING_INTERVAL = 16;
+
+  /** 出力先ファイルにデータを書き込むオブジェクト.  終了処理後は null. */
+  private LogFileWriter writer;
   /** 出力先ファイルを作成するディレクトリのパス. */
   private final Path dirPath;
   /** 出力先ファイルの共通部分の名前. */
@@ -42,14 +72,61 @@ public class TextRecorder implements Closeable {
   private final int maxFileSize;
   /** 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. */
   private final int maxFiles;
-  /** 現在書き込んでいるファイルのサイズ. (Bytes) */
-  private long currentFileSize = 0;
-  /** 現在書き込んでいるファイルのパス. */
-  private final Path logFilePath;
+  /** 出力先ファイルの名前と世代番号の範囲を管理するオブジェクト. */
+  private final LogSegments segments;
+  /** 保持している出力先ファイルのうち最も古いものの世代番号. */
+  private long oldestGeneration;
+  /** 現在書き込んでいるファイルの世代番号. */
+  private long newestGeneration;
+  /** 出力先ファイルにデータを書き込む方法. */
+  private final OutputMode mode;
+  /** 書き込んだデータをフラッシュするタイミング. */
+  private final FlushPolicy flushPolicy;
+  /** 前回のフラッシュ以降に書き込んだデータのサイズ. (Bytes) */
+  private long unflushedBytes = 0;
+  /** 前回フラッシュした時刻. ({@link System#nanoTime} の値) */
+  private long lastFlushTime = System.nanoTime();
+  /** 一定時間ごとのフラッシュを行うタスク.  タスクが無い場合は null. */
+  private final ScheduledFuture<?> flushTask;
+  /** 書き込みが終わった出力先ファイルを保持する方法. */
+  private final RetentionPolicy retentionPolicy;
+  /**
+   * 書き込みが終わった出力先ファイルの世代番号とサイズ (Bytes) のマップ.  世代番号の昇順に並ぶ.
+   * 圧縮が終わっていないファイルのサイズは圧縮前のサイズとする.
+   */
+  private final Map<Long, Long> retiredFileSizes = new LinkedHashMap<>();
+  /** {@link #retiredFileSizes} のサイズの合計. (Bytes) */
+  private long retiredBytes = 0;
+  /** 圧縮を予約したファイルの世代番号と, 圧縮を行うタスクのマップ.  圧縮が終わると取り除く. */
+  private final Map<Long, Future<?>> compressions = new HashMap<>();
+  /** 実行中の圧縮の数. */
+  private int numRunningCompressions = 0;
+  /** 終了処理を始めた場合 true. */
+  private boolean isClosed = false;
+  /** 新しく作成したファイルの先頭に書き込むヘッダを作成する関数.  ヘッダが無い場合は null. */
+  private final Supplier<ByteBuffer> segmentHeader;
+  /** 出力先ファイルに書き込んだログの数. */
+  private long numRecords = 0;
+  /** 出力先ファイルに書き込んだデータのサイズ. (Bytes) */
+  private long numBytes = 0;
+  /** ファイルのローテーションを行った回数. */
+  private long numRotations = 0;
+  /** ファイルのローテーションにかかった時間の合計. (ns) */
+  private long rotationNanos = 0;
+  /** ログ 1 件の書き込みにかかった時間の分布.  {@link #WRITE_SAMPLING_INTERVAL} 件ごとに 1 件を計測する. */
+  private final LatencyHistogram writeLatency = new LatencyHistogram();
+  /** フラッシュにかかった時間の分布. */
+  private final LatencyHistogram flushLatency = new LatencyHistogram();
+  /** 発生したエラーの数. */
+  private long numFailures = 0;
+  /** 最後に発生したエラー.  エラーが発生していない場合は null. */
+  private Exception lastFailure;
 
   /**
    * コンストラクタ.
    *
+   * <p>出力先ファイルへは {@link OutputMode#STREAM} で書き込み, ログを 1 件書き込むたびにフラッシュする.
+   *
    * @param dirPath 出力先ファイルを作成するディレクトリのパス.
    * @param fileName 出力先ファイルの共通部分の名前.
    * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
@@ -57,6 +134,76 @@ public class TextRecorder implements Closeable {
    */
   TextRecorder(Path dirPath, String fileName, int maxFileSize, int maxFiles)
       throws IOException {
+    this(dirPath, fileName, maxFileSize, maxFiles, OutputMode.STREAM, FlushPolicy.everyRecord());
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   */
+  TextRecorder(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      OutputMode mode,
+      FlushPolicy flushPolicy) throws IOException {
+    this(dirPath, fileName, maxFileSize, maxFiles, mode, flushPolicy,
+        RetentionPolicy.uncompressed());
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   * @param retentionPolicy 書き込みが終わった出力先ファイルを保持する方法
+   */
+  TextRecorder(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      OutputMode mode,
+      FlushPolicy flushPolicy,
+      RetentionPolicy retentionPolicy) throws IOException {
+    this(dirPath, fileName, maxFileSize, maxFiles, mode, flushPolicy, retentionPolicy, null);
+  }
+
+  /**
+   * コンストラクタ.
+   *
+   * <p>{@code segmentHeader} を指定した場合, 既存のファイルには追記せずに新しいファイルから書き込みを始める.
+   *
+   * @param dirPath 出力先ファイルを作成するディレクトリのパス.
+   * @param fileName 出力先ファイルの共通部分の名前.
+   * @param maxFileSize 出力先ファイルの最大サイズ (Bytes)
+   * @param maxFiles 出力先ファイルの最大個数. この個数を超えるとファイルのローテーションを行う. (1 ~ 9999)
+   * @param mode 出力先ファイルにデータを書き込む方法
+   * @param flushPolicy 書き込んだデータをフラッシュするタイミング
+   * @param retentionPolicy 書き込みが終わった出力先ファイルを保持する方法
+   * @param segmentHeader 新しく作成したファイルの先頭に書き込むヘッダを作成する関数.  ヘッダが無い場合は null.
+   *                      ファイルのローテーションを行うときに, このオブジェクトのロックを取得した状態で呼ばれる.
+   */
+  TextRecorder(
+      Path dirPath,
+      String fileName,
+      int maxFileSize,
+      int maxFiles,
+      OutputMode mode,
+      FlushPolicy flushPolicy,
+      RetentionPolicy retentionPolicy,
+      Supplier<ByteBuffer> segmentHeader) throws IOException {
     if (maxFiles < 1 || 9999 < maxFiles) {
       throw new IllegalArgumentException(String.format(
           "'maxFile' must be between %s and %s inclusive.\n%s was set.", 1, 9999, maxFiles));
@@ -65,25 +212,91 @@ public class TextRecorder implements Closeable {
     this.fileName = fileName;
     this.maxFileSize = maxFileSize;
     this.maxFiles = maxFiles;
-    this.logFilePath = genLogFilePath(0);
+    this.mode = Objects.requireNonNull(mode);
+    this.flushPolicy = Objects.requireNonNull(flushPolicy);
+    this.retentionPolicy = Objects.requireNonNull(retentionPolicy);
+    this.segmentHeader = segmentHeader;
+    this.segments = new LogSegments(dirPath, fileName);
     initialize();
+    if (flushPolicy.trigger() == FlushPolicy.Trigger.EVERY_MILLIS) {
+      long interval = flushPolicy.threshold();
+      flushTask = flushScheduler.scheduleWithFixedDelay(
+          this::flushIfExpired, interval, interval, TimeUnit.MILLISECONDS);
+    } else {
+      flushTask = null;
+    }
   }
 
   private void initialize() throws IOException {
     if (!Files.isDirectory(dirPath)) {
       Files.createDirectory(dirPath);
     }
-    if (!Files.exists(logFilePath)) {
-      Files.createFile(logFilePath);
+    Optional<LogSegments.Manifest> manifest = segments.readManifest();
+    if (manifest.isPresent()) {
+      oldestGeneration = manifest.get().oldest();
+      newestGeneration = manifest.get().newest();
+    } else {
+      recoverGenerations();
     }
-    // ファイルのローテーション
-    if (Files.size(logFilePath) > maxFileSize) {
-      renameLogFiles();
+    // 前回の終了時にローテーションの途中で削除できなかった古い世代のファイルを全て削除する.
+    // 最大個数を超えたファイルは, 以降の deleteExpiredFiles で削除する.
+    segments.deleteOlderThan(oldestGeneration);
+    collectRetiredFiles();
+    Path logFilePath = segments.path(newestGeneration);
+    long fileSize = Files.exists(logFilePath) ? Files.size(logFilePath) : 0;
+    // ヘッダを書き込む場合, ヘッダの内容は前回までのファイルの内容と対応しないので, 新しいファイルに書き込む
+    if (fileSize > maxFileSize || (segmentHeader != null && fileSize > 0)) {
+      rotateLogFiles();
+    } else {
+      deleteExpiredFiles();
     }
-    currentFileSize = Files.size(logFilePath);
-    os = Files.newOutputStream(
-        logFilePath,
-        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    openSegment();
+  }
+
+  /** 書き込み中の世代のファイルを開いて, 新しいファイルであればヘッダを書き込む. */
+  private void openSegment() throws IOException {
+    writer = openWriter(segments.path(newestGeneration));
+    if (segmentHeader != null && writer.size() == 0) {
+      ByteBuffer header = segmentHeader.get();
+      unflushedBytes += header.remaining();
+      writer.write(header);
+    }
+  }
+
+  /** マニフェストファイルを読めなかった場合に, ディレクトリにあるファイルから世代番号の範囲を求める. */
+  private void recoverGenerations() throws IOException {
+    List<Long> generations = segments.scan();
+    if (generations.isEmpty()) {
+      oldestGeneration = 1;
+      newestGeneration = Math.max(segments.migrateLegacyFiles(), 1);
+    } else {
+      oldestGeneration = generations.get(0);
+      newestGeneration = generations.get(generations.size() - 1);
+    }
+  }
+
+  /** 書き込みが終わったファイルのサイズを集計して, 圧縮されていないものがあれば圧縮する. */
+  private void collectRetiredFiles() throws IOException {
+    for (long generation = oldestGeneration; generation < newestGeneration; ++generation) {
+      Optional<Path> path = segments.find(generation);
+      if (path.isEmpty()) {
+        continue;
+      }
+      // 圧縮したファイルへの置き換えの途中で終了した場合, 圧縮前のファイルが残っている
+      if (!path.get().equals(segments.path(generation))) {
+        Files.deleteIfExists(segments.path(generation));
+      }
+      retire(generation, path.get());
+    }
+  }
+
+  /** {@link #mode} に応じた {@link LogFileWriter} を作成する. */
+  private LogFileWriter openWriter(Path filePath) throws IOException {
+    return switch (mode) {
+      case STREAM -> new StreamLogFileWriter(filePath);
+      case CHANNEL -> new ChannelLogFileWriter(filePath);
+      case MAPPED -> new MappedLogFileWriter(filePath, maxFileSize);
+    };
   }
 
   /**
@@ -92,59 +305,354 @@ public class TextRecorder implements Closeable {
    * @param msg 出力先ファイルに書き込むテキスト
    */
   public void write(String msg) {
+    write(ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * 出力先ファイルにデータを書き込む.
+   *
+   * <p>書き込んだデータはこのオブジェクトの {@link FlushPolicy} に従ってフラッシュされる.
+   *
+   * @param data 出力先ファイルに書き込むデータ.  position から limit までのデータを書き込む.
+   * @return {@code data} を書き込めた場合 true.  終了処理後に呼んだ場合や, 書き込みに失敗した場合 false.
+   */
+  public synchronized boolean write(ByteBuffer data) {
+    if (!append(data)) {
+      return false;
+    }
+    applyFlushPolicy();
+    return true;
+  }
+
+  /**
+   * {@link FlushPolicy} を適用せずに出力先ファイルにデータを書き込む.
+   *
+   * <p>複数のログをまとめて書き込む場合は, このメソッドで全て書き込んでから {@link #applyFlushPolicy} を呼ぶ.
+   *
+   * @param data 出力先ファイルに書き込むデータ.  position から limit までのデータを書き込む.
+   * @return {@code data} を書き込めた場合 true.  終了処理後に呼んだ場合や, 書き込みに失敗した場合 false.
+   */
+  synchronized boolean append(ByteBuffer data) {
     try {
-      if (os != null) {
-        byte[] msgData = msg.getBytes(StandardCharsets.UTF_8);
-        if ((currentFileSize + msgData.length) > maxFileSize) {
-          reopen();
-        }
-        os.write(msgData);
-        os.flush();
+      if (writer != null) {
+        appendData(data);
+        return true;
+      }
+    } catch (IOException | SecurityException e) {
+      recordFailure(e);
+    }
+    return false;
+  }
+
+  /** {@link #append} で書き込んだデータを 1 件のログとみなして {@link FlushPolicy} を適用する. */
+  synchronized void applyFlushPolicy() {
+    try {
+      if (writer != null) {
+        flushByPolicy();
+      }
+    } catch (IOException | SecurityException e) {
+      recordFailure(e);
+    }
+  }
+
+  /**
+   * 書き込んだデータをフラッシュする.
+   *
+   * <p>{@link FlushPolicy#groupCommit} を指定した場合, このメソッドを呼んだ時点までに書き込んだデータがまとめてフラッシュされる.
+   */
+  public synchronized void flush() {
+    try {
+      if (writer != null) {
+        flushWriter();
       }
-    } catch (IOException | SecurityException e) { /* do nothing */ }
+    } catch (IOException | SecurityException e) {
+      recordFailure(e);
+    }
+  }
+
+  /** {@code data} の position から limit までのデータを出力先ファイルに書き込む. */
+  private void appendData(ByteBuffer data) throws IOException {
+    // 時刻の取得はデータのコピーよりも遅い場合があるので, 一部の書き込みだけ計測する
+    boolean isSampled = (numRecords % WRITE_SAMPLING_INTERVAL) == 0;
+    long startTime = isSampled ? System.nanoTime() : 0;
+    var event = new RecorderWriteEvent();
+    event.begin();
+    int len = data.remaining();
+    if (writer.size() > 0 && (writer.size() + len) > maxFileSize) {
+      reopen();
+    }
+    writer.write(data);
+    unflushedBytes += len;
+    ++numRecords;
+    numBytes += len;
+    if (isSampled) {
+      writeLatency.record(System.nanoTime() - startTime);
+    }
+    if (event.shouldCommit()) {
+      event.file = segments.path(newestGeneration).toString();
+      event.bytes = len;
+      event.commit();
+    }
+  }
+
+  /** {@link #flushPolicy} がフラッシュを必要とする場合, フラッシュする. */
+  private void flushByPolicy() throws IOException {
+    boolean needsFlush = switch (flushPolicy.trigger()) {
+      case EVERY_RECORD -> true;
+      case EVERY_BYTES -> unflushedBytes >= flushPolicy.threshold();
+      case EVERY_MILLIS -> isFlushIntervalExpired();
+      case GROUP_COMMIT -> false;
+    };
+    if (needsFlush) {
+      flushWriter();
+    }
+  }
+
+  /** 前回のフラッシュから {@link FlushPolicy#everyMillis} で指定した時間が経過している場合 true を返す. */
+  private boolean isFlushIntervalExpired() {
+    return (System.nanoTime() - lastFlushTime) >= TimeUnit.MILLISECONDS.toNanos(
+        flushPolicy.threshold());
+  }
+
+  /** 前回のフラッシュから一定時間が経過していて, フラッシュしていないデータがある場合, フラッシュする. */
+  private synchronized void flushIfExpired() {
+    try {
+      if (writer != null && unflushedBytes > 0 && isFlushIntervalExpired()) {
+        flushWriter();
+      }
+    } catch (IOException | SecurityException e) {
+      recordFailure(e);
+    }
+  }
+
+  /** {@link #writer} をフラッシュして, 必要であればストレージデバイスに同期する. */
+  private void flushWriter() throws IOException {
+    long startTime = System.nanoTime();
+    writer.flush();
+    if (flushPolicy.isForceEnabled()) {
+      writer.force();
+    }
+    unflushedBytes = 0;
+    lastFlushTime = System.nanoTime();
+    flushLatency.record(lastFlushTime - startTime);
   }
 
   /** ファイルローテーション後に新しくファイルを開く. */
   private void reopen() throws IOException {
-    os.close();
-    renameLogFiles();
-    currentFileSize = Files.size(logFilePath);
-    os = Files.newOutputStream(
-        logFilePath,
-        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    long startTime = System.nanoTime();
+    var event = new RecorderRotationEvent();
+    event.begin();
+    long retiredGeneration = newestGeneration;
+    flushWriter();
+    writer.close();
+    rotateLogFiles();
+    openSegment();
+    ++numRotations;
+    rotationNanos += System.nanoTime() - startTime;
+    if (event.shouldCommit()) {
+      event.retiredFile = segments.path(retiredGeneration).toString();
+      event.generation = newestGeneration;
+      event.commit();
+    }
+  }
+
+  /**
+   * ファイルをローテーションするため, 書き込み先の世代番号を進める.
+   *
+   * <p>既存のファイルの名前は変更せず, 最大個数を超えた最も古いファイルだけを削除する.
+   */
+  private void rotateLogFiles() throws IOException {
+    retire(newestGeneration, segments.path(newestGeneration));
+    ++newestGeneration;
+    deleteExpiredFiles();
   }
 
   /**
-   * ファイルをローテンションするため, ファイルをリネームする.
+   * {@code generation} のファイルを書き込みが終わったファイルとして記録する.
+   * {@link #retentionPolicy} が圧縮を指定していて, ファイルが圧縮されていない場合は圧縮を予約する.
+   * 圧縮を予約したファイルは, 圧縮が終わるまで圧縮前のサイズを合計サイズに加える.
    */
-  private void renameLogFiles() throws IOException {
-    Path oldestLogFilePath = genLogFilePath(maxFiles - 1);
-    if (Files.exists(oldestLogFilePath)) {
-      Files.delete(oldestLogFilePath);
+  private void retire(long generation, Path path) throws IOException {
+    long size = Files.size(path);
+    retiredFileSizes.put(generation, size);
+    retiredBytes += size;
+    if (retentionPolicy.compression() != Compression.NONE
+        && path.equals(segments.path(generation))) {
+      compressions.put(
+          generation, SegmentCompressor.submit(() -> compressRetiredFile(generation)));
     }
-    for (int fileNo = maxFiles - 2; fileNo >= 0; --fileNo) {
-      Path oldLogFilePath = genLogFilePath(fileNo);
-      Path newLogFilePath = genLogFilePath(fileNo + 1);
-      if (Files.exists(oldLogFilePath)) {
-        Files.move(oldLogFilePath, newLogFilePath, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * 最大個数または合計サイズの上限を超えた古いファイルを削除して, マニフェストファイルを更新する.
+   *
+   * <p>マニフェストファイルを先に更新するので, 削除の途中で終了しても残ったファイルは次回の起動時に削除される.
+   */
+  private void deleteExpiredFiles() throws IOException {
+    long expired = oldestGeneration;
+    oldestGeneration = Math.max(oldestGeneration, newestGeneration - maxFiles + 1);
+    Iterator<Map.Entry<Long, Long>> iter = retiredFileSizes.entrySet().iterator();
+    while (iter.hasNext()) {
+      Map.Entry<Long, Long> entry = iter.next();
+      if (entry.getKey() >= oldestGeneration
+          && retiredBytes <= retentionPolicy.maxTotalBytes()) {
+        break;
       }
+      retiredBytes -= entry.getValue();
+      oldestGeneration = Math.max(oldestGeneration, entry.getKey() + 1);
+      iter.remove();
+    }
+    segments.writeManifest(new LogSegments.Manifest(oldestGeneration, newestGeneration));
+    for (long generation = expired; generation < oldestGeneration; ++generation) {
+      segments.delete(generation);
     }
   }
 
-  private Path genLogFilePath(int fileNo) {
-    String numStr = ("0000" + fileNo);
-    numStr = numStr.substring(numStr.length() - 4);
-    String fileName = "%s-%s.log".formatted(this.fileName, numStr);
-    return dirPath.resolve(fileName);
+  /**
+   * 書き込みが終わった {@code generation} のファイルを圧縮する.
+   *
+   * <p>圧縮を行うスレッドで呼ばれる.  圧縮したデータを一時ファイルに書き込んでから置き換えるので,
+   * 圧縮の途中で終了しても圧縮前のファイルは失われない.
+   */
+  private void compressRetiredFile(long generation) {
+    if (!beginCompression(generation)) {
+      return;
+    }
+    Path tmpPath = segments.tmpPath(generation);
+    try {
+      SegmentCompressor.compress(
+          segments.path(generation),
+          tmpPath,
+          retentionPolicy.compression(),
+          retentionPolicy.compressionRate());
+      replaceWithCompressedFile(generation, tmpPath);
+    } catch (IOException | SecurityException | InterruptedException e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      } else if (!(e instanceof ClosedByInterruptException)
+          && (!(e instanceof NoSuchFileException) || isRetained(generation))) {
+        // 終了処理で中断した場合と, 圧縮している間に削除されたファイルを読めなかった場合は失敗としない
+        recordFailure(e);
+      }
+      try {
+        Files.deleteIfExists(tmpPath);
+      } catch (IOException | SecurityException e1) { /* do nothing */ }
+    } finally {
+      endCompression(generation);
+    }
+  }
+
+  /**
+   * {@code generation} のファイルの圧縮を始める.
+   *
+   * @return 圧縮を始めた場合 true.  終了処理を始めたか, ファイルが削除されていた場合 false.
+   */
+  private synchronized boolean beginCompression(long generation) {
+    if (isClosed || !retiredFileSizes.containsKey(generation)) {
+      compressions.remove(generation);
+      return false;
+    }
+    ++numRunningCompressions;
+    return true;
   }
 
-  /** 終了処理をする. */
+  /** {@code generation} のファイルの圧縮が終わったことを記録して, 終了処理に知らせる. */
+  private synchronized void endCompression(long generation) {
+    --numRunningCompressions;
+    compressions.remove(generation);
+    notifyAll();
+  }
+
+  /** 書き込みが終わった {@code generation} のファイルが削除されずに残っている場合 true を返す. */
+  private synchronized boolean isRetained(long generation) {
+    return retiredFileSizes.containsKey(generation);
+  }
+
+  /** 書き込みが終わった {@code generation} のファイルを, 圧縮したデータを書き込んだ {@code tmpPath} で置き換える. */
+  private synchronized void replaceWithCompressedFile(long generation, Path tmpPath)
+      throws IOException {
+    Long size = retiredFileSizes.get(generation);
+    // 圧縮している間に削除された
+    if (size == null) {
+      Files.deleteIfExists(tmpPath);
+      return;
+    }
+    Path compressedPath = segments.path(generation, retentionPolicy.compression());
+    Files.move(tmpPath, compressedPath, StandardCopyOption.ATOMIC_MOVE);
+    Files.deleteIfExists(segments.path(generation));
+    long compressedSize = Files.size(compressedPath);
+    retiredFileSizes.put(generation, compressedSize);
+    retiredBytes += compressedSize - size;
+    if (retiredBytes > retentionPolicy.maxTotalBytes()) {
+      deleteExpiredFiles();
+    }
+  }
+
+  /**
+   * このオブジェクトの統計情報のスナップショットを返す.
+   *
+   * <p>統計情報はこのオブジェクトのロックを保持している間に更新するので, 収集のために追加の同期は行わない.
+   */
+  public synchronized RecorderMetrics getMetrics() {
+    return new RecorderMetrics(
+        numRecords,
+        numBytes,
+        numRotations,
+        rotationNanos,
+        writeLatency.copy(),
+        flushLatency.copy(),
+        numFailures,
+        lastFailure);
+  }
+
+  /**
+   * 発生したエラーを記録する.
+   *
+   * <p>このオブジェクトの I/O エラーの他に, ログを書き込むスレッドで発生した例外も記録する.
+   */
+  synchronized void recordFailure(Exception e) {
+    ++numFailures;
+    lastFailure = e;
+  }
+
+  /**
+   * 終了処理をする.
+   *
+   * <p>実行を待っているファイルの圧縮は取り消し, 実行中の圧縮は中断させて, 終わるのを待ってから制御を返す.
+   * 圧縮を取り消したファイルは, 次に同じファイルに書き込む {@link TextRecorder} を作成したときに圧縮される.
+   */
   @Override
-  public void close() {
+  public synchronized void close() {
+    isClosed = true;
+    if (flushTask != null) {
+      flushTask.cancel(false);
+    }
     try {
-      if (os != null) {
-        os.close();
+      if (writer != null) {
+        try {
+          flushWriter();
+        } finally {
+          writer.close();
+        }
       }
-    } catch (IOException e) { /* do nothing */ }
+    } catch (IOException e) {
+      recordFailure(e);
+    } finally {
+      writer = null;
+    }
+    compressions.values().forEach(compression -> compression.cancel(true));
+    compressions.clear();
+    boolean interrupted = false;
+    // 待機中はロックを解放するので, 実行中の圧縮は終わることができる
+    while (numRunningCompressions > 0) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
   }
 }
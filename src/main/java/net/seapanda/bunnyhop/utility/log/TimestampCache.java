@@ -0,0 +1,63 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.log;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * ログに出力する時刻の文字列を秒単位でキャッシュするクラス.
+ *
+ * <p>同じ秒の間に出力されたログに対しては, 同じ文字列オブジェクトを返す.
+ *
+ * @author K.Koike
+ */
+final class TimestampCache {
+
+  private static final DateTimeFormatter formatter =
+      DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+
+  /** 最後に作成した時刻の文字列. */
+  private volatile Entry entry = new Entry(Long.MIN_VALUE, "");
+
+  /**
+   * {@code timeMillis} を "yyyy/MM/dd HH:mm:ss" 形式の文字列に変換する.
+   *
+   * @param timeMillis 変換する時刻 (エポックミリ秒)
+   * @return {@code timeMillis} をシステムのデフォルトのタイムゾーンで表した文字列
+   */
+  String get(long timeMillis) {
+    long epochSecond = Math.floorDiv(timeMillis, 1000);
+    Entry entry = this.entry;
+    if (entry.epochSecond != epochSecond) {
+      String text = formatter.format(
+          Instant.ofEpochSecond(epochSecond).atZone(ZoneId.systemDefault()));
+      entry = new Entry(epochSecond, text);
+      this.entry = entry;
+    }
+    return entry.text;
+  }
+
+  /**
+   * 時刻とその文字列表現の組.
+   *
+   * @param epochSecond 時刻 (エポック秒)
+   * @param text {@code epochSecond} の文字列表現
+   */
+  private record Entry(long epochSecond, String text) {}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.seapanda.bunnyhop.utility.metrics;
+
+import java.util.Arrays;
+
+/**
+ * 処理時間の分布を記録するヒストグラム.
+ *
+ * <p>i 番目のバケットは 2<sup>i-1</sup> ns 以上 2<sup>i</sup> ns 未満の処理時間の回数を数える.
+ * 0 番目のバケットは 0 ns の回数を数える.
+ * 記録は配列の要素のインクリメントだけで行い, オブジェクトを作成しない.
+ * このクラスはスレッドセーフではない.  統計情報のスナップショットから取得したインスタンスは変更されない.
+ *
+ * @author K.Koike
+ */
+public final class LatencyHistogram {
+
+  /** バケットの数. */
+  public static final int NUM_BUCKETS = 64;
+
+  private final long[] counts;
+  /** 記録した回数. */
+  private long count = 0;
+  /** 記録した処理時間の合計. (ns) */
+  private long totalNanos = 0;
+  /** 記録した処理時間の最大値. (ns) */
+  private long maxNanos = 0;
+
+  /** 記録が無いヒストグラムを作成する. */
+  public LatencyHistogram() {
+    counts = new long[NUM_BUCKETS];
+  }
+
+  private LatencyHistogram(LatencyHistogram org) {
+    counts = org.counts.clone();
+    count = org.count;
+    totalNanos = org.totalNanos;
+    maxNanos = org.maxNanos;
+  }
+
+  /**
+   * 各バケットの回数から {@link LatencyHistogram} を作成する.
+   *
+   * @param bucketCounts 各バケットの回数.  要素数は {@link #NUM_BUCKETS} であること.
+   * @param totalNanos 記録した処理時間の合計 (ns)
+   * @param maxNanos 記録した処理時間の最大値 (ns)
+   * @return 作成した {@link LatencyHistogram}
+   */
+  public static LatencyHistogram of(long[] bucketCounts, long totalNanos, long maxNanos) {
+    if (bucketCounts.length != NUM_BUCKETS) {
+      throw new IllegalArgumentException(
+          "'bucketCounts.length' must be %s.\n%s was set."
+              .formatted(NUM_BUCKETS, bucketCounts.length));
+    }
+    var histogram = new LatencyHistogram();
+    for (int i = 0; i < NUM_BUCKETS; ++i) {
+      histogram.counts[i] = bucketCounts[i];
+      histogram.count += bucketCounts[i];
+    }
+    histogram.totalNanos = totalNanos;
+    histogram.maxNanos = maxNanos;
+    return histogram;
+  }
+
+  /** 処理時間を記録する. */
+  public void record(long nanos) {
+    nanos = Math.max(nanos, 0);
+    ++counts[bucketOf(nanos)];
+    ++count;
+    totalNanos += nanos;
+    maxNanos = Math.max(maxNanos, nanos);
+  }
+
+  /** このヒストグラムのコピーを返す. */
+  public LatencyHistogram copy() {
+    return new LatencyHistogram(this);
+  }
+
+  /** 記録した回数を返す. */
+  public long getCount() {
+    return count;
+  }
+
+  /** 記録した処理時間の合計 (ns) を返す. */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /** 記録した処理時間の最大値 (ns) を返す. */
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  /** 記録した処理時間の平均値 (ns) を返す.  記録が無い場合は 0. */
+  public double getMeanNanos() {
+    return (count == 0) ? 0 : (double) totalNanos / count;
+  }
+
+  /**
+   * 記録した処理時間の {@code quantile} 分位点の上限 (ns) を返す.
+   *
+   * <p>分位点を含むバケットの上限を返すので, 実際の値の 2 倍未満の誤差を含む.
+   *
+   * @param quantile 0 以上 1 以下の値.  例えば 99 パーセンタイルの場合は 0.99.
+   * @return {@code quantile} 分位点の上限.  記録が無い場合は 0.
+   */
+  public long getQuantileNanos(double quantile) {
+    if (quantile < 0 || 1 < quantile) {
+      throw new IllegalArgumentException(
+          "'quantile' must be between 0 and 1 inclusive.\n%s was set.".formatted(quantile));
+    }
+    long rank = (long) Math.ceil(count * quantile);
+    long numCounted = 0;
+    for (int i = 0; i < NUM_BUCKETS; ++i) {
+      numCounted += counts[i];
+      if (numCounted >= rank && numCounted > 0) {
+        return Math.min(getUpperBound(i), maxNanos);
+      }
+    }
+    return 0;
+  }
+
+  /** 各バケットの回数を格納した配列を返す. */
+  public long[] getBucketCounts() {
+    return counts.clone();
+  }
+
+  /** 0 以上の処理時間 {@code nanos} を数えるバケットの番号を返す. */
+  public static int bucketOf(long nanos) {
+    return NUM_BUCKETS - Long.numberOfLeadingZeros(nanos);
+  }
+
+  /** {@code bucket} 番目のバケットが数える処理時間の上限 (ns) を返す.  上限の値はバケットに含まない. */
+  public static long getUpperBound(int bucket) {
+    return (bucket >= NUM_BUCKETS - 1) ? Long.MAX_VALUE : (1L << bucket);
+  }
+
+  @Override
+  public String toString() {
+    return "LatencyHistogram(count = %s, mean = %.0f ns, p50 <= %s ns, p99 <= %s ns, max = %s ns)"
+        .formatted(
+            count, getMeanNanos(), getQuantileNanos(0.5), getQuantileNanos(0.99), maxNanos);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof LatencyHistogram other
+        && count == other.count
+        && totalNanos == other.totalNanos
+        && maxNanos == other.maxNanos
+        && Arrays.equals(counts, other.counts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(counts);
+  }
+}
@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
+import net.seapanda.bunnyhop.utility.jfr.TextDatabaseLoadEvent;
 
 /**
  * Json 形式で定義されたテキストデータを取得する機能を提供するクラス.
@@ -51,11 +52,14 @@ public class JsonTextDatabase implements TextDatabase {
       IOException,
       JsonIOException,
       JsonSyntaxException {
+    var event = new TextDatabaseLoadEvent();
+    event.begin();
     var gson = new Gson();
     try (var jr = gson.newJsonReader(new FileReader(filePath.toString()))) {
       JsonObject jsonObj = gson.fromJson(jr, JsonObject.class);
       createDatabase(new LinkedList<String>(), jsonObj);
     }
+    event.commit(filePath, database.size());
   }
 
   /**
@@ -64,9 +68,12 @@ public class JsonTextDatabase implements TextDatabase {
    * @param jsonStr テキストデータが定義された JSON 文字列.
    */
   public JsonTextDatabase(String jsonStr) throws JsonSyntaxException {
+    var event = new TextDatabaseLoadEvent();
+    event.begin();
     var gson = new Gson();
     JsonObject jsonObj = gson.fromJson(jsonStr, JsonObject.class);
     createDatabase(new LinkedList<String>(), jsonObj);
+    event.commit(null, database.size());
   }
 
   /**
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.concurrent.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import net.seapanda.bunnyhop.utility.event.InvocationException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * コールバック関数が投げた例外の扱いを確認するテスト.
+ *
+ * @author K.Koike
+ */
+class InvokerErrorTest {
+
+  @Test
+  void invokePassesCallbackExceptionsToErrorHandler() throws Exception {
+    var invoker = new AsyncConsumerInvoker<Integer>(Runnable::run, DispatchMode.ORDERED);
+    var handled = new CompletableFuture<Throwable>();
+    invoker.setErrorHandler(handled::complete);
+    invoker.getRegistry().add(value -> {
+      throw new IllegalStateException();
+    });
+    invoker.invoke(0);
+    var e = assertInstanceOf(InvocationException.class, handled.get(10, TimeUnit.SECONDS));
+    assertInstanceOf(IllegalStateException.class, e.getCause());
+  }
+
+  @Test
+  void errorsAreNotWrappedIntoInvocationException() throws Exception {
+    var error = new AssertionError();
+    var invoker = new AsyncConsumerInvoker<Integer>(Runnable::run, DispatchMode.PARALLEL);
+    var handled = new CompletableFuture<Throwable>();
+    invoker.setErrorHandler(handled::complete);
+    invoker.getRegistry().add(value -> {
+      throw error;
+    });
+    invoker.invoke(0);
+    assertSame(error, handled.get(10, TimeUnit.SECONDS));
+    var e = assertThrows(ExecutionException.class, () -> invoker.invokeAsync(0).get());
+    assertSame(error, e.getCause());
+  }
+
+  @Test
+  void parallelDispatchRethrowsErrorsUnchanged() {
+    var error = new AssertionError();
+    var invoker = new ConcurrentConsumerInvoker<Integer>();
+    invoker.setParallelThreshold(1);
+    for (int i = 0; i < 8; ++i) {
+      invoker.getRegistry().add(value -> {});
+    }
+    invoker.getRegistry().add(value -> {
+      throw error;
+    });
+    assertSame(error, assertThrows(AssertionError.class, () -> invoker.invoke(0)));
+
+    var other = new ConcurrentConsumerInvoker<Integer>();
+    other.setParallelThreshold(1);
+    other.getRegistry().add(value -> {
+      throw new IllegalStateException();
+    });
+    var e = assertThrows(InvocationException.class, () -> other.invoke(0));
+    assertEquals(List.of(IllegalStateException.class),
+        e.getCauses().stream().map(Object::getClass).toList());
+  }
+}
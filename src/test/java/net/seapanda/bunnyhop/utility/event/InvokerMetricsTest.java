@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import net.seapanda.bunnyhop.utility.concurrent.event.AsyncConsumerInvoker;
+import net.seapanda.bunnyhop.utility.concurrent.event.ConcurrentConsumerInvoker;
+import org.junit.jupiter.api.Test;
+
+/**
+ * コールバック関数を呼び出すクラスの統計情報の記録と並列呼び出しの設定を確認するテスト.
+ *
+ * @author K.Koike
+ */
+class InvokerMetricsTest {
+
+  private static final int NUM_INVOCATIONS = 1000;
+
+  @Test
+  void recordsNothingUntilEnabled() {
+    var invoker = new SimpleConsumerInvoker<Integer>();
+    invoker.getRegistry().add(new Listener());
+    invoker.invoke(0);
+    assertNull(invoker.getMetrics());
+
+    invoker.enableMetrics();
+    invoker.invoke(0);
+    invoker.invoke(0);
+    assertEquals(2, invoker.getMetrics().numInvocations());
+    assertEquals(2, invoker.getMetrics().numListenerCalls());
+    assertEquals(1, invoker.getMetrics().maxListeners());
+
+    invoker.disableMetrics();
+    invoker.invoke(0);
+    assertNull(invoker.getMetrics());
+  }
+
+  @Test
+  void reportsSlowListenersByTheirClass() {
+    Consumer<Integer> weak = new Listener();
+    List<ConsumerInvoker<Integer>> invokers =
+        List.of(new SimpleConsumerInvoker<>(), new ConcurrentConsumerInvoker<>());
+    for (var invoker : invokers) {
+      invoker.getRegistry().addWeak(weak);
+      invoker.enableMetrics(1, TimeUnit.NANOSECONDS);
+      for (int i = 0; i < NUM_INVOCATIONS; ++i) {
+        invoker.invoke(i);
+      }
+      var metrics = invoker.getMetrics();
+      assertEquals(NUM_INVOCATIONS, metrics.numListenerCalls());
+      assertEquals(1, metrics.slowListeners().size());
+      assertEquals(Listener.class, metrics.slowListeners().getFirst().listenerClass());
+    }
+  }
+
+  @Test
+  void rejectsSettingsTheInvokerCannotHonor() {
+    assertThrows(
+        UnsupportedOperationException.class,
+        () -> new SimpleConsumerInvoker<Integer>().setParallelThreshold(2));
+    assertThrows(
+        UnsupportedOperationException.class,
+        () -> new AsyncConsumerInvoker<Integer>().enableMetrics());
+    assertThrows(
+        UnsupportedOperationException.class,
+        () -> new AsyncConsumerInvoker<Integer>().enableMetrics(1, TimeUnit.MILLISECONDS));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new SimpleConsumerInvoker<Integer>().enableMetrics(0, TimeUnit.MILLISECONDS));
+  }
+
+  /** 統計情報にクラスが記録されるコールバック関数. */
+  private static class Listener implements Consumer<Integer> {
+
+    private int sum = 0;
+
+    @Override
+    public void accept(Integer value) {
+      sum += value;
+    }
+  }
+}
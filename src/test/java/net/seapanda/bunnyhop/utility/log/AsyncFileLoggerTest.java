@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+import net.seapanda.bunnyhop.utility.log.AsyncFileLogger.OverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link AsyncFileLogger} の書き込み用のスレッドで例外が発生したときの動作のテスト.
+ *
+ * @author K.Koike
+ */
+class AsyncFileLoggerTest {
+
+  /** 標準出力への書き込みで例外を投げるメッセージ. */
+  private static final String FAILING = "failing message";
+
+  @TempDir
+  Path dir;
+  private PrintStream stdout;
+
+  /** {@link #FAILING} を含むログを標準出力に出力すると例外を投げるようにする. */
+  @BeforeEach
+  void replaceStdout() {
+    stdout = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8) {
+      @Override
+      public void write(byte[] buf, int off, int len) {
+        if (new String(buf, off, len, StandardCharsets.UTF_8).contains(FAILING)) {
+          throw new IllegalStateException();
+        }
+      }
+    });
+  }
+
+  @AfterEach
+  void restoreStdout() {
+    System.setOut(stdout);
+  }
+
+  @Test
+  void writerKeepsDrainingAfterWriteThrows() throws IOException {
+    var logger = new AsyncFileLogger(dir, "log", 1024 * 1024, 4, 2, OverflowPolicy.BLOCK);
+    logger.setCallerInfoMode(CallerInfoMode.NONE);
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+      logger.info(FAILING);
+      for (int i = 0; i < 100; ++i) {
+        logger.info("message " + i);
+      }
+      logger.close();
+    });
+    assertEquals(1, logger.getMetrics().numFailures());
+    assertTrue(readLogs().contains("message 99"));
+  }
+
+  /** 出力先ディレクトリのログファイルの内容を全て読み出す. */
+  private String readLogs() throws IOException {
+    var text = new StringBuilder();
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path file : files.sorted().toList()) {
+        text.append(Files.readString(file));
+      }
+    }
+    return text.toString();
+  }
+}
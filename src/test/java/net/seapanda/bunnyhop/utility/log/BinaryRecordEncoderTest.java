@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link BinaryRecordEncoder} でエンコードしたログを {@link LogDecoder} でデコードするテスト.
+ *
+ * @author K.Koike
+ */
+class BinaryRecordEncoderTest {
+
+  private static final long TIME = 1_700_000_000_000L;
+
+  private final BinaryRecordEncoder encoder = new BinaryRecordEncoder();
+  private final ByteArrayOutputStream file = new ByteArrayOutputStream();
+  private final StringBuilder expected = new StringBuilder();
+
+  @Test
+  void decodesMessagesAndFormattedRecords() throws IOException {
+    write(encoder.header());
+    writeMessage(LogLevel.INFO, "Main.run", "hello");
+    writeMessage(LogLevel.ERROR, "Main.run", "日本語のメッセージ");
+    writeFormat(LogLevel.WARN, "Main.stop", "%s (%d)", "stopped", 3);
+    assertEquals(expected.toString(), decode());
+  }
+
+  @Test
+  void recordsFollowingDroppedRecordReferToDefinedEntries() throws IOException {
+    write(encoder.header());
+    writeMessage(LogLevel.INFO, "Main.run", "first");
+    // 新しい辞書の要素を定義したログを書き込めなかった場合
+    encoder.encode(LogLevel.INFO, "Main.dropped", TIME, "lost");
+    encoder.commit(false);
+    writeMessage(LogLevel.INFO, "Main.dropped", "second");
+    encoder.encode(LogLevel.INFO, "Main.lost", TIME, "%s", new Object[] {"lost"});
+    encoder.commit(false);
+    writeFormat(LogLevel.INFO, "Main.lost", "%s", "third");
+    writeMessage(LogLevel.INFO, "Main.run", "fourth");
+    assertEquals(expected.toString(), decode());
+  }
+
+  @Test
+  void recordsAfterUncommittedRecordReferToDefinedEntries() throws IOException {
+    write(encoder.header());
+    // 書き込み結果を反映せずに次のログをエンコードした場合, 前のログは書き込めなかったものとみなす
+    encoder.encode(LogLevel.INFO, "Main.dropped", TIME, "lost");
+    writeMessage(LogLevel.INFO, "Main.dropped", "second");
+    assertEquals(expected.toString(), decode());
+  }
+
+  @Test
+  void headerOfNewFileContainsOnlyCommittedEntries() throws IOException {
+    write(encoder.header());
+    writeMessage(LogLevel.INFO, "Main.run", "first");
+    encoder.encode(LogLevel.INFO, "Main.dropped", TIME, "lost");
+    encoder.commit(false);
+    // ローテーション後のファイル
+    file.reset();
+    expected.setLength(0);
+    write(encoder.header());
+    writeMessage(LogLevel.INFO, "Main.run", "second");
+    writeMessage(LogLevel.INFO, "Main.dropped", "third");
+    assertEquals(expected.toString(), decode());
+  }
+
+  @Test
+  void formattedRecordsMatchTextFormat() throws IOException {
+    write(encoder.header());
+    writeFormat(LogLevel.INFO, "Main.run", "%d %x %05d", 42, 255L, (short) 7);
+    writeFormat(LogLevel.INFO, "Main.run", "%.2f %e %b %c", 3.14159, 2.5f, true, 'x');
+    writeFormat(LogLevel.INFO, "Main.run", "%s %s", null, (byte) -1);
+    writeFormat(LogLevel.INFO, "Main.run", "%.2f", new BigDecimal("1.005"));
+    writeFormat(LogLevel.INFO, "Main.run", "%x", new BigInteger("123456789012345678901234567890"));
+    writeFormat(LogLevel.INFO, "Main.run", "%s", new StringBuilder("builder"));
+    assertEquals(expected.toString(), decode());
+  }
+
+  /** メッセージを記録したログをエンコードして書き込み, {@link RecordFormat#TEXT} の場合の結果を記録する. */
+  private void writeMessage(LogLevel level, String caller, String msg) {
+    write(encoder.encode(level, caller, TIME, msg));
+    encoder.commit(true);
+    appendExpected(level, caller, msg);
+  }
+
+  /** 書式と引数を記録したログをエンコードして書き込み, {@link RecordFormat#TEXT} の場合の結果を記録する. */
+  private void writeFormat(LogLevel level, String caller, String format, Object... args) {
+    write(encoder.encode(level, caller, TIME, format, args));
+    encoder.commit(true);
+    appendExpected(level, caller, format.formatted(args));
+  }
+
+  private void appendExpected(LogLevel level, String caller, String msg) {
+    ByteBuffer record = RecordEncoder.get().encode(level.tag(), caller, TIME, msg);
+    expected.append(new String(
+        record.array(), record.arrayOffset(), record.limit(), StandardCharsets.UTF_8));
+  }
+
+  private void write(ByteBuffer data) {
+    file.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+  }
+
+  private String decode() throws IOException {
+    var out = new StringBuilder();
+    LogDecoder.decode(new ByteArrayInputStream(file.toByteArray()), out);
+    return out.toString();
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import net.seapanda.bunnyhop.utility.log.AsyncFileLogger.OverflowPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link ConcurrentFileLogger} の終了処理のテスト.
+ *
+ * @author K.Koike
+ */
+class ConcurrentFileLoggerTest {
+
+  @TempDir
+  Path dir;
+  private PrintStream stdout;
+
+  /** ログが標準出力に出力されないようにする. */
+  @BeforeEach
+  void muteStdout() {
+    stdout = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+  }
+
+  @AfterEach
+  void restoreStdout() {
+    System.setOut(stdout);
+  }
+
+  @Test
+  void writesEveryEnqueuedRecordWhenClosedDuringLogging() throws Exception {
+    for (int i = 0; i < 20; ++i) {
+      var logger = new ConcurrentFileLogger(
+          dir, "log" + i, 1024 * 1024, 4, 4, OverflowPolicy.BLOCK);
+      logger.setCallerInfoMode(CallerInfoMode.NONE);
+      var started = new CountDownLatch(4);
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < 4; ++t) {
+        threads.add(Thread.ofPlatform().start(() -> {
+          started.countDown();
+          for (int j = 0; j < 100_000; ++j) {
+            logger.info("message " + j);
+          }
+        }));
+      }
+      started.await();
+      logger.close();
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(0, logger.getQueueDepth());
+      assertEquals(0, logger.getMetrics().numFailures());
+    }
+  }
+
+  @Test
+  void threadsThatLoggedDoNotRetainClosedLogger() throws IOException, InterruptedException {
+    var logger = new ConcurrentFileLogger(dir, "log", 1024 * 1024, 4, 4, OverflowPolicy.BLOCK);
+    logger.info("message");
+    logger.close();
+    var ref = new WeakReference<>(logger);
+    logger = null;
+    for (int i = 0; i < 50 && ref.get() != null; ++i) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(ref.get());
+  }
+}
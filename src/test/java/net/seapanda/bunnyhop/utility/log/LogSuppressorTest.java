@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link LogSuppressor} が抑制したログの数を過不足なく報告することを確認するテスト.
+ *
+ * @author K.Koike
+ */
+class LogSuppressorTest {
+
+  private static final Pattern REPEATED = Pattern.compile("repeated (\\d+) more times");
+
+  /** 報告された抑制したログの数の合計. */
+  private final AtomicLong numReported = new AtomicLong();
+  /** 報告されたメッセージ. */
+  private final List<String> reports = new ArrayList<>();
+
+  @Test
+  void suppressesOccurrencesOverLimitAndReportsThemOnClose() {
+    var suppressor = new LogSuppressor(SuppressionPolicy.firstPerWindow(2, 60_000), this::report);
+    int numAccepted = 0;
+    for (int i = 0; i < 10; ++i) {
+      if (suppressor.tryAcquire(LogLevel.WARN, "Main.run", "failed")) {
+        ++numAccepted;
+      }
+    }
+    assertEquals(2, numAccepted);
+    assertTrue(suppressor.tryAcquire(LogLevel.WARN, "Main.run", "other"));
+    assertTrue(suppressor.tryAcquire(LogLevel.INFO, "Main.run", "failed"));
+    suppressor.close();
+    assertEquals(List.of("failed\n(repeated 8 more times and suppressed)"), reports);
+  }
+
+  @Test
+  void reportsSuppressedOccurrencesAfterWindowEnds() throws InterruptedException {
+    var suppressor = new LogSuppressor(SuppressionPolicy.firstPerWindow(1, 20), this::report);
+    for (int i = 0; i < 5; ++i) {
+      suppressor.tryAcquire(LogLevel.ERROR, "Main.run", "failed");
+    }
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (numReported.get() < 4 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(4, numReported.get());
+    assertTrue(suppressor.tryAcquire(LogLevel.ERROR, "Main.run", "failed"));
+    suppressor.close();
+    assertEquals(4, numReported.get());
+  }
+
+  @Test
+  void doesNotTrackKindsOverMaxKeys() {
+    var suppressor = new LogSuppressor(
+        SuppressionPolicy.firstPerWindow(1, 60_000).withMaxKeys(1), this::report);
+    assertTrue(suppressor.tryAcquire(LogLevel.WARN, "Main.run", "first"));
+    assertFalse(suppressor.tryAcquire(LogLevel.WARN, "Main.run", "first"));
+    for (int i = 0; i < 3; ++i) {
+      assertTrue(suppressor.tryAcquire(LogLevel.WARN, "Main.run", "second"));
+    }
+    suppressor.close();
+    assertEquals(1, numReported.get());
+  }
+
+  @Test
+  void reportsEverySuppressedOccurrenceUnderContention() throws InterruptedException {
+    // ウィンドウを短くして, カウンタの取り除きとログの抑制が並行して起こるようにする
+    var suppressor = new LogSuppressor(SuppressionPolicy.firstPerWindow(3, 1), this::report);
+    var numSuppressed = new AtomicLong();
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; ++t) {
+      threads.add(Thread.ofPlatform().start(() -> {
+        for (int i = 0; i < 20_000; ++i) {
+          if (!suppressor.tryAcquire(LogLevel.WARN, "Main.run", "failed " + (i / 500) % 4)) {
+            numSuppressed.incrementAndGet();
+          }
+          if (i % 2_000 == 0) {
+            pause();
+          }
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    suppressor.close();
+    assertTrue(numSuppressed.get() > 0);
+    assertEquals(numSuppressed.get(), numReported.get());
+  }
+
+  private synchronized void report(LogLevel level, String caller, String msg) {
+    reports.add(msg);
+    Matcher matcher = REPEATED.matcher(msg);
+    assertTrue(matcher.find());
+    numReported.addAndGet(Long.parseLong(matcher.group(1)));
+  }
+
+  private static void pause() {
+    try {
+      Thread.sleep(3);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
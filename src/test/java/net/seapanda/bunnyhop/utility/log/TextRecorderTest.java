@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 K.Koike
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package net.seapanda.bunnyhop.utility.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * {@link TextRecorder} を作成したときに前回までに作成したセグメントを復元するテストと, 終了処理のテスト.
+ *
+ * @author K.Koike
+ */
+class TextRecorderTest {
+
+  @TempDir
+  Path dir;
+  private LogSegments segments;
+
+  @Test
+  void deletesEveryStaleSegmentOlderThanManifest() throws IOException {
+    segments = new LogSegments(dir, "log");
+    // ローテーションの途中で終了して削除されずに残ったセグメント
+    createSegment(1, "");
+    createSegment(2, ".gz");
+    createSegment(3, ".tmp");
+    createSegment(4, "");
+    createSegment(4, ".deflate");
+    createSegment(5, "");
+    createSegment(6, "");
+    segments.writeManifest(new LogSegments.Manifest(5, 6));
+    new TextRecorder(dir, "log", 1024, 4).close();
+    assertEquals(List.of("log-0000000005.log", "log-0000000006.log"), fileNames());
+  }
+
+  @Test
+  void appendsToNewestSegmentRecoveredWithoutManifest() throws IOException {
+    segments = new LogSegments(dir, "log");
+    createSegment(3, "");
+    createSegment(4, ".gz");
+    createSegment(5, "");
+    try (var recorder = new TextRecorder(dir, "log", 1024, 4)) {
+      recorder.write("appended");
+    }
+    assertEquals(
+        List.of("log-0000000003.log", "log-0000000004.log.gz", "log-0000000005.log"),
+        fileNames());
+    assertEquals("segment 5appended", Files.readString(segments.path(5)));
+    assertEquals(new LogSegments.Manifest(3, 5), segments.readManifest().orElseThrow());
+  }
+
+  @Test
+  void deletesUncompressedFileLeftByInterruptedCompression() throws IOException {
+    segments = new LogSegments(dir, "log");
+    createSegment(1, "");
+    createSegment(1, ".gz");
+    createSegment(2, "");
+    segments.writeManifest(new LogSegments.Manifest(1, 2));
+    new TextRecorder(dir, "log", 1024, 4).close();
+    assertEquals(List.of("log-0000000001.log.gz", "log-0000000002.log"), fileNames());
+  }
+
+  @Test
+  void deletesSegmentsOverReducedMaxFiles() throws IOException {
+    segments = new LogSegments(dir, "log");
+    for (long generation = 1; generation <= 6; ++generation) {
+      createSegment(generation, "");
+    }
+    segments.writeManifest(new LogSegments.Manifest(1, 6));
+    new TextRecorder(dir, "log", 1024, 2).close();
+    assertEquals(List.of("log-0000000005.log", "log-0000000006.log"), fileNames());
+    assertEquals(new LogSegments.Manifest(5, 6), segments.readManifest().orElseThrow());
+  }
+
+  @Test
+  void rotatesWhenRestartedWithFullSegment() throws IOException {
+    segments = new LogSegments(dir, "log");
+    Files.writeString(segments.path(1), "x".repeat(2048), StandardCharsets.UTF_8);
+    try (var recorder = new TextRecorder(dir, "log", 1024, 4)) {
+      recorder.write("new");
+    }
+    assertEquals(List.of("log-0000000001.log", "log-0000000002.log"), fileNames());
+    assertEquals("new", Files.readString(segments.path(2)));
+  }
+
+  @Test
+  void closeStopsCompressionBeforeReturning() throws IOException, InterruptedException {
+    segments = new LogSegments(dir, "log");
+    // 1 つのセグメントの圧縮に数秒かかる速度にする
+    var slow = RetentionPolicy.compressed(Compression.GZIP).withCompressionRate(64 * 1024);
+    var recorder = new TextRecorder(
+        dir, "log", 256 * 1024, 8, OutputMode.STREAM, FlushPolicy.everyRecord(), slow);
+    for (int i = 0; i < 3; ++i) {
+      recorder.write("x".repeat(200 * 1024));
+    }
+    long startTime = System.nanoTime();
+    recorder.close();
+    assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(1));
+    List<String> namesAfterClose = fileNames();
+    String manifestAfterClose = Files.readString(dir.resolve("log.manifest"));
+    Thread.sleep(500);
+    assertEquals(
+        List.of("log-0000000001.log", "log-0000000002.log", "log-0000000003.log"),
+        namesAfterClose);
+    assertEquals(namesAfterClose, fileNames());
+    assertEquals(manifestAfterClose, Files.readString(dir.resolve("log.manifest")));
+    assertEquals(0, recorder.getMetrics().numFailures());
+
+    // 取り消した圧縮は次に作成したときに行われる
+    recorder = new TextRecorder(dir, "log", 256 * 1024, 8, OutputMode.STREAM,
+        FlushPolicy.everyRecord(), RetentionPolicy.compressed(Compression.GZIP));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (fileNames().size() != 3 || !fileNames().get(1).endsWith(".gz")) {
+      assertTrue(System.nanoTime() < deadline);
+      Thread.sleep(10);
+    }
+    recorder.close();
+    assertEquals(
+        List.of("log-0000000001.log.gz", "log-0000000002.log.gz", "log-0000000003.log"),
+        fileNames());
+  }
+
+  /** {@code generation} の世代のセグメントを作成する.  {@code suffix} はセグメントの名前の末尾に付ける. */
+  private void createSegment(long generation, String suffix) throws IOException {
+    Path path = segments.path(generation);
+    Files.writeString(
+        path.resolveSibling(path.getFileName() + suffix),
+        "segment " + generation,
+        StandardCharsets.UTF_8);
+  }
+
+  /** ディレクトリにあるセグメントと圧縮途中のファイルの名前を昇順に並べたリストを返す. */
+  private List<String> fileNames() throws IOException {
+    try (Stream<Path> paths = Files.list(dir)) {
+      return paths
+          .map(path -> path.getFileName().toString())
+          .filter(name -> !name.endsWith(".manifest"))
+          .sorted()
+          .toList();
+    }
+  }
+}